@@ -0,0 +1,64 @@
+package io.token.banksample;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.typesafe.config.ConfigFactory;
+import io.token.banksample.config.ConfigParser;
+import io.token.banksample.model.impl.AccountLinkingImpl;
+import io.token.banksample.model.impl.CryptoExecutor;
+import io.token.proto.common.security.SecurityProtos;
+import io.token.sdk.BankAccountAuthorizer;
+
+import java.io.File;
+import java.time.Duration;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares account linking throughput with (warm) and without (cold) the
+ * bank authorization cache.
+ */
+public class AccountLinkingBenchmarkTest {
+    private final static Logger logger = LoggerFactory.getLogger(AccountLinkingBenchmarkTest.class);
+
+    private static final int ITERATIONS = 200;
+
+    private final ConfigParser config = new ConfigParser(
+            ConfigFactory.parseFile(new File("config/application.conf")));
+    private final BankAccountAuthorizer authorizer = BankAccountAuthorizer
+            .builder(config.bankId())
+            .withSecretKeystore(config.secretKeyStore())
+            .withTrustedKeystore(config.trustedKeyStore())
+            .useKey(config.encryptionKeyId())
+            .useMethod(SecurityProtos.SealedMessage.MethodCase.valueOf(
+                    config.encryptionMethod()))
+            .build();
+
+    @Test
+    public void coldVsWarm() {
+        AccountLinkingImpl cold = new AccountLinkingImpl(
+                authorizer,
+                config.accessTokenAuthorizations(),
+                Duration.ZERO,
+                Duration.ZERO,
+                null,
+                CryptoExecutor.sameThread());
+        AccountLinkingImpl warm = new AccountLinkingImpl(
+                authorizer,
+                config.accessTokenAuthorizations());
+
+        logger.info("Account linking, cold: {} ops/s", opsPerSecond(cold));
+        logger.info("Account linking, warm: {} ops/s", opsPerSecond(warm));
+        assertThat(warm.getCacheStats().hitCount()).isEqualTo(ITERATIONS - 1);
+    }
+
+    private static long opsPerSecond(AccountLinkingImpl accountLinking) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertThat(accountLinking.getBankAuthorization("R0RUAX0C1T")).isNotNull();
+        }
+        return ITERATIONS * 1_000_000_000L / Math.max(1, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,75 @@
+package io.token.banksample.model.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares balance-as-of lookups on an account with a deep history against
+ * replaying the whole history.
+ */
+public class BalanceHistoryBenchmarkTest {
+    private final static Logger logger = LoggerFactory.getLogger(BalanceHistoryBenchmarkTest.class);
+
+    private static final int CHANGES = 1_000_000;
+    private static final int LOOKUPS = 1_000;
+    private static final long START_MS = 1_500_000_000_000L;
+    private static final long STEP_MS = 10_000;
+
+    private final long[] times = new long[CHANGES];
+    private final double[] deltas = new double[CHANGES];
+
+    @Test
+    public void checkpointsVsReplay() {
+        SplittableRandom random = new SplittableRandom(42);
+        double available = 1_000_000;
+        BalanceHistory history = new BalanceHistory(START_MS, available, available);
+        for (int i = 0; i < CHANGES; i++) {
+            times[i] = START_MS + (i + 1) * STEP_MS;
+            deltas[i] = random.nextInt(-10_000, 10_000) / 100.0;
+            available += deltas[i];
+            history.record(times[i], deltas[i], 0, available, 1_000_000);
+        }
+
+        long[] lookups = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = START_MS + random.nextLong(CHANGES * STEP_MS + STEP_MS);
+        }
+
+        long start = System.nanoTime();
+        double[] expected = new double[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            expected[i] = replay(lookups[i]);
+        }
+        long replayNs = (System.nanoTime() - start) / LOOKUPS;
+
+        start = System.nanoTime();
+        double[] actual = new double[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            actual[i] = history.balanceAt(lookups[i])[0];
+        }
+        long checkpointNs = (System.nanoTime() - start) / LOOKUPS;
+
+        logger.info(
+                "Balance as of, {} changes: replay {} us, checkpoints {} us",
+                CHANGES,
+                replayNs / 1000,
+                checkpointNs / 1000);
+        for (int i = 0; i < LOOKUPS; i++) {
+            assertThat(Math.abs(actual[i] - expected[i])).isLessThan(0.01);
+        }
+        assertThat(history.balanceAt(START_MS - 1)[0]).isEqualTo(1_000_000.0);
+    }
+
+    private double replay(long timeMs) {
+        double balance = 1_000_000;
+        for (int i = 0; i < CHANGES && times[i] <= timeMs; i++) {
+            balance += deltas[i];
+        }
+        return balance;
+    }
+}
@@ -0,0 +1,112 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.token.banksample.config.AccountConfig;
+import io.token.banksample.config.SyntheticAccounts;
+import io.token.banksample.model.AccountTransaction;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures how balance read throughput scales with the number of reader
+ * threads while a writer keeps posting debits.
+ */
+public class BalanceReadBenchmarkTest {
+    private final static Logger logger = LoggerFactory.getLogger(BalanceReadBenchmarkTest.class);
+
+    private static final int CUSTOMERS = 1_000;
+    private static final int WRITES = 100_000;
+    private static final int[] READERS = {1, 2, 4, 8};
+
+    private final SyntheticAccounts synthetic = new SyntheticAccounts(
+            42,
+            CUSTOMERS,
+            1,
+            asList("USD", "EUR"),
+            "RUBYUSCA000");
+    private final List<AccountConfig> customers = synthetic.customerAccounts();
+
+    @Test
+    public void readsDuringWrites() throws Exception {
+        for (int readers : READERS) {
+            AccountingImpl accounting = AccountingImpl.builder(new AccountsImpl(
+                            synthetic.holdAccounts(),
+                            synthetic.fxAccounts(),
+                            customers))
+                    .build();
+            BankAccount watched = customers.get(0).toBankAccount();
+            BigDecimal opening = accounting.lookupBalance(watched).get().getAvailable();
+
+            ExecutorService executor = Executors.newFixedThreadPool(readers);
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicBoolean writing = new AtomicBoolean(true);
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < readers; t++) {
+                int offset = t;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    long reads = 0;
+                    while (writing.get()) {
+                        BankAccount account = customers
+                                .get((int) ((reads + offset) % CUSTOMERS))
+                                .toBankAccount();
+                        assertThat(accounting.lookupBalance(account)).isPresent();
+                        reads++;
+                    }
+                    return reads;
+                }));
+            }
+
+            long startedAt = System.nanoTime();
+            start.countDown();
+            post(accounting);
+            writing.set(false);
+            long reads = 0;
+            for (Future<Long> result : results) {
+                reads += result.get();
+            }
+            long elapsed = System.nanoTime() - startedAt;
+            executor.shutdown();
+
+            logger.info(
+                    "Balance reads, {} readers: {} reads/s, {} debits/s",
+                    readers,
+                    reads * 1_000_000_000L / elapsed,
+                    WRITES * 1_000_000_000L / elapsed);
+            assertThat(accounting.lookupBalance(watched).get().getAvailable())
+                    .isEqualByComparingTo(opening.subtract(
+                            BigDecimal.valueOf(WRITES / CUSTOMERS)));
+        }
+    }
+
+    private void post(AccountingImpl accounting) {
+        for (int i = 0; i < WRITES; i++) {
+            AccountConfig from = customers.get(i % CUSTOMERS);
+            String currency = from.getBalance().getCurrency();
+            accounting.createDebitTransaction(AccountTransaction.builder(DEBIT)
+                    .id("read:" + i)
+                    .referenceId("read:" + i)
+                    .from(from.toBankAccount())
+                    .to(customers.get((i + 1) % CUSTOMERS).toBankAccount())
+                    .amount(1, currency)
+                    .transferAmount(1, currency)
+                    .description("Debit")
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.token.banksample.config.AccountConfig;
+import io.token.banksample.config.SyntheticAccounts;
+import io.token.banksample.model.AccountTransaction;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares posting throughput with and without the change feed, with a
+ * consumer reading the feed while the debits are posted.
+ */
+public class ChangeFeedBenchmarkTest {
+    private final static Logger logger = LoggerFactory.getLogger(ChangeFeedBenchmarkTest.class);
+
+    private static final int CUSTOMERS = 1_000;
+    private static final int TRANSACTIONS = 200_000;
+    // Status change plus the debit and credit ledger entries.
+    private static final int EVENTS_PER_TRANSACTION = 3;
+
+    private final SyntheticAccounts synthetic = new SyntheticAccounts(
+            42,
+            CUSTOMERS,
+            3,
+            asList("USD", "EUR"),
+            "RUBYUSCA000");
+    private final List<AccountConfig> customers = synthetic.customerAccounts();
+
+    @Test
+    public void feedVsPlain() throws Exception {
+        long plainMs = post(accounting(null));
+
+        ChangeFeed feed = new ChangeFeed(TRANSACTIONS * EVENTS_PER_TRANSACTION);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Long> consumed = executor.submit(() -> consume(feed));
+        long feedMs = post(accounting(feed));
+        long events = consumed.get();
+        executor.shutdown();
+
+        logger.info("Without feed: {} debits/s", TRANSACTIONS * 1000L / Math.max(1, plainMs));
+        logger.info(
+                "With feed: {} debits/s, {} events",
+                TRANSACTIONS * 1000L / Math.max(1, feedMs),
+                events);
+        assertThat(events).isEqualTo((long) TRANSACTIONS * EVENTS_PER_TRANSACTION);
+
+        // Resuming from any retained offset replays the same events.
+        ChangeEvent event = feed.subscribe(42).poll(1, Duration.ZERO).get(0);
+        assertThat(event.getOffset()).isEqualTo(42);
+        assertThat(feed.subscribe(feed.nextOffset()).poll(1, Duration.ZERO)).isEmpty();
+    }
+
+    private long consume(ChangeFeed feed) throws InterruptedException {
+        ChangeFeed.Subscription subscription = feed.subscribe(0);
+        long events = 0;
+        while (events < (long) TRANSACTIONS * EVENTS_PER_TRANSACTION) {
+            for (ChangeEvent event : subscription.poll(1000, Duration.ofSeconds(10))) {
+                assertThat(event.getOffset()).isEqualTo(events);
+                events++;
+            }
+        }
+        return events;
+    }
+
+    private AccountingImpl accounting(ChangeFeed feed) {
+        return AccountingImpl.builder(new AccountsImpl(
+                        synthetic.holdAccounts(),
+                        synthetic.fxAccounts(),
+                        customers))
+                .changeFeed(feed)
+                .build();
+    }
+
+    private long post(AccountingImpl accounting) {
+        long start = System.nanoTime();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            AccountConfig from = customers.get(i % CUSTOMERS);
+            String currency = from.getBalance().getCurrency();
+            accounting.createDebitTransaction(AccountTransaction.builder(DEBIT)
+                    .id("feed:" + i)
+                    .referenceId("feed:" + i)
+                    .from(from.toBankAccount())
+                    .to(customers.get((i + 1) % CUSTOMERS).toBankAccount())
+                    .amount(1, currency)
+                    .transferAmount(1, currency)
+                    .description("Debit")
+                    .build());
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
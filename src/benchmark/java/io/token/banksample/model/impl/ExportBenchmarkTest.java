@@ -0,0 +1,102 @@
+package io.token.banksample.model.impl;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.token.banksample.config.AccountConfig;
+import io.token.banksample.config.SyntheticAccounts;
+import io.token.banksample.model.ExportFormat;
+import io.token.banksample.services.AccountServiceImpl;
+import io.token.proto.PagedList;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+import io.token.proto.common.transaction.TransactionProtos.Transaction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares exporting the full history of an account by paging through
+ * {@link AccountServiceImpl#getTransactions} against the streaming export.
+ */
+public class ExportBenchmarkTest {
+    private final static Logger logger = LoggerFactory.getLogger(ExportBenchmarkTest.class);
+
+    private static final int CUSTOMERS = 10;
+    private static final int TRANSACTIONS_PER_ACCOUNT = 20_000;
+    private static final int PAGE_SIZE = 100;
+
+    private final SyntheticAccounts synthetic = new SyntheticAccounts(
+            42,
+            CUSTOMERS,
+            TRANSACTIONS_PER_ACCOUNT,
+            asList("USD", "EUR"),
+            "RUBYUSCA000");
+
+    @Test
+    public void exportVsPaging() throws IOException {
+        List<AccountConfig> customers = synthetic.customerAccounts();
+        AccountingImpl accounting = AccountingImpl.builder(new AccountsImpl(
+                        synthetic.holdAccounts(),
+                        synthetic.fxAccounts(),
+                        customers))
+                .build();
+        synthetic.populate(accounting);
+        AccountServiceImpl service = new AccountServiceImpl(accounting);
+        BankAccount account = customers.get(0).toBankAccount();
+
+        long start = System.nanoTime();
+        List<String> paged = new ArrayList<>();
+        String cursor = "";
+        while (true) {
+            PagedList<Transaction, String> page =
+                    service.getTransactions(account, cursor, PAGE_SIZE);
+            if (page.getList().isEmpty()) {
+                break;
+            }
+            page.getList().forEach(t -> paged.add(t.getId()));
+            cursor = page.getOffset();
+        }
+        long pagedMs = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = service.exportTransactions(account, ExportFormat.PROTO, out);
+        long exportMs = (System.nanoTime() - start) / 1_000_000;
+
+        logger.info(
+                "Export of {} transactions: paging {} ms, streaming {} ms, {} bytes",
+                exported,
+                pagedMs,
+                exportMs,
+                out.size());
+
+        // Same transactions in the same, newest first, order.
+        List<String> streamed = new ArrayList<>();
+        InputStream in = new ByteArrayInputStream(out.toByteArray());
+        Transaction transaction;
+        while ((transaction = Transaction.parseDelimitedFrom(in)) != null) {
+            streamed.add(transaction.getId());
+        }
+        assertThat(exported).isEqualTo(paged.size());
+        assertThat(streamed).isEqualTo(paged);
+
+        // Header plus one line per transaction.
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        accounting.exportTransactions(account, ExportFormat.CSV, csv);
+        assertThat(csv.toString("UTF-8").split("\n")).hasSize(paged.size() + 1);
+
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        accounting.exportTransactions(account, ExportFormat.JSON_LINES, json);
+        String[] lines = json.toString("UTF-8").split("\n");
+        assertThat(lines).hasSize(paged.size());
+        assertThat(lines[0]).startsWith("{\"id\":\"" + paged.get(0) + "\"");
+    }
+}
@@ -0,0 +1,92 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.token.banksample.config.AccountConfig;
+import io.token.banksample.config.SyntheticAccounts;
+import io.token.banksample.model.AccountTransaction;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares ledger growth and posting throughput for an FX-heavy mix with and
+ * without FX netting.
+ */
+public class FxNettingBenchmarkTest {
+    private final static Logger logger = LoggerFactory.getLogger(FxNettingBenchmarkTest.class);
+
+    private static final int CUSTOMERS = 1_000;
+    private static final int TRANSACTIONS = 200_000;
+    private static final int FLUSH_EVERY = 10_000;
+    private static final List<String> CURRENCIES = asList("USD", "EUR", "JPY");
+
+    private final SyntheticAccounts synthetic = new SyntheticAccounts(
+            42,
+            CUSTOMERS,
+            3,
+            CURRENCIES,
+            "RUBYUSCA000");
+    private final List<AccountConfig> customers = synthetic.customerAccounts();
+
+    @Test
+    public void nettingVsPlain() {
+        AccountingImpl plain = accounting(false);
+        AccountingImpl netting = accounting(true);
+
+        long plainMs = post(plain);
+        long nettingMs = post(netting);
+        ReconciliationReport plainReport = plain.reconcile();
+        ReconciliationReport nettingReport = netting.reconcile();
+
+        logger.info(
+                "FX netting off: {} entries, {} debits/s",
+                plainReport.getEntries(),
+                TRANSACTIONS * 1000L / Math.max(1, plainMs));
+        logger.info(
+                "FX netting on: {} entries, {} debits/s",
+                nettingReport.getEntries(),
+                TRANSACTIONS * 1000L / Math.max(1, nettingMs));
+        assertThat(plainReport.isReconciled()).isTrue();
+        assertThat(nettingReport.isReconciled()).isTrue();
+        assertThat(nettingReport.getEntries()).isLessThan(plainReport.getEntries() * 0.6);
+    }
+
+    private AccountingImpl accounting(boolean fxNetting) {
+        return AccountingImpl.builder(new AccountsImpl(
+                        synthetic.holdAccounts(),
+                        synthetic.fxAccounts(),
+                        customers))
+                .fxNetting(fxNetting)
+                .build();
+    }
+
+    private long post(AccountingImpl accounting) {
+        long start = System.nanoTime();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            AccountConfig from = customers.get(i % CUSTOMERS);
+            String currency = from.getBalance().getCurrency();
+            String transferCurrency = CURRENCIES.get(
+                    (CURRENCIES.indexOf(currency) + 1 + i % 2) % CURRENCIES.size());
+            accounting.createDebitTransaction(AccountTransaction.builder(DEBIT)
+                    .id("fx:" + i)
+                    .referenceId("fx:" + i)
+                    .from(from.toBankAccount())
+                    .to(customers.get((i + 1) % CUSTOMERS).toBankAccount())
+                    .amount(1, currency)
+                    .transferAmount(1.17, transferCurrency)
+                    .description("FX transaction")
+                    .build());
+            if ((i + 1) % FLUSH_EVERY == 0) {
+                accounting.flushFxNetting();
+            }
+        }
+        accounting.flushFxNetting();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,84 @@
+package io.token.banksample.model.impl;
+
+import static java.util.Collections.emptyMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures FX quote lookup throughput with many threads pricing transfers at
+ * once.
+ */
+public class FxRatesBenchmarkTest {
+    private final static Logger logger = LoggerFactory.getLogger(FxRatesBenchmarkTest.class);
+
+    private static final int THREADS = 32;
+    private static final int LOOKUPS_PER_THREAD = 1_000_000;
+    private static final String[] CURRENCIES = {"USD", "EUR", "JPY", "GBP"};
+
+    @Test
+    public void concurrentLookups() throws Exception {
+        Map<String, BigDecimal> values = ImmutableMap.of(
+                "USD", new BigDecimal("1.0"),
+                "EUR", new BigDecimal("1.17"),
+                "JPY", new BigDecimal("0.0067"),
+                "GBP", new BigDecimal("1.31"));
+        ScheduledExecutorService refreshExecutor = Executors.newSingleThreadScheduledExecutor();
+        FxRatesImpl fxRates = new FxRatesImpl(
+                new StubFxRateProvider(values),
+                Duration.ofMinutes(1),
+                emptyMap(),
+                refreshExecutor);
+        fxRates.prewarm(values.keySet());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                int found = 0;
+                for (int i = 0; i < LOOKUPS_PER_THREAD; i++) {
+                    String base = CURRENCIES[i & 3];
+                    String quote = CURRENCIES[(i >> 2) & 3];
+                    if (fxRates.lookupQuote(base, quote).isPresent()) {
+                        found++;
+                    }
+                }
+                return found;
+            }));
+        }
+        long startedAt = System.nanoTime();
+        start.countDown();
+        int found = 0;
+        for (Future<Integer> result : results) {
+            found += result.get();
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        executor.shutdown();
+        refreshExecutor.shutdown();
+
+        logger.info(
+                "FX quote lookups: {} ops/s on {} threads",
+                (long) THREADS * LOOKUPS_PER_THREAD * 1_000_000_000L / elapsed,
+                THREADS);
+        assertThat(found).isEqualTo(THREADS * LOOKUPS_PER_THREAD);
+        assertThat(fxRates.lookupQuote("EUR", "USD").get().rate())
+                .isEqualByComparingTo(new BigDecimal("1.17"));
+    }
+}
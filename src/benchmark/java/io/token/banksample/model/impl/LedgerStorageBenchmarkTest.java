@@ -0,0 +1,90 @@
+package io.token.banksample.model.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.token.proto.common.account.AccountProtos.BankAccount;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares sum, filter and group-by scans over the object and the columnar
+ * ledger layouts.
+ */
+public class LedgerStorageBenchmarkTest {
+    private final static Logger logger = LoggerFactory.getLogger(LedgerStorageBenchmarkTest.class);
+
+    private static final int TRANSFERS = 500_000;
+    private static final int CUSTOMERS = 10_000;
+    private static final int ITERATIONS = 10;
+
+    @Test
+    public void objectVsColumnar() {
+        LedgerStorage object = populate(new ObjectLedgerStorage());
+        LedgerStorage columnar = populate(new ColumnarLedgerStorage());
+        int size = object.size();
+        BigDecimal threshold = new BigDecimal("900");
+
+        assertThat(columnar.entryAt(size - 1)).isEqualTo(object.entryAt(size - 1));
+        assertThat(columnar.sum("EUR", 0, size))
+                .isEqualByComparingTo(object.sum("EUR", 0, size));
+        assertThat(columnar.filter("USD", threshold, 0, size).size())
+                .isEqualTo(object.filter("USD", threshold, 0, size).size());
+        assertThat(columnar.totals(0, size).accounts().get(7))
+                .isEqualByComparingTo(object.totals(0, size).accounts().get(7));
+
+        report("sum", () -> object.sum("EUR", 0, size), () -> columnar.sum("EUR", 0, size));
+        report(
+                "filter",
+                () -> object.filter("USD", threshold, 0, size),
+                () -> columnar.filter("USD", threshold, 0, size));
+        report("group-by", () -> object.totals(0, size), () -> columnar.totals(0, size));
+    }
+
+    private static LedgerStorage populate(LedgerStorage storage) {
+        SplittableRandom random = new SplittableRandom(42);
+        BankAccount hold = account(CUSTOMERS);
+        for (int i = 0; i < TRANSFERS; i++) {
+            int customer = random.nextInt(CUSTOMERS);
+            AccountTransfer transfer = AccountTransfer.builder()
+                    .transferId(i + 1)
+                    .from(account(customer), customer)
+                    .to(hold, CUSTOMERS)
+                    .withAmount(random.nextInt(1, 100_000) / 100.0, i % 2 == 0 ? "EUR" : "USD")
+                    .build();
+            storage.append(LedgerEntry.debit(transfer, i));
+            storage.append(LedgerEntry.credit(transfer, i));
+        }
+        return storage;
+    }
+
+    private static BankAccount account(int index) {
+        return BankAccount.newBuilder()
+                .setSwift(BankAccount.Swift.newBuilder()
+                        .setBic("RUBYUSCA000")
+                        .setAccount(String.format("%07d", index)))
+                .build();
+    }
+
+    private static void report(String scan, Supplier<?> object, Supplier<?> columnar) {
+        logger.info(
+                "Ledger {}: object {} ms, columnar {} ms",
+                scan,
+                millis(object),
+                millis(columnar));
+    }
+
+    private static long millis(Supplier<?> scan) {
+        scan.get(); // Warm up.
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertThat(scan.get()).isNotNull();
+        }
+        return (System.nanoTime() - start) / ITERATIONS / 1_000_000;
+    }
+}
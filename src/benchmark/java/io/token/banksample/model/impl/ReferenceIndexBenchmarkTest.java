@@ -0,0 +1,100 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.token.banksample.config.AccountConfig;
+import io.token.banksample.config.SyntheticAccounts;
+import io.token.banksample.model.AccountTransaction;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares looking up transactions by Token transfer id through the
+ * reference index against scanning the history of every account.
+ */
+public class ReferenceIndexBenchmarkTest {
+    private final static Logger logger = LoggerFactory.getLogger(ReferenceIndexBenchmarkTest.class);
+
+    private static final int CUSTOMERS = 1_000;
+    private static final int TRANSACTIONS = 100_000;
+    private static final int LOOKUPS = 100;
+
+    private final SyntheticAccounts synthetic = new SyntheticAccounts(
+            42,
+            CUSTOMERS,
+            1,
+            asList("USD", "EUR"),
+            "RUBYUSCA000");
+    private final List<AccountConfig> customers = synthetic.customerAccounts();
+
+    @Test
+    public void indexVsScan() {
+        AccountingImpl accounting = AccountingImpl.builder(new AccountsImpl(
+                        synthetic.holdAccounts(),
+                        synthetic.fxAccounts(),
+                        customers))
+                .build();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            AccountConfig from = customers.get(i % CUSTOMERS);
+            String currency = from.getBalance().getCurrency();
+            accounting.createDebitTransaction(AccountTransaction.builder(DEBIT)
+                    .id("transfer:" + i + ":debit")
+                    .referenceId("transfer:" + i)
+                    .from(from.toBankAccount())
+                    .to(customers.get((i + 1) % CUSTOMERS).toBankAccount())
+                    .amount(1, currency)
+                    .transferAmount(1, currency)
+                    .description("Debit")
+                    .build());
+        }
+
+        SplittableRandom random = new SplittableRandom(42);
+        String[] references = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            references[i] = "transfer:" + random.nextInt(TRANSACTIONS);
+        }
+
+        long start = System.nanoTime();
+        for (String reference : references) {
+            assertThat(scan(accounting, reference)).isPresent();
+        }
+        long scanNs = (System.nanoTime() - start) / LOOKUPS;
+
+        start = System.nanoTime();
+        for (String reference : references) {
+            List<AccountTransaction> transactions =
+                    accounting.lookupTransactionsByReference(reference);
+            assertThat(transactions.get(0).getReferenceId()).isEqualTo(reference);
+        }
+        long indexNs = (System.nanoTime() - start) / LOOKUPS;
+
+        logger.info(
+                "Lookup by reference, {} transactions: scan {} us, index {} us",
+                TRANSACTIONS,
+                scanNs / 1000,
+                indexNs / 1000);
+        assertThat(accounting.lookupTransactionsByReference("transfer:none")).isEmpty();
+    }
+
+    private Optional<AccountTransaction> scan(AccountingImpl accounting, String reference) {
+        for (AccountConfig customer : customers) {
+            for (AccountTransaction transaction : accounting.lookupTransactions(
+                    customer.toBankAccount(),
+                    0,
+                    TRANSACTIONS)) {
+                if (transaction.getReferenceId().equals(reference)) {
+                    return Optional.of(transaction);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,161 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.token.banksample.model.AccountTransaction;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+import io.token.proto.common.transaction.TransactionProtos.Transaction;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares size and encode/decode throughput of the compact codec against
+ * protobuf. The protobuf baseline is the {@code Transaction} proto plus the
+ * from and to account protos, which the transaction proto does not carry.
+ */
+public class TransactionCodecBenchmarkTest {
+    private final static Logger logger =
+            LoggerFactory.getLogger(TransactionCodecBenchmarkTest.class);
+
+    private static final int TRANSACTIONS = 200_000;
+    private static final int CUSTOMERS = 10_000;
+    private static final String[] CURRENCIES = {"USD", "EUR", "JPY"};
+
+    // The accounts below are not in the book, so the transactions intern
+    // them; ledger entries carry book ordinals and use those.
+    private final CodecDictionary dictionary =
+            new CodecDictionary(new AccountsImpl(emptyList(), emptyList(), emptyList()));
+    private final TransactionCodec codec = new TransactionCodec(dictionary);
+
+    @Test
+    public void compactVsProtobuf() throws Exception {
+        AccountTransaction[] transactions = transactions();
+
+        long start = System.nanoTime();
+        byte[][] compact = new byte[TRANSACTIONS][];
+        long compactBytes = 0;
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            compact[i] = codec.encode(transactions[i]);
+            compactBytes += compact[i].length;
+        }
+        long compactEncodeNs = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        byte[][][] proto = new byte[TRANSACTIONS][][];
+        long protoBytes = 0;
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            proto[i] = new byte[][] {
+                    transactions[i].toTransaction().toByteArray(),
+                    transactions[i].getFrom().toByteArray(),
+                    transactions[i].getTo().toByteArray()};
+            protoBytes += proto[i][0].length + proto[i][1].length + proto[i][2].length;
+        }
+        long protoEncodeNs = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        AccountTransaction[] decoded = new AccountTransaction[TRANSACTIONS];
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            decoded[i] = codec.decodeTransaction(compact[i]);
+        }
+        long compactDecodeNs = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            assertThat(Transaction.parseFrom(proto[i][0])).isNotNull();
+            assertThat(BankAccount.parseFrom(proto[i][1])).isNotNull();
+            assertThat(BankAccount.parseFrom(proto[i][2])).isNotNull();
+        }
+        long protoDecodeNs = System.nanoTime() - start;
+
+        logger.info(
+                "Transaction, compact: {} bytes, encode {}/s, decode {}/s",
+                compactBytes / TRANSACTIONS,
+                opsPerSecond(compactEncodeNs),
+                opsPerSecond(compactDecodeNs));
+        logger.info(
+                "Transaction, protobuf: {} bytes, encode {}/s, decode {}/s",
+                protoBytes / TRANSACTIONS,
+                opsPerSecond(protoEncodeNs),
+                opsPerSecond(protoDecodeNs));
+
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            assertThat(decoded[i].getId()).isEqualTo(transactions[i].getId());
+            assertThat(decoded[i].getFrom()).isEqualTo(transactions[i].getFrom());
+            assertThat(decoded[i].getTo()).isEqualTo(transactions[i].getTo());
+            assertThat(decoded[i].getAmount()).isEqualTo(transactions[i].getAmount());
+            assertThat(decoded[i].getTransferCurrency())
+                    .isEqualTo(transactions[i].getTransferCurrency());
+            assertThat(decoded[i].getStatus()).isEqualTo(transactions[i].getStatus());
+        }
+        assertThat(compactBytes).isLessThan(protoBytes / 2);
+    }
+
+    @Test
+    public void ledgerEntries() {
+        SplittableRandom random = new SplittableRandom(42);
+        BankAccount hold = account(CUSTOMERS);
+        long bytes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            int customer = random.nextInt(CUSTOMERS);
+            LedgerEntry entry = LedgerEntry.create(
+                    i + 1,
+                    account(customer),
+                    customer,
+                    hold,
+                    CUSTOMERS,
+                    -random.nextInt(1, 100_000) / 100.0,
+                    CURRENCIES[i % CURRENCIES.length],
+                    1_500_000_000_000L + i);
+            byte[] record = codec.encode(entry);
+            bytes += record.length;
+            assertThat(codec.decodeEntry(record)).isEqualTo(entry);
+        }
+        long ns = System.nanoTime() - start;
+
+        logger.info(
+                "Ledger entry, compact: {} bytes, encode and decode {}/s",
+                bytes / TRANSACTIONS,
+                opsPerSecond(ns));
+    }
+
+    private AccountTransaction[] transactions() {
+        SplittableRandom random = new SplittableRandom(42);
+        AccountTransaction[] transactions = new AccountTransaction[TRANSACTIONS];
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            String currency = CURRENCIES[i % CURRENCIES.length];
+            String transferCurrency = CURRENCIES[random.nextInt(CURRENCIES.length)];
+            double amount = random.nextInt(1, 100_000) / 100.0;
+            transactions[i] = AccountTransaction.builder(DEBIT)
+                    .id(String.format("%016x", random.nextLong()))
+                    .referenceId(String.format("%016x", random.nextLong()))
+                    .from(account(random.nextInt(CUSTOMERS)))
+                    .to(account(CUSTOMERS))
+                    .amount(amount, currency)
+                    .transferAmount(
+                            currency.equals(transferCurrency) ? amount : amount * 1.17,
+                            transferCurrency)
+                    .description("Payment " + i)
+                    .build();
+        }
+        return transactions;
+    }
+
+    private static BankAccount account(int index) {
+        return BankAccount.newBuilder()
+                .setSwift(BankAccount.Swift.newBuilder()
+                        .setBic("RUBYUSCA000")
+                        .setAccount(String.format("%07d", index)))
+                .build();
+    }
+
+    private static long opsPerSecond(long ns) {
+        return TRANSACTIONS * 1_000_000_000L / Math.max(1, ns);
+    }
+}
@@ -0,0 +1,146 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.token.banksample.config.AccountConfig;
+import io.token.banksample.config.SyntheticAccounts;
+import io.token.banksample.model.AccountTransaction;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the timer wheel with a million pending timers and executes a
+ * month-end batch of scheduled debits that all fall due at once.
+ */
+public class TransferSchedulerBenchmarkTest {
+    private final static Logger logger =
+            LoggerFactory.getLogger(TransferSchedulerBenchmarkTest.class);
+
+    private static final int TIMERS = 1_000_000;
+    private static final long DAY = 24 * 3600 * 1000L;
+    private static final int CUSTOMERS = 500;
+    private static final int DEBITS_PER_CUSTOMER = 10;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final SyntheticAccounts synthetic = new SyntheticAccounts(
+            42,
+            CUSTOMERS,
+            1,
+            asList("USD", "EUR"),
+            "RUBYUSCA000");
+    private final List<AccountConfig> customers = synthetic.customerAccounts();
+
+    @Test
+    public void timerWheel() {
+        long start = 0;
+        TimerWheel<Integer> wheel = new TimerWheel<>(1000, start);
+        SplittableRandom random = new SplittableRandom(42);
+
+        long addStart = System.nanoTime();
+        for (int i = 0; i < TIMERS; i++) {
+            wheel.add(start + random.nextLong(30 * DAY), i);
+        }
+        long addNs = (System.nanoTime() - addStart) / TIMERS;
+        assertThat(wheel.size()).isEqualTo(TIMERS);
+
+        // A tick per second for 30 days.
+        long tickStart = System.nanoTime();
+        long fired = 0;
+        for (long now = start; now <= start + 30 * DAY; now += 1000) {
+            fired += wheel.advance(now).size();
+        }
+        long tickNs = (System.nanoTime() - tickStart) / (30 * DAY / 1000);
+
+        logger.info("Timer wheel, {} timers: add {} ns, tick {} ns", TIMERS, addNs, tickNs);
+        assertThat(fired).isEqualTo(TIMERS);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    public void monthEnd() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        AccountingImpl accounting = AccountingImpl.builder(new AccountsImpl(
+                        synthetic.holdAccounts(),
+                        synthetic.fxAccounts(),
+                        customers))
+                .build();
+        TransferScheduler scheduler =
+                new TransferScheduler(accounting, directory, Duration.ofSeconds(1), 8);
+        Instant monthEnd = Instant.now().plus(Duration.ofDays(3));
+
+        long scheduleStart = System.nanoTime();
+        for (int d = 0; d < DEBITS_PER_CUSTOMER; d++) {
+            for (int c = 0; c < CUSTOMERS; c++) {
+                scheduler.schedule(debit(customers.get(c), "standing:" + c + ":" + d), monthEnd);
+            }
+        }
+        long scheduleUs = (System.nanoTime() - scheduleStart) / 1000
+                / (CUSTOMERS * DEBITS_PER_CUSTOMER);
+
+        // Pending debits survive a restart.
+        scheduler = new TransferScheduler(accounting, directory, Duration.ofSeconds(1), 8);
+        assertThat(scheduler.pendingCount()).isEqualTo(CUSTOMERS * DEBITS_PER_CUSTOMER);
+        assertThat(scheduler.cancel("standing:0:" + (DEBITS_PER_CUSTOMER - 1))).isTrue();
+
+        assertThat(scheduler.tick(monthEnd.toEpochMilli() - 1000)).isZero();
+        long executeStart = System.nanoTime();
+        int executed = scheduler.tick(monthEnd.toEpochMilli() + 1000);
+        long executeMs = (System.nanoTime() - executeStart) / 1_000_000;
+
+        logger.info(
+                "Month end, {} debits: schedule {} us/debit (synced), execute {} ms",
+                executed,
+                scheduleUs,
+                executeMs);
+        assertThat(executed).isEqualTo(CUSTOMERS * DEBITS_PER_CUSTOMER - 1);
+        assertThat(scheduler.pendingCount()).isZero();
+
+        // Debits of an account are executed in the order they were scheduled.
+        List<String> expected = new ArrayList<>();
+        for (int d = 0; d < DEBITS_PER_CUSTOMER; d++) {
+            expected.add("standing:1:" + d);
+        }
+        List<String> actual = new ArrayList<>();
+        for (AccountTransaction t : accounting.lookupTransactions(
+                customers.get(1).toBankAccount(),
+                0,
+                DEBITS_PER_CUSTOMER)) {
+            actual.add(t.getId());
+        }
+        Collections.reverse(actual);
+        assertThat(actual).isEqualTo(expected);
+
+        // Executed and cancelled debits are not loaded again.
+        assertThat(new TransferScheduler(accounting, directory, Duration.ofSeconds(1), 8)
+                .pendingCount()).isZero();
+    }
+
+    private AccountTransaction debit(AccountConfig from, String id) {
+        String currency = from.getBalance().getCurrency();
+        return AccountTransaction.builder(DEBIT)
+                .id(id)
+                .referenceId(id)
+                .from(from.toBankAccount())
+                .to(customers.get(0).toBankAccount())
+                .amount(1, currency)
+                .transferAmount(1, currency)
+                .description("Standing order")
+                .build();
+    }
+}
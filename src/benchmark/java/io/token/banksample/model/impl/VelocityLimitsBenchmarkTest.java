@@ -0,0 +1,105 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+
+import io.token.banksample.config.AccountConfig;
+import io.token.banksample.config.SyntheticAccounts;
+import io.token.banksample.config.VelocityLimit;
+import io.token.banksample.model.AccessTokenAuthorization;
+import io.token.banksample.model.AccountTransaction;
+import io.token.sdk.NamedAccount;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the cost of enforcing velocity limits on every debit.
+ */
+public class VelocityLimitsBenchmarkTest {
+    private final static Logger logger = LoggerFactory.getLogger(VelocityLimitsBenchmarkTest.class);
+
+    private static final int CUSTOMERS = 1_000;
+    private static final int TRANSACTIONS = 200_000;
+
+    private final SyntheticAccounts synthetic = new SyntheticAccounts(
+            42,
+            CUSTOMERS,
+            3,
+            asList("USD", "EUR"),
+            "RUBYUSCA000");
+    private final List<AccountConfig> customers = synthetic.customerAccounts();
+
+    @Test
+    public void limitsVsPlain() {
+        // Limits high enough never to be hit, the counters are still updated.
+        VelocityLimit limit = VelocityLimit.create(1_000, 1e9, 10_000, 1e9);
+        VelocityLimits limits = new VelocityLimits(
+                limit,
+                emptyMap(),
+                limit,
+                emptyMap(),
+                singletonList(member("member", customers.get(0), customers.get(1))));
+
+        // Warm up both paths before measuring.
+        post(accounting(null), "warmup");
+        post(accounting(limits), "warmup");
+        long plainNs = post(accounting(null), "plain");
+        long limitedNs = post(accounting(limits), "limited");
+
+        logger.info(
+                "Velocity limits: plain {} ns/debit, limited {} ns/debit, overhead {} ns/debit",
+                plainNs / TRANSACTIONS,
+                limitedNs / TRANSACTIONS,
+                (limitedNs - plainNs) / TRANSACTIONS);
+    }
+
+    private AccountingImpl accounting(VelocityLimits limits) {
+        return AccountingImpl.builder(new AccountsImpl(
+                        synthetic.holdAccounts(),
+                        synthetic.fxAccounts(),
+                        customers))
+                .velocityLimits(limits)
+                .build();
+    }
+
+    private long post(AccountingImpl accounting, String prefix) {
+        long start = System.nanoTime();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            debit(accounting, customers.get(i % CUSTOMERS), prefix + ":" + i, 1);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void debit(
+            AccountingImpl accounting,
+            AccountConfig from,
+            String id,
+            double amount) {
+        String currency = from.getBalance().getCurrency();
+        accounting.createDebitTransaction(AccountTransaction.builder(DEBIT)
+                .id(id)
+                .referenceId(id)
+                .from(from.toBankAccount())
+                .to(from.toBankAccount())
+                .amount(amount, currency)
+                .transferAmount(amount, currency)
+                .description("Debit")
+                .build());
+    }
+
+    private static AccessTokenAuthorization member(String memberId, AccountConfig... accounts) {
+        return AccessTokenAuthorization.create(
+                "token-" + memberId,
+                memberId,
+                asList(accounts).stream()
+                        .map(a -> new NamedAccount(a.toBankAccount(), a.getName()))
+                        .collect(toList()));
+    }
+}
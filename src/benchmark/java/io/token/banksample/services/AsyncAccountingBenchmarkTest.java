@@ -0,0 +1,128 @@
+package io.token.banksample.services;
+
+import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.token.banksample.config.AccountConfig;
+import io.token.banksample.config.SyntheticAccounts;
+import io.token.banksample.model.AccountTransaction;
+import io.token.banksample.model.impl.AccountingImpl;
+import io.token.banksample.model.impl.AccountsImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares debit latency percentiles of the synchronous accounting and the
+ * async adapter with more client threads than cores.
+ */
+public class AsyncAccountingBenchmarkTest {
+    private final static Logger logger =
+            LoggerFactory.getLogger(AsyncAccountingBenchmarkTest.class);
+
+    private static final int CUSTOMERS = 1_000;
+    private static final int CLIENTS = 64;
+    private static final int DEBITS_PER_CLIENT = 5_000;
+
+    private final SyntheticAccounts synthetic = new SyntheticAccounts(
+            42,
+            CUSTOMERS,
+            4,
+            asList("USD", "EUR"),
+            "RUBYUSCA000");
+    private final List<AccountConfig> customers = synthetic.customerAccounts();
+
+    @Test
+    public void syncVsAsync() throws Exception {
+        AccountingImpl sync = accounting();
+        long[] syncLatencies = run(sync::createDebitTransaction);
+
+        AccountingImpl async = accounting();
+        AsyncAccountingAdapter adapter = AsyncAccountingAdapter.create(
+                async,
+                CLIENTS * 2,
+                Runtime.getRuntime().availableProcessors());
+        long[] asyncLatencies = run(t -> adapter.createDebitTransaction(t).join());
+
+        logger.info("Sync debits: {}", percentiles(syncLatencies));
+        logger.info("Async debits: {}", percentiles(asyncLatencies));
+        assertThat(sync.reconcile().isReconciled()).isTrue();
+        assertThat(async.reconcile().isReconciled()).isTrue();
+        for (AccountConfig customer : customers.subList(0, 10)) {
+            assertThat(adapter.lookupBalance(customer.toBankAccount()).join().get().getAvailable())
+                    .isEqualByComparingTo(sync
+                            .lookupBalance(customer.toBankAccount())
+                            .get()
+                            .getAvailable());
+        }
+    }
+
+    private AccountingImpl accounting() {
+        return AccountingImpl.builder(new AccountsImpl(
+                        synthetic.holdAccounts(),
+                        synthetic.fxAccounts(),
+                        customers))
+                .build();
+    }
+
+    private long[] run(Debit debit) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int c = 0; c < CLIENTS; c++) {
+            int client = c;
+            results.add(executor.submit(() -> {
+                start.await();
+                long[] latencies = new long[DEBITS_PER_CLIENT];
+                for (int i = 0; i < DEBITS_PER_CLIENT; i++) {
+                    int n = client * DEBITS_PER_CLIENT + i;
+                    AccountConfig from = customers.get(n % CUSTOMERS);
+                    String currency = from.getBalance().getCurrency();
+                    AccountTransaction transaction = AccountTransaction.builder(DEBIT)
+                            .id("async:" + n)
+                            .referenceId("async:" + n)
+                            .from(from.toBankAccount())
+                            .to(customers.get((n + 1) % CUSTOMERS).toBankAccount())
+                            .amount(1, currency)
+                            .transferAmount(1, currency)
+                            .description("Debit")
+                            .build();
+                    long startedAt = System.nanoTime();
+                    debit.apply(transaction);
+                    latencies[i] = System.nanoTime() - startedAt;
+                }
+                return latencies;
+            }));
+        }
+        start.countDown();
+        long[] all = new long[CLIENTS * DEBITS_PER_CLIENT];
+        for (int c = 0; c < CLIENTS; c++) {
+            long[] latencies = results.get(c).get();
+            System.arraycopy(latencies, 0, all, c * DEBITS_PER_CLIENT, DEBITS_PER_CLIENT);
+        }
+        executor.shutdown();
+        Arrays.sort(all);
+        return all;
+    }
+
+    private static String percentiles(long[] sorted) {
+        return "p50 " + sorted[sorted.length / 2] / 1000 + "us"
+                + ", p99 " + sorted[(int) (sorted.length * 0.99)] / 1000 + "us"
+                + ", p99.9 " + sorted[(int) (sorted.length * 0.999)] / 1000 + "us"
+                + ", max " + sorted[sorted.length - 1] / 1000 + "us";
+    }
+
+    private interface Debit {
+        void apply(AccountTransaction transaction);
+    }
+}
@@ -0,0 +1,79 @@
+package io.token.banksample.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Simulates a polling storm: many threads reading the same few keys while
+ * the account version changes now and then.
+ */
+public class ReadCoalescerBenchmarkTest {
+    private final static Logger logger = LoggerFactory.getLogger(ReadCoalescerBenchmarkTest.class);
+
+    private static final int THREADS = 32;
+    private static final int POLLS_PER_THREAD = 100_000;
+    private static final int KEYS = 4;
+    private static final int CHANGE_EVERY = 10_000;
+
+    @Test
+    public void pollingStorm() throws Exception {
+        ReadCoalescer<Integer, Long> coalescer = new ReadCoalescer<>("test", 1_000);
+        AtomicLong version = new AtomicLong();
+        LongAdder evaluations = new LongAdder();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < POLLS_PER_THREAD; i++) {
+                    if (thread == 0 && i % CHANGE_EVERY == 0) {
+                        version.incrementAndGet();
+                    }
+                    long seen = version.get();
+                    long value = coalescer.get(i % KEYS, seen, () -> {
+                        evaluations.increment();
+                        return version.get();
+                    });
+                    assertThat(value).isGreaterThanOrEqualTo(seen);
+                }
+                return null;
+            }));
+        }
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        executor.shutdown();
+
+        long polls = (long) THREADS * POLLS_PER_THREAD;
+        logger.info("Polls: {} ops/s, {}", polls * 1_000_000_000L / elapsed, coalescer);
+        assertThat(coalescer.getExecuted()).isEqualTo(evaluations.sum());
+        assertThat(coalescer.getCached() + coalescer.getCoalesced() + coalescer.getExecuted())
+                .isEqualTo(polls);
+
+        // Once the version settles, polls are served from the cache.
+        long executed = coalescer.getExecuted();
+        for (int key = 0; key < KEYS; key++) {
+            coalescer.get(key, version.get(), version::get);
+            coalescer.get(key, version.get(), version::get);
+        }
+        assertThat(coalescer.getExecuted()).isLessThanOrEqualTo(executed + KEYS);
+    }
+}
@@ -0,0 +1,103 @@
+package io.token.banksample.services;
+
+import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.token.banksample.config.AccountConfig;
+import io.token.banksample.config.SyntheticAccounts;
+import io.token.banksample.model.AccountTransaction;
+import io.token.banksample.model.impl.AccountingImpl;
+import io.token.banksample.model.impl.AccountsImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares posting a transfer split across several destinations as separate
+ * debits against posting its legs together.
+ */
+public class SplitTransferBenchmarkTest {
+    private final static Logger logger = LoggerFactory.getLogger(SplitTransferBenchmarkTest.class);
+
+    private static final int CUSTOMERS = 1_000;
+    private static final int TRANSFERS = 50_000;
+    private static final int DESTINATIONS = 5;
+
+    private final SyntheticAccounts synthetic = new SyntheticAccounts(
+            42,
+            CUSTOMERS,
+            3,
+            asList("USD", "EUR"),
+            "RUBYUSCA000");
+    private final List<AccountConfig> customers = synthetic.customerAccounts();
+
+    @Test
+    public void batchVsSeparate() {
+        // Warm up both paths before measuring.
+        post(accounting(), "warmup", false);
+        post(accounting(), "warmup", true);
+        long separateNs = post(accounting(), "separate", false);
+        AccountingImpl accounting = accounting();
+        long batchNs = post(accounting, "batch", true);
+
+        logger.info(
+                "{}-way split: separate {} ns/transfer, batch {} ns/transfer",
+                DESTINATIONS,
+                separateNs / TRANSFERS,
+                batchNs / TRANSFERS);
+        assertThat(accounting.isBalanced()).isTrue();
+        assertThat(accounting.lookupTransactions(customers.get(0).toBankAccount(), 0, 1000))
+                .hasSize(TRANSFERS / CUSTOMERS * DESTINATIONS);
+        // The legs of a transfer share its reference.
+        assertThat(accounting.lookupTransactionsByReference("batch:7"))
+                .extracting(AccountTransaction::getId)
+                .containsExactly("batch:7:0", "batch:7:1", "batch:7:2", "batch:7:3", "batch:7:4");
+    }
+
+    private AccountingImpl accounting() {
+        return AccountingImpl.builder(new AccountsImpl(
+                        synthetic.holdAccounts(),
+                        synthetic.fxAccounts(),
+                        customers))
+                .build();
+    }
+
+    private long post(AccountingImpl accounting, String prefix, boolean batch) {
+        long start = System.nanoTime();
+        for (int i = 0; i < TRANSFERS; i++) {
+            AccountConfig from = customers.get(i % CUSTOMERS);
+            List<AccountTransaction> legs = new ArrayList<>(DESTINATIONS);
+            for (int d = 0; d < DESTINATIONS; d++) {
+                legs.add(debit(from, prefix + ":" + i + ":" + d, prefix + ":" + i, 1));
+            }
+            if (batch) {
+                accounting.createDebitTransactions(legs);
+            } else {
+                legs.forEach(accounting::createDebitTransaction);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private AccountTransaction debit(
+            AccountConfig from,
+            String id,
+            String referenceId,
+            double amount) {
+        String currency = from.getBalance().getCurrency();
+        return AccountTransaction.builder(DEBIT)
+                .id(id)
+                .referenceId(referenceId)
+                .from(from.toBankAccount())
+                .to(customers.get(0).toBankAccount())
+                .amount(amount, currency)
+                .transferAmount(amount, currency)
+                .description("Split")
+                .build();
+    }
+}
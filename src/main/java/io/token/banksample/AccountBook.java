@@ -0,0 +1,101 @@
+package io.token.banksample;
+
+import io.token.banksample.config.AccessTokenFile;
+import io.token.banksample.config.AccountConfig;
+import io.token.banksample.config.AccountFile;
+import io.token.banksample.config.ConfigParser;
+import io.token.banksample.config.SyntheticAccounts;
+import io.token.banksample.model.AccessTokenAuthorization;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Accounts and access tokens loaded from whichever source is configured:
+ * synthetic generator, streaming files or the config itself.
+ */
+final class AccountBook {
+    private final List<AccountConfig> holdAccounts;
+    private final List<AccountConfig> fxAccounts;
+    private final List<AccountConfig> customerAccounts;
+    private final Map<String, AccessTokenAuthorization> accessTokenAuthorizations;
+    private final Optional<SyntheticAccounts> synthetic;
+
+    private AccountBook(
+            List<AccountConfig> holdAccounts,
+            List<AccountConfig> fxAccounts,
+            List<AccountConfig> customerAccounts,
+            Map<String, AccessTokenAuthorization> accessTokenAuthorizations,
+            Optional<SyntheticAccounts> synthetic) {
+        this.holdAccounts = holdAccounts;
+        this.fxAccounts = fxAccounts;
+        this.customerAccounts = customerAccounts;
+        this.accessTokenAuthorizations = accessTokenAuthorizations;
+        this.synthetic = synthetic;
+    }
+
+    /**
+     * Loads the account book.
+     *
+     * @param config parsed config
+     * @param configFile config file path, other files are resolved against it
+     * @return loaded account book
+     */
+    static AccountBook load(ConfigParser config, Path configFile) {
+        Optional<SyntheticAccounts> synthetic = config.syntheticAccounts();
+        Optional<AccountFile> accountFile = config.accountsFile()
+                .map(file -> AccountFile.load(configFile.resolveSibling(file)));
+
+        List<AccountConfig> holdAccounts;
+        List<AccountConfig> fxAccounts;
+        List<AccountConfig> customerAccounts;
+        if (synthetic.isPresent()) {
+            holdAccounts = synthetic.get().holdAccounts();
+            fxAccounts = synthetic.get().fxAccounts();
+            customerAccounts = synthetic.get().customerAccounts();
+        } else if (accountFile.isPresent()) {
+            holdAccounts = accountFile.get().holdAccounts();
+            fxAccounts = accountFile.get().fxAccounts();
+            customerAccounts = accountFile.get().customerAccounts();
+        } else {
+            holdAccounts = config.holdAccounts();
+            fxAccounts = config.fxAccounts();
+            customerAccounts = config.customerAccounts();
+        }
+
+        Map<String, AccessTokenAuthorization> authorizations = config.accessTokensFile()
+                .map(file -> AccessTokenFile.load(
+                        configFile.resolveSibling(file),
+                        customerAccounts))
+                .orElseGet(() -> config.accessTokenAuthorizations(customerAccounts));
+
+        return new AccountBook(
+                holdAccounts,
+                fxAccounts,
+                customerAccounts,
+                authorizations,
+                synthetic);
+    }
+
+    List<AccountConfig> holdAccounts() {
+        return holdAccounts;
+    }
+
+    List<AccountConfig> fxAccounts() {
+        return fxAccounts;
+    }
+
+    List<AccountConfig> customerAccounts() {
+        return customerAccounts;
+    }
+
+    Map<String, AccessTokenAuthorization> accessTokenAuthorizations() {
+        return accessTokenAuthorizations;
+    }
+
+    Optional<SyntheticAccounts> synthetic() {
+        return synthetic;
+    }
+}
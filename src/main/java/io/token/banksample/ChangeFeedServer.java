@@ -0,0 +1,123 @@
+package io.token.banksample;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.token.banksample.model.impl.ChangeEvent;
+import io.token.banksample.model.impl.ChangeFeed;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves the {@link ChangeFeed} over a socket on the loopback interface. A
+ * consumer connects, sends the offset to resume from on a single line and
+ * then receives the events, one per line, see {@link ChangeEvent#toLine()}.
+ * Each connection is served by its own thread, so a slow consumer only
+ * blocks itself. A consumer that falls behind the events retained in memory
+ * gets an {@code ERROR} line and is disconnected; it can catch up from the
+ * change log files.
+ */
+final class ChangeFeedServer {
+    private final static Logger logger = LoggerFactory.getLogger(ChangeFeedServer.class);
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    private final ChangeFeed feed;
+    private final int port;
+    private final int batchSize;
+
+    /**
+     * Creates new server.
+     *
+     * @param feed feed to serve
+     * @param port port to listen on
+     * @param batchSize max number of events to send per flush
+     */
+    ChangeFeedServer(ChangeFeed feed, int port, int batchSize) {
+        this.feed = feed;
+        this.port = port;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Starts accepting consumers on a background thread.
+     */
+    void start() {
+        ServerSocket server;
+        try {
+            server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to listen on change feed port " + port, ex);
+        }
+        Thread thread = new Thread(() -> accept(server), "change-feed-server");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Serving change feed on port {}", port);
+    }
+
+    private void accept(ServerSocket server) {
+        int connections = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Socket socket = server.accept();
+                Thread thread = new Thread(
+                        () -> serve(socket),
+                        "change-feed-" + connections++);
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException ex) {
+                logger.error("Failed to accept change feed consumer", ex);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(s.getInputStream(), UTF_8));
+             BufferedWriter out = new BufferedWriter(
+                     new OutputStreamWriter(s.getOutputStream(), UTF_8))) {
+            ChangeFeed.Subscription subscription;
+            try {
+                String line = in.readLine();
+                subscription = feed.subscribe(line == null ? 0 : Long.parseLong(line.trim()));
+            } catch (IllegalArgumentException ex) {
+                out.write("ERROR " + ex.getMessage());
+                out.newLine();
+                return;
+            }
+            while (!Thread.currentThread().isInterrupted()) {
+                List<ChangeEvent> batch;
+                try {
+                    batch = subscription.poll(batchSize, POLL_TIMEOUT);
+                } catch (IllegalStateException ex) {
+                    out.write("ERROR " + ex.getMessage());
+                    out.newLine();
+                    return;
+                }
+                for (ChangeEvent event : batch) {
+                    out.write(event.toLine());
+                    out.newLine();
+                }
+                // Blocks while the consumer is not reading, which is the
+                // backpressure: the consumer is only sent what it can take.
+                out.flush();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            logger.debug("Change feed consumer disconnected", ex);
+        }
+    }
+}
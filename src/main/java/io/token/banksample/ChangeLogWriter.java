@@ -0,0 +1,199 @@
+package io.token.banksample;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import io.token.banksample.model.impl.ChangeEvent;
+import io.token.banksample.model.impl.ChangeFeed;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the {@link ChangeFeed} to log files that downstream consumers can
+ * tail. Each file holds a fixed number of events, one per line, see
+ * {@link ChangeEvent#toLine()}; the file name is the offset of its first
+ * event, so that a consumer can find where to resume from. Runs on its own
+ * thread and flushes after every batch.
+ *
+ * <p>Posting never waits for the writer. If the writer falls behind the
+ * events the feed retains, it skips to the oldest retained event and starts
+ * a new file there, so the missing events show as a gap between the offset
+ * a file ends at and the name of the next file. Offsets continue across
+ * restarts: the feed is created at the offset {@link #recover} finds after
+ * the events already in the log, and the writer starts a new file there.
+ */
+final class ChangeLogWriter {
+    private final static Logger logger = LoggerFactory.getLogger(ChangeLogWriter.class);
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    private final ChangeFeed feed;
+    private final Path directory;
+    private final int eventsPerFile;
+    private final int batchSize;
+
+    /**
+     * Creates new writer.
+     *
+     * @param feed feed to write
+     * @param directory directory to write the log files to
+     * @param eventsPerFile number of events per log file
+     * @param batchSize max number of events to write per flush
+     */
+    ChangeLogWriter(ChangeFeed feed, Path directory, int eventsPerFile, int batchSize) {
+        this.feed = feed;
+        this.directory = directory;
+        this.eventsPerFile = eventsPerFile;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Starts writing the feed from its current offset on a background
+     * thread.
+     */
+    void start() {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to create change log directory", ex);
+        }
+        ChangeFeed.Subscription subscription = feed.subscribe(feed.nextOffset());
+        Thread thread = new Thread(() -> write(subscription), "change-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Finds the offset that follows the events already written to the log
+     * files in the directory. A partial line left at the end of the last
+     * file by a crash is truncated.
+     *
+     * @param directory directory the log files are written to
+     * @return offset of the next event, 0 if there are no log files
+     */
+    static long recover(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        Path last = null;
+        long first = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "changes-*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long offset = Long.parseLong(name.substring(
+                        "changes-".length(),
+                        name.length() - ".log".length()));
+                if (offset > first) {
+                    first = offset;
+                    last = file;
+                }
+            }
+            if (last == null) {
+                return 0;
+            }
+            try (FileChannel channel = FileChannel.open(last, READ, WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+                long lines = 0;
+                long end = 0;
+                long position = 0;
+                while (channel.read(buffer) > 0) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        position++;
+                        if (buffer.get() == '\n') {
+                            lines++;
+                            end = position;
+                        }
+                    }
+                    buffer.clear();
+                }
+                channel.truncate(end);
+                return first + lines;
+            }
+        } catch (IOException | NumberFormatException ex) {
+            throw new IllegalStateException("Failed to recover change log: " + directory, ex);
+        }
+    }
+
+    /**
+     * Returns name of the log file starting at the given offset.
+     *
+     * @param offset offset of the first event in the file
+     * @return log file name
+     */
+    static String fileName(long offset) {
+        return String.format("changes-%020d.log", offset);
+    }
+
+    private void write(ChangeFeed.Subscription subscription) {
+        BufferedWriter out = null;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<ChangeEvent> batch;
+                try {
+                    batch = subscription.poll(batchSize, POLL_TIMEOUT);
+                } catch (IllegalStateException ex) {
+                    long missing = subscription.offset();
+                    subscription = feed.subscribe(feed.oldestOffset());
+                    logger.error(
+                            "Change log writer fell behind, events {} to {} are missing"
+                                    + " from the change log",
+                            missing,
+                            subscription.offset() - 1);
+                    if (out != null) {
+                        out.close();
+                        out = null;
+                    }
+                    continue;
+                }
+                for (ChangeEvent event : batch) {
+                    if (out == null || event.getOffset() % eventsPerFile == 0) {
+                        if (out != null) {
+                            out.close();
+                        }
+                        out = Files.newBufferedWriter(
+                                directory.resolve(fileName(event.getOffset())),
+                                UTF_8,
+                                CREATE,
+                                APPEND);
+                    }
+                    out.write(event.toLine());
+                    out.newLine();
+                }
+                if (out != null && !batch.isEmpty()) {
+                    out.flush();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException ex) {
+            logger.error(
+                    "Change log writer failed at offset {}, the change log is incomplete"
+                            + " from there on",
+                    subscription.offset(),
+                    ex);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ex) {
+                    logger.warn("Failed to close change log file", ex);
+                }
+            }
+        }
+    }
+}
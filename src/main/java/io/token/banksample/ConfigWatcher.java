@@ -0,0 +1,138 @@
+package io.token.banksample;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.typesafe.config.ConfigFactory;
+import io.token.banksample.config.ConfigParser;
+import io.token.banksample.model.impl.AccountLinkingImpl;
+import io.token.banksample.model.impl.AccountingImpl;
+import io.token.banksample.model.impl.AccountsDiff;
+import io.token.banksample.model.impl.AccountsImpl;
+import io.token.banksample.model.impl.VelocityLimits;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches the config directory and reloads accounts, access tokens and
+ * velocity limits when the config changes, without restarting the server. The new account index
+ * and authorizations are swapped in atomically; balances of the accounts
+ * that are already open are never touched.
+ */
+final class ConfigWatcher {
+    private final static Logger logger = LoggerFactory.getLogger(ConfigWatcher.class);
+    private static final long DEBOUNCE_MS = 500;
+
+    private final Path configFile;
+    private final AccountsImpl accounts;
+    private final AccountingImpl accounting;
+    private final AccountLinkingImpl accountLinking;
+
+    /**
+     * Creates new watcher.
+     *
+     * @param configFile path to the config file
+     * @param accounts account index to reload
+     * @param accounting accounting to open / close accounts in
+     * @param accountLinking account linking to reload access tokens in
+     */
+    ConfigWatcher(
+            Path configFile,
+            AccountsImpl accounts,
+            AccountingImpl accounting,
+            AccountLinkingImpl accountLinking) {
+        this.configFile = configFile.toAbsolutePath();
+        this.accounts = accounts;
+        this.accounting = accounting;
+        this.accountLinking = accountLinking;
+    }
+
+    /**
+     * Starts watching the config directory on a background thread.
+     */
+    void start() {
+        WatchService watchService;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            configFile.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to watch config directory", ex);
+        }
+
+        Thread thread = new Thread(() -> watch(watchService), "config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Reloads accounts, access tokens and velocity limits from the config.
+     */
+    synchronized void reload() {
+        ConfigParser config = new ConfigParser(ConfigFactory.parseFile(configFile.toFile()));
+        AccountBook book = AccountBook.load(config, configFile);
+
+        AccountsDiff diff = accounts.diff(
+                book.holdAccounts(),
+                book.fxAccounts(),
+                book.customerAccounts());
+        // Open the new accounts before they become visible in the index and
+        // close the removed ones only after they are no longer visible.
+        accounting.addAccounts(diff.getAdded());
+        accounts.apply(diff);
+        accounting.removeAccounts(diff.getRemoved());
+        accounting.updateVelocityLimits(new VelocityLimits(
+                config.accountVelocityLimit(),
+                config.accountVelocityLimits(),
+                config.memberVelocityLimit(),
+                config.memberVelocityLimits(),
+                book.accessTokenAuthorizations().values()));
+
+        int tokens = accountLinking.updateAuthorizations(book.accessTokenAuthorizations());
+        logger.info("Reloaded config, accounts {}, access tokens changed: {}", diff, tokens);
+    }
+
+    private void watch(WatchService watchService) {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                WatchKey key = watchService.take();
+                boolean changed = pollEvents(key);
+                // Editors often write a file in several steps, wait for the
+                // directory to settle before reloading.
+                while ((key = watchService.poll(DEBOUNCE_MS, MILLISECONDS)) != null) {
+                    changed |= pollEvents(key);
+                }
+                if (changed) {
+                    reload();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException ex) {
+                logger.error("Config reload failed, keeping the current config", ex);
+            }
+        }
+    }
+
+    private static boolean pollEvents(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            Object context = event.context();
+            // Ignore editor swap and backup files.
+            if (context instanceof Path && !context.toString().startsWith(".")
+                    && !context.toString().endsWith("~")) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+}
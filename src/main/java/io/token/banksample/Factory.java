@@ -1,13 +1,24 @@
 package io.token.banksample;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.typesafe.config.ConfigFactory;
 import io.token.banksample.config.ConfigParser;
 import io.token.banksample.model.AccountLinking;
 import io.token.banksample.model.Accounting;
 import io.token.banksample.model.Accounts;
+import io.token.banksample.model.FxRates;
 import io.token.banksample.model.impl.AccountLinkingImpl;
 import io.token.banksample.model.impl.AccountingImpl;
 import io.token.banksample.model.impl.AccountsImpl;
+import io.token.banksample.model.impl.ChangeFeed;
+import io.token.banksample.model.impl.CryptoExecutor;
+import io.token.banksample.model.impl.FxRatesImpl;
+import io.token.banksample.model.impl.LedgerLayout;
+import io.token.banksample.model.impl.ReconciliationReport;
+import io.token.banksample.model.impl.StubFxRateProvider;
+import io.token.banksample.model.impl.TransferIdGenerator;
+import io.token.banksample.model.impl.TransferScheduler;
+import io.token.banksample.model.impl.VelocityLimits;
 import io.token.banksample.services.AccountLinkingServiceImpl;
 import io.token.banksample.services.AccountServiceImpl;
 import io.token.banksample.services.StorageServiceImpl;
@@ -20,14 +31,26 @@ import io.token.sdk.api.service.StorageService;
 import io.token.sdk.api.service.TransferService;
 
 import java.io.File;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A factory class that is used to instantiate various services that are
  * exposed by the gRPC server.
  */
 final class Factory {
+    private final static Logger logger = LoggerFactory.getLogger(Factory.class);
+
     private final Accounting accounting;
     private final AccountLinking accountLinking;
+    private final FxRates fxRates;
 
     /**
      * Creates new factory instance.
@@ -37,10 +60,12 @@ final class Factory {
     Factory(String configFilePath) {
         File configFile = new File(configFilePath);
         ConfigParser config = new ConfigParser(ConfigFactory.parseFile(configFile));
-        Accounts accounts = new AccountsImpl(
-                config.holdAccounts(),
-                config.fxAccounts(),
-                config.customerAccounts());
+        long startedAt = System.nanoTime();
+        AccountBook book = AccountBook.load(config, configFile.toPath());
+        AccountsImpl accounts = new AccountsImpl(
+                book.holdAccounts(),
+                book.fxAccounts(),
+                book.customerAccounts());
 
         BankAccountAuthorizer authorizer = BankAccountAuthorizer.builder(config.bankId())
                 .withSecretKeystore(config.secretKeyStore())
@@ -50,10 +75,185 @@ final class Factory {
                         config.encryptionMethod()))
                 // expiration is set to 1 day by default
                 .build();
-        this.accounting = new AccountingImpl(accounts);
-        this.accountLinking = new AccountLinkingImpl(
+        ChangeFeed changes = config.changesEnabled()
+                ? new ChangeFeed(
+                        config.changesRetained(),
+                        config.changesLogDirectory().map(ChangeLogWriter::recover).orElse(0L))
+                : null;
+        AccountingImpl.Builder accountingBuilder = AccountingImpl.builder(accounts)
+                .changeFeed(changes)
+                .ledgerLayout(LedgerLayout.valueOf(config.ledgerLayout().toUpperCase()))
+                .transferIds(new TransferIdGenerator(config.nodeId()))
+                .fxNetting(!config.fxNettingWindow().isZero());
+        config.historyDirectory().ifPresent(directory -> accountingBuilder.history(
+                directory,
+                config.historyHotTransactions(),
+                config.historyMaxResidentBytes()));
+        VelocityLimits velocityLimits = new VelocityLimits(
+                config.accountVelocityLimit(),
+                config.accountVelocityLimits(),
+                config.memberVelocityLimit(),
+                config.memberVelocityLimits(),
+                book.accessTokenAuthorizations().values());
+        if (!velocityLimits.isUnlimited()) {
+            accountingBuilder.velocityLimits(velocityLimits);
+        }
+        AccountingImpl accounting = accountingBuilder.build();
+        if (changes != null) {
+            startChangeFeed(config, changes);
+        }
+        long transactions = book.synthetic()
+                .map(generator -> generator.populate(accounting))
+                .orElse(0L);
+        reportStartup(accounts, transactions, startedAt);
+        // Debits that fell due while the bank was down are executed on the
+        // first tick, once the book is populated.
+        config.schedulesDirectory().ifPresent(directory -> new TransferScheduler(
+                accounting,
+                directory,
+                config.schedulesTick(),
+                config.schedulesThreads())
+                .start());
+        // Create one authorization on every crypto thread before serving
+        // requests, so that key material and cipher state are initialized.
+        Runnable warmUp = () -> book.accessTokenAuthorizations()
+                .values()
+                .stream()
+                .findFirst()
+                .ifPresent(a -> authorizer.createAuthorization(a.memberId(), a.accounts()));
+        Duration refreshAfter = config.authorizationCacheRefreshAfter();
+        AccountLinkingImpl accountLinking = new AccountLinkingImpl(
                 authorizer,
-                config.accessTokenAuthorizations());
+                book.accessTokenAuthorizations(),
+                config.authorizationCacheExpireAfter()
+                        .orElse(AccountLinkingImpl.DEFAULT_EXPIRE_AFTER),
+                refreshAfter,
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setNameFormat("authorization-refresh-%d")
+                        .setDaemon(true)
+                        .build()),
+                new CryptoExecutor(
+                        config.cryptoThreads(),
+                        config.cryptoQueueSize(),
+                        config.cryptoDeadline(),
+                        warmUp));
+        if (!refreshAfter.isZero()) {
+            accountLinking.warmUp();
+        }
+
+        Duration reconciliationInterval = config.reconciliationInterval();
+        if (!reconciliationInterval.isZero()) {
+            scheduleReconciliation(accounting, reconciliationInterval);
+        }
+        if (!config.fxNettingWindow().isZero()) {
+            scheduleFxNetting(accounting, config.fxNettingWindow());
+        }
+        if (config.reloadEnabled()) {
+            new ConfigWatcher(configFile.toPath(), accounts, accounting, accountLinking).start();
+        }
+        this.accounting = accounting;
+        this.accountLinking = accountLinking;
+        this.fxRates = createFxRates(config);
+    }
+
+    /**
+     * Starts writing the change feed to log files and serving it over a
+     * socket, if configured.
+     */
+    private static void startChangeFeed(ConfigParser config, ChangeFeed changes) {
+        config.changesLogDirectory().ifPresent(directory -> new ChangeLogWriter(
+                changes,
+                directory,
+                config.changesEventsPerFile(),
+                config.changesBatchSize()).start());
+        config.changesPort().ifPresent(port -> new ChangeFeedServer(
+                changes,
+                port,
+                config.changesBatchSize()).start());
+    }
+
+    /**
+     * Closes the FX netting window periodically, posting the net FX
+     * positions.
+     */
+    private static void scheduleFxNetting(AccountingImpl accounting, Duration window) {
+        Executors
+                .newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setNameFormat("fx-netting-%d")
+                        .setDaemon(true)
+                        .build())
+                .scheduleAtFixedRate(() -> {
+                    try {
+                        int posted = accounting.flushFxNetting();
+                        logger.debug("Posted {} net FX transfers", posted);
+                    } catch (RuntimeException e) {
+                        logger.error("Failed to post net FX transfers", e);
+                    }
+                }, window.toMillis(), window.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates the FX quote cache over the stubbed feed and fetches the quotes
+     * up front. Without FX config, cross-currency transfers are rejected.
+     */
+    private static FxRates createFxRates(ConfigParser config) {
+        Map<String, BigDecimal> rates = config.fxRates();
+        if (rates.isEmpty()) {
+            return (base, quote) -> Optional.empty();
+        }
+        FxRatesImpl fxRates = new FxRatesImpl(
+                new StubFxRateProvider(rates),
+                config.fxQuoteTtl(),
+                config.fxQuoteTtlByPair(),
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setNameFormat("fx-refresh-%d")
+                        .setDaemon(true)
+                        .build()));
+        fxRates.prewarm(rates.keySet());
+        return fxRates;
+    }
+
+    /**
+     * Logs the time and heap it took to load the account book, so that the
+     * startup cost can be tracked at different scales.
+     */
+    private static void reportStartup(Accounts accounts, long transactions, long startedAt) {
+        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+        Runtime runtime = Runtime.getRuntime();
+        long usedMb = (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+        logger.info(
+                "Loaded {} accounts and {} transactions in {} ms, heap used: {} MB",
+                accounts.getAllAccounts().size(),
+                transactions,
+                elapsedMs,
+                usedMb);
+    }
+
+    /**
+     * Periodically verifies the whole ledger in the background. The check is
+     * cheap to keep running since postings are not blocked while the ledger
+     * is scanned.
+     */
+    private static void scheduleReconciliation(AccountingImpl accounting, Duration interval) {
+        Executors
+                .newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setNameFormat("reconciliation-%d")
+                        .setDaemon(true)
+                        .build())
+                .scheduleWithFixedDelay(() -> {
+                    try {
+                        long startedAt = System.nanoTime();
+                        ReconciliationReport report = accounting.reconcile();
+                        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+                        if (report.isReconciled()) {
+                            logger.info("Ledger reconciled in {} ms: {}", elapsedMs, report);
+                        } else {
+                            logger.error("Ledger reconciliation failed: {}", report);
+                        }
+                    } catch (RuntimeException e) {
+                        logger.error("Ledger reconciliation failed", e);
+                    }
+                }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -89,6 +289,6 @@ final class Factory {
      * @return new transfer service instance
      */
     TransferService transferService() {
-        return new TransferServiceImpl(accounting);
+        return new TransferServiceImpl(accounting, fxRates);
     }
 }
@@ -0,0 +1,82 @@
+package io.token.banksample.config;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.token.banksample.model.AccessTokenAuthorization;
+import io.token.sdk.NamedAccount;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming loader for large access token lists. Access tokens are stored
+ * one per line in a CSV file, linked account numbers are separated by
+ * {@code ;}:
+ *
+ * <pre>
+ * access-token,member-id,accounts
+ * R0RUAX0C1T,tokenMember1,0000001;0000003
+ * </pre>
+ *
+ * <p>A header line starting with {@code access-token} and lines starting
+ * with {@code #} are skipped.
+ */
+public final class AccessTokenFile {
+    private AccessTokenFile() {}
+
+    /**
+     * Loads access token authorizations from the given file.
+     *
+     * @param path file path
+     * @param customerAccounts customer accounts to resolve linked accounts
+     *      against
+     * @return map of access token string to access token authorization object
+     */
+    public static Map<String, AccessTokenAuthorization> load(
+            Path path,
+            Collection<AccountConfig> customerAccounts) {
+        AccountNumberIndex index = new AccountNumberIndex(customerAccounts);
+        Map<String, AccessTokenAuthorization> authorizations = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, UTF_8)) {
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || line.startsWith("access-token,")) {
+                    continue;
+                }
+
+                String[] columns = line.split(",", -1);
+                if (columns.length != 3) {
+                    throw new IllegalArgumentException(
+                            "Invalid access token at line " + lineNumber
+                                    + ": expected 3 columns");
+                }
+
+                List<NamedAccount> namedAccounts = new ArrayList<>();
+                for (String number : columns[2].split(";")) {
+                    if (!number.trim().isEmpty()) {
+                        namedAccounts.add(index.resolve(number.trim()));
+                    }
+                }
+                AccessTokenAuthorization authorization = AccessTokenAuthorization.create(
+                        columns[0].trim(),
+                        columns[1].trim(),
+                        namedAccounts);
+                authorizations.put(authorization.accessToken(), authorization);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read access tokens file: " + path, ex);
+        }
+        return authorizations;
+    }
+}
@@ -0,0 +1,242 @@
+package io.token.banksample.config;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.token.proto.common.address.AddressProtos.Address;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Streaming loader for large account books. Accounts are stored one per line
+ * in a CSV file:
+ *
+ * <pre>
+ * category,name,bic,number,currency,balance,house,street,city,post_code,country
+ * customers,John Doe,RUBYUSCA000,0000001,USD,1000000,703,Market,San Francisco,94103,US
+ * </pre>
+ *
+ * <p>Category is one of {@code hold}, {@code fx} or {@code customers}. Balance
+ * and the address columns are optional. A header line starting with
+ * {@code category} and lines starting with {@code #} are skipped.
+ *
+ * <p>The file is read sequentially in chunks and the chunks are parsed in
+ * parallel, so that only a bounded number of raw lines is held in memory at
+ * any point in time.
+ */
+public final class AccountFile {
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final int MAX_CHUNKS_IN_FLIGHT =
+            2 * Runtime.getRuntime().availableProcessors();
+
+    private final List<AccountConfig> holdAccounts = new ArrayList<>();
+    private final List<AccountConfig> fxAccounts = new ArrayList<>();
+    private final List<AccountConfig> customerAccounts = new ArrayList<>();
+
+    private AccountFile() {}
+
+    /**
+     * Loads accounts from the given file.
+     *
+     * @param path file path
+     * @return loaded accounts
+     */
+    public static AccountFile load(Path path) {
+        AccountFile accounts = new AccountFile();
+        Deque<CompletableFuture<List<Parsed>>> inFlight = new ArrayDeque<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, UTF_8)) {
+            long lineNumber = 0;
+            long chunkStart = 1;
+            List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                chunk.add(line);
+                lineNumber++;
+
+                if (chunk.size() == CHUNK_SIZE) {
+                    inFlight.add(parseAsync(chunkStart, chunk));
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                    chunkStart = lineNumber + 1;
+                }
+                if (inFlight.size() >= MAX_CHUNKS_IN_FLIGHT) {
+                    accounts.addAll(join(inFlight.removeFirst()));
+                }
+            }
+            if (!chunk.isEmpty()) {
+                inFlight.add(parseAsync(chunkStart, chunk));
+            }
+            while (!inFlight.isEmpty()) {
+                accounts.addAll(join(inFlight.removeFirst()));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read accounts file: " + path, ex);
+        }
+        return accounts;
+    }
+
+    /**
+     * Returns hold accounts.
+     *
+     * @return hold accounts
+     */
+    public List<AccountConfig> holdAccounts() {
+        return Collections.unmodifiableList(holdAccounts);
+    }
+
+    /**
+     * Returns FX accounts.
+     *
+     * @return FX accounts
+     */
+    public List<AccountConfig> fxAccounts() {
+        return Collections.unmodifiableList(fxAccounts);
+    }
+
+    /**
+     * Returns customer accounts.
+     *
+     * @return customer accounts
+     */
+    public List<AccountConfig> customerAccounts() {
+        return Collections.unmodifiableList(customerAccounts);
+    }
+
+    private void addAll(List<Parsed> parsed) {
+        for (Parsed p : parsed) {
+            switch (p.category) {
+                case "hold":
+                    holdAccounts.add(p.account);
+                    break;
+                case "fx":
+                    fxAccounts.add(p.account);
+                    break;
+                case "customers":
+                    customerAccounts.add(p.account);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown account category: " + p.category);
+            }
+        }
+    }
+
+    private static CompletableFuture<List<Parsed>> parseAsync(
+            long firstLineNumber,
+            List<String> chunk) {
+        return CompletableFuture.supplyAsync(() -> parse(firstLineNumber, chunk));
+    }
+
+    private static List<Parsed> parse(long firstLineNumber, List<String> chunk) {
+        List<Parsed> result = new ArrayList<>(chunk.size());
+        long lineNumber = firstLineNumber - 1;
+        for (String raw : chunk) {
+            String line = raw.trim();
+            lineNumber++;
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("category,")) {
+                continue;
+            }
+            try {
+                result.add(parseLine(line));
+            } catch (RuntimeException ex) {
+                throw new IllegalArgumentException(
+                        "Invalid account at line " + lineNumber + ": " + ex.getMessage(),
+                        ex);
+            }
+        }
+        return result;
+    }
+
+    private static Parsed parseLine(String line) {
+        List<String> columns = split(line);
+        if (columns.size() < 5) {
+            throw new IllegalArgumentException("expected at least 5 columns");
+        }
+
+        Address address = Address.getDefaultInstance();
+        if (columns.size() >= 11) {
+            address = Address.newBuilder()
+                    .setHouseNumber(columns.get(6))
+                    .setStreet(columns.get(7))
+                    .setCity(columns.get(8))
+                    .setPostCode(columns.get(9))
+                    .setCountry(columns.get(10))
+                    .build();
+        }
+
+        double balance = columns.size() > 5 && !columns.get(5).isEmpty()
+                ? Double.parseDouble(columns.get(5))
+                : 0;
+
+        return new Parsed(
+                columns.get(0),
+                AccountConfig.create(
+                        columns.get(1),
+                        address,
+                        columns.get(2),
+                        columns.get(3),
+                        columns.get(4),
+                        balance));
+    }
+
+    /**
+     * Splits a CSV line. Supports double-quoted columns with {@code ""} used
+     * to escape a quote.
+     */
+    private static List<String> split(String line) {
+        List<String> columns = new ArrayList<>(11);
+        StringBuilder column = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    column.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    column.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                columns.add(column.toString().trim());
+                column.setLength(0);
+            } else {
+                column.append(c);
+            }
+        }
+        columns.add(column.toString().trim());
+        return columns;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private static final class Parsed {
+        private final String category;
+        private final AccountConfig account;
+
+        private Parsed(String category, AccountConfig account) {
+            this.category = category;
+            this.account = account;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package io.token.banksample.config;
+
+import io.token.proto.common.account.AccountProtos.AccountFeatures;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+import io.token.sdk.NamedAccount;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Resolves customer accounts linked to access tokens by account number.
+ * The index is built once, so that resolving a linked account is a hash
+ * lookup rather than a scan of all the customer accounts.
+ */
+final class AccountNumberIndex {
+    private final Map<String, Optional<AccountConfig>> accountsByNumber;
+
+    /**
+     * Creates new index.
+     *
+     * @param customerAccounts customer accounts to index
+     */
+    AccountNumberIndex(Collection<AccountConfig> customerAccounts) {
+        this.accountsByNumber = new HashMap<>(customerAccounts.size() * 4 / 3 + 1);
+        for (AccountConfig account : customerAccounts) {
+            // Numbers that match multiple accounts are ambiguous, remember
+            // them as such so that they can be rejected on lookup.
+            accountsByNumber.merge(
+                    account.getNumber(),
+                    Optional.of(account),
+                    (a, b) -> Optional.empty());
+        }
+    }
+
+    /**
+     * Resolves account number to the named account that is linked to an
+     * access token.
+     *
+     * @param number account number
+     * @return named account
+     */
+    NamedAccount resolve(String number) {
+        return toNamedAccount(accountsByNumber
+                .getOrDefault(number, Optional.empty())
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Zero or multiple accounts match "
+                                + "the account number "
+                                + number)));
+    }
+
+    private static NamedAccount toNamedAccount(AccountConfig accountConfig) {
+        return new NamedAccount(
+                BankAccount.newBuilder()
+                        .setSwift(
+                                BankAccount.Swift.newBuilder()
+                                        .setAccount(accountConfig.getNumber())
+                                        .setBic(accountConfig.getBic()))
+                        .setAccountFeatures(AccountFeatures.newBuilder()
+                                .setSupportsPayment(true)
+                                .setSupportsReceivePayment(true)
+                                .setSupportsSendPayment(true)
+                                .setSupportsInformation(true))
+                        .build(),
+                accountConfig.getName());
+    }
+}
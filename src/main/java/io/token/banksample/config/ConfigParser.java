@@ -1,21 +1,26 @@
 package io.token.banksample.config;
 
+import static java.util.Collections.emptyMap;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 
 import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigUtil;
 import io.token.banksample.model.AccessTokenAuthorization;
-import io.token.proto.common.account.AccountProtos.AccountFeatures;
-import io.token.proto.common.account.AccountProtos.BankAccount;
 import io.token.proto.common.address.AddressProtos.Address;
-import io.token.sdk.NamedAccount;
 import io.token.security.SecretKeyStore;
 import io.token.security.TrustedKeyStore;
 import io.token.security.keystore.KeyStoreFactory;
 
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
 /**
  * Parses configuration file and extracts different pieces of configuration.
@@ -59,6 +64,293 @@ public final class ConfigParser {
         return accountsFor("fx");
     }
 
+    /**
+     * Extracts synthetic account book generator, if enabled. When present, the
+     * generated accounts are used instead of the ones listed in the config.
+     *
+     * @return synthetic accounts generator, if enabled
+     */
+    public Optional<SyntheticAccounts> syntheticAccounts() {
+        String path = "accounts.synthetic";
+        if (!config.hasPath(path) || !config.getBoolean(path + ".enabled")) {
+            return Optional.empty();
+        }
+        return Optional.of(SyntheticAccounts.fromConfig(config.getConfig(path)));
+    }
+
+    /**
+     * Extracts the path of the streaming accounts file, if configured. When
+     * present, the accounts are loaded from the file with {@link AccountFile}
+     * instead of the ones listed in the config.
+     *
+     * @return accounts file path, relative to the config directory
+     */
+    public Optional<String> accountsFile() {
+        return config.hasPath("accounts.file")
+                ? Optional.of(config.getString("accounts.file"))
+                : Optional.empty();
+    }
+
+    /**
+     * Checks whether accounts and access tokens should be reloaded when the
+     * config changes.
+     *
+     * @return true if hot reload is enabled
+     */
+    public boolean reloadEnabled() {
+        return config.hasPath("reload.enabled") && config.getBoolean("reload.enabled");
+    }
+
+    /**
+     * Extracts the interval between full ledger reconciliations from config.
+     *
+     * @return reconciliation interval, zero if disabled
+     */
+    public Duration reconciliationInterval() {
+        String path = "reconciliation.interval";
+        return config.hasPath(path) ? config.getDuration(path) : Duration.ZERO;
+    }
+
+    /**
+     * Extracts in-memory ledger layout from config.
+     *
+     * @return ledger layout name, "object" or "columnar"
+     */
+    public String ledgerLayout() {
+        return config.hasPath("ledger.layout") ? config.getString("ledger.layout") : "object";
+    }
+
+    /**
+     * Extracts node id from config. Nodes that share the ledger must have
+     * different ids, they are part of the generated transfer ids.
+     *
+     * @return node id
+     */
+    public int nodeId() {
+        return config.hasPath("ledger.node-id") ? config.getInt("ledger.node-id") : 0;
+    }
+
+    /**
+     * Extracts values of the currencies for the stubbed FX feed from config.
+     *
+     * @return value of one unit of each currency in a common reference
+     *      currency, empty if FX is not configured
+     */
+    public Map<String, BigDecimal> fxRates() {
+        if (!config.hasPath("fx.rates")) {
+            return emptyMap();
+        }
+        Config rates = config.getConfig("fx.rates");
+        return rates.root().keySet().stream()
+                .collect(toMap(c -> c, c -> new BigDecimal(rates.getString(c))));
+    }
+
+    /**
+     * Extracts how long FX quotes are valid for from config.
+     *
+     * @return FX quote time to live
+     */
+    public Duration fxQuoteTtl() {
+        return config.hasPath("fx.ttl") ? config.getDuration("fx.ttl") : Duration.ofSeconds(30);
+    }
+
+    /**
+     * Extracts per currency pair overrides of the FX quote time to live from
+     * config.
+     *
+     * @return FX quote time to live keyed by the pair, e.g. EURUSD
+     */
+    public Map<String, Duration> fxQuoteTtlByPair() {
+        if (!config.hasPath("fx.ttl-by-pair")) {
+            return emptyMap();
+        }
+        Config ttls = config.getConfig("fx.ttl-by-pair");
+        return ttls.root().keySet().stream()
+                .collect(toMap(p -> p, ttls::getDuration));
+    }
+
+    /**
+     * Extracts FX netting window from config.
+     *
+     * @return FX netting window, zero if FX legs are posted individually
+     */
+    public Duration fxNettingWindow() {
+        String path = "fx.netting.window";
+        return config.hasPath(path) ? config.getDuration(path) : Duration.ZERO;
+    }
+
+    /**
+     * Extracts directory to archive the older transactions in from config.
+     * History tiering is disabled if not set.
+     *
+     * @return history directory
+     */
+    public Optional<Path> historyDirectory() {
+        return config.hasPath("history.directory")
+                ? Optional.of(Paths.get(config.getString("history.directory")))
+                : Optional.empty();
+    }
+
+    /**
+     * Extracts number of most recent transactions to keep in memory per
+     * account from config.
+     *
+     * @return number of transactions
+     */
+    public int historyHotTransactions() {
+        String path = "history.hot-transactions";
+        return config.hasPath(path) ? config.getInt(path) : 1000;
+    }
+
+    /**
+     * Extracts bound on the size of the transaction history kept in memory
+     * from config.
+     *
+     * @return size in bytes
+     */
+    public long historyMaxResidentBytes() {
+        String path = "history.max-resident-bytes";
+        return config.hasPath(path) ? config.getBytes(path) : 256L * 1024 * 1024;
+    }
+
+    /**
+     * Checks whether ledger postings and transaction status changes are
+     * published on the change feed.
+     *
+     * @return true if the change feed is enabled
+     */
+    public boolean changesEnabled() {
+        return config.hasPath("changes.enabled") && config.getBoolean("changes.enabled");
+    }
+
+    /**
+     * Extracts number of most recent change events to keep in memory.
+     *
+     * @return number of events
+     */
+    public int changesRetained() {
+        String path = "changes.retained";
+        return config.hasPath(path) ? config.getInt(path) : 1_000_000;
+    }
+
+    /**
+     * Extracts max number of change events delivered to a consumer at once.
+     *
+     * @return batch size
+     */
+    public int changesBatchSize() {
+        String path = "changes.batch-size";
+        return config.hasPath(path) ? config.getInt(path) : 1000;
+    }
+
+    /**
+     * Extracts directory to write the change log files to. The change feed
+     * is not written to files if not set.
+     *
+     * @return change log directory
+     */
+    public Optional<Path> changesLogDirectory() {
+        return config.hasPath("changes.log-directory")
+                ? Optional.of(Paths.get(config.getString("changes.log-directory")))
+                : Optional.empty();
+    }
+
+    /**
+     * Extracts number of change events per log file.
+     *
+     * @return number of events
+     */
+    public int changesEventsPerFile() {
+        String path = "changes.events-per-file";
+        return config.hasPath(path) ? config.getInt(path) : 1_000_000;
+    }
+
+    /**
+     * Extracts local port to serve the change feed on. The change feed is not
+     * served over a socket if not set.
+     *
+     * @return change feed port
+     */
+    public Optional<Integer> changesPort() {
+        return config.hasPath("changes.port")
+                ? Optional.of(config.getInt("changes.port"))
+                : Optional.empty();
+    }
+
+    /**
+     * Extracts directory to store the scheduled debits in from config.
+     * Scheduled transfers are disabled if not set.
+     *
+     * @return schedules directory
+     */
+    public Optional<Path> schedulesDirectory() {
+        return config.hasPath("schedules.directory")
+                ? Optional.of(Paths.get(config.getString("schedules.directory")))
+                : Optional.empty();
+    }
+
+    /**
+     * Extracts resolution of the scheduled debits timer from config.
+     *
+     * @return timer tick
+     */
+    public Duration schedulesTick() {
+        String path = "schedules.tick";
+        return config.hasPath(path) ? config.getDuration(path) : Duration.ofSeconds(1);
+    }
+
+    /**
+     * Extracts number of threads to execute the scheduled debits that fall
+     * due together on.
+     *
+     * @return number of threads
+     */
+    public int schedulesThreads() {
+        String path = "schedules.threads";
+        return config.hasPath(path) ? config.getInt(path) : 4;
+    }
+
+    /**
+     * Extracts velocity limit applied to every customer account that has no
+     * limit of its own.
+     *
+     * @return default account velocity limit
+     */
+    public VelocityLimit accountVelocityLimit() {
+        return velocityLimit("limits.account");
+    }
+
+    /**
+     * Extracts per account velocity limits. Settings missing from an account
+     * are taken from the default account limit.
+     *
+     * @return velocity limits keyed by account BIC and number, as
+     *      {@code bic/number}, or by account number
+     */
+    public Map<String, VelocityLimit> accountVelocityLimits() {
+        return velocityLimits("limits.accounts", "limits.account");
+    }
+
+    /**
+     * Extracts velocity limit applied to every member that has no limit of
+     * its own, across all the accounts linked by the member's access tokens.
+     *
+     * @return default member velocity limit
+     */
+    public VelocityLimit memberVelocityLimit() {
+        return velocityLimit("limits.member");
+    }
+
+    /**
+     * Extracts per member velocity limits. Settings missing from a member
+     * are taken from the default member limit.
+     *
+     * @return velocity limits keyed by member id
+     */
+    public Map<String, VelocityLimit> memberVelocityLimits() {
+        return velocityLimits("limits.members", "limits.member");
+    }
+
     /**
      * Extracts bank id from config
      *
@@ -108,34 +400,108 @@ public final class ConfigParser {
         return config.getString("account-linking.encryption.encryption-method");
     }
 
+    /**
+     * Extracts how long bank authorizations are cached for. Must be less than
+     * the authorization validity period (1 day).
+     *
+     * @return authorization cache expiry, if set
+     */
+    public Optional<Duration> authorizationCacheExpireAfter() {
+        String path = "account-linking.cache.expire-after";
+        return config.hasPath(path) ? Optional.of(config.getDuration(path)) : Optional.empty();
+    }
+
+    /**
+     * Extracts age after which cached bank authorizations are refreshed in the
+     * background.
+     *
+     * @return authorization cache refresh age, zero if background refresh is
+     *      disabled
+     */
+    public Duration authorizationCacheRefreshAfter() {
+        String path = "account-linking.cache.refresh-after";
+        return config.hasPath(path) ? config.getDuration(path) : Duration.ZERO;
+    }
+
+    /**
+     * Extracts number of threads that do signing and encryption for account
+     * linking.
+     *
+     * @return number of crypto threads
+     */
+    public int cryptoThreads() {
+        String path = "account-linking.crypto.threads";
+        return config.hasPath(path)
+                ? config.getInt(path)
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Extracts max number of account linking requests waiting for a crypto
+     * thread.
+     *
+     * @return crypto queue size
+     */
+    public int cryptoQueueSize() {
+        String path = "account-linking.crypto.queue-size";
+        return config.hasPath(path) ? config.getInt(path) : 1000;
+    }
+
+    /**
+     * Extracts max time an account linking request waits for the crypto,
+     * including time spent in the queue.
+     *
+     * @return crypto deadline
+     */
+    public Duration cryptoDeadline() {
+        String path = "account-linking.crypto.deadline";
+        return config.hasPath(path) ? config.getDuration(path) : Duration.ofSeconds(5);
+    }
+
     /**
      * Extracts map of access token string to access token authorization object.
      *
      * @return access token authorization map
      */
     public Map<String, AccessTokenAuthorization> accessTokenAuthorizations() {
+        return accessTokenAuthorizations(customerAccounts());
+    }
+
+    /**
+     * Extracts map of access token string to access token authorization object,
+     * resolving the linked accounts against the given customer accounts.
+     *
+     * @param customerAccounts customer accounts to resolve linked accounts against
+     * @return access token authorization map
+     */
+    public Map<String, AccessTokenAuthorization> accessTokenAuthorizations(
+            Collection<AccountConfig> customerAccounts) {
+        AccountNumberIndex index = new AccountNumberIndex(customerAccounts);
         return config.getConfigList("access-tokens")
                 .stream()
-                .map(c -> {
-                    List<NamedAccount> namedAccounts = c.getStringList("accounts")
-                            .stream()
-                            .map(number -> toNamedAccount(customerAccounts()
-                                    .stream()
-                                    .filter(acc -> acc.getNumber().equals(number))
-                                    .collect(Collectors.reducing((a, b) -> null))
-                                    .orElseThrow(() -> new IllegalArgumentException(
-                                            "Zero or multiple accounts match "
-                                                    + "the account number "
-                                                    + number))))
-                            .collect(toList());
-                    return AccessTokenAuthorization.create(
-                            c.getString("access-token"),
-                            c.getString("member-id"),
-                            namedAccounts);
-                })
+                .map(c -> AccessTokenAuthorization.create(
+                        c.getString("access-token"),
+                        c.getString("member-id"),
+                        c.getStringList("accounts")
+                                .stream()
+                                .map(index::resolve)
+                                .collect(toList())))
                 .collect(toMap(auth -> auth.accessToken(), auth -> auth));
     }
 
+    /**
+     * Extracts the path of the streaming access tokens file, if configured.
+     * When present, the access tokens are loaded from the file with
+     * {@link AccessTokenFile} instead of the ones listed in the config.
+     *
+     * @return access tokens file path, relative to the config directory
+     */
+    public Optional<String> accessTokensFile() {
+        return config.hasPath("access-tokens-file")
+                ? Optional.of(config.getString("access-tokens-file"))
+                : Optional.empty();
+    }
+
     private List<AccountConfig> accountsFor(String category) {
         return config.getConfigList("accounts." + category)
                 .stream()
@@ -167,19 +533,29 @@ public final class ConfigParser {
                 .collect(toList());
     }
 
-    private NamedAccount toNamedAccount(AccountConfig accountConfig) {
-        return new NamedAccount(
-                BankAccount.newBuilder()
-                        .setSwift(
-                                BankAccount.Swift.newBuilder()
-                                        .setAccount(accountConfig.getNumber())
-                                        .setBic(accountConfig.getBic()))
-                        .setAccountFeatures(AccountFeatures.newBuilder()
-                                .setSupportsPayment(true)
-                                .setSupportsReceivePayment(true)
-                                .setSupportsSendPayment(true)
-                                .setSupportsInformation(true))
-                        .build(),
-                accountConfig.getName());
+    private VelocityLimit velocityLimit(String path) {
+        return config.hasPath(path) ? velocityLimit(config.getConfig(path)) : VelocityLimit.NONE;
+    }
+
+    private Map<String, VelocityLimit> velocityLimits(String path, String defaultPath) {
+        if (!config.hasPath(path)) {
+            return emptyMap();
+        }
+        Config limits = config.getConfig(path);
+        Config defaults = config.hasPath(defaultPath)
+                ? config.getConfig(defaultPath)
+                : ConfigFactory.empty();
+        return limits.root().keySet().stream()
+                .collect(toMap(key -> key, key -> velocityLimit(limits
+                        .getConfig(ConfigUtil.joinPath(key))
+                        .withFallback(defaults))));
+    }
+
+    private static VelocityLimit velocityLimit(Config limit) {
+        return VelocityLimit.create(
+                limit.hasPath("hourly-count") ? limit.getInt("hourly-count") : 0,
+                limit.hasPath("hourly-amount") ? limit.getDouble("hourly-amount") : 0,
+                limit.hasPath("daily-count") ? limit.getInt("daily-count") : 0,
+                limit.hasPath("daily-amount") ? limit.getDouble("daily-amount") : 0);
     }
 }
@@ -0,0 +1,201 @@
+package io.token.banksample.config;
+
+import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
+import static java.util.stream.Collectors.toList;
+
+import com.typesafe.config.Config;
+import io.token.banksample.model.AccountTransaction;
+import io.token.banksample.model.Accounting;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+import io.token.proto.common.address.AddressProtos.Address;
+
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Generates a deterministic, seeded account book. Used to reproduce
+ * production scale (millions of accounts with deep histories) without
+ * having to write the accounts out to the HOCON config. The same seed
+ * always produces the same accounts, balances and transactions.
+ */
+public final class SyntheticAccounts {
+    private static final String DEFAULT_BIC = "RUBYUSCA000";
+    private static final List<String> DEFAULT_CURRENCIES = Arrays.asList("USD", "EUR", "JPY");
+    private static final double MAX_TRANSACTION_AMOUNT = 100;
+
+    private final long seed;
+    private final int customers;
+    private final int transactionsPerAccount;
+    private final List<String> currencies;
+    private final String bic;
+
+    /**
+     * Creates new generator.
+     *
+     * @param seed random seed, same seed produces the same account book
+     * @param customers number of customer accounts to generate
+     * @param transactionsPerAccount number of transactions to pre-populate
+     *      each customer account with
+     * @param currencies currencies to generate the accounts in
+     * @param bic BIC to assign to the generated accounts
+     */
+    public SyntheticAccounts(
+            long seed,
+            int customers,
+            int transactionsPerAccount,
+            List<String> currencies,
+            String bic) {
+        this.seed = seed;
+        this.customers = customers;
+        this.transactionsPerAccount = transactionsPerAccount;
+        this.currencies = currencies;
+        this.bic = bic;
+    }
+
+    /**
+     * Creates new generator from the {@code accounts.synthetic} config
+     * section.
+     *
+     * @param config synthetic accounts config section
+     * @return generator
+     */
+    static SyntheticAccounts fromConfig(Config config) {
+        return new SyntheticAccounts(
+                config.hasPath("seed") ? config.getLong("seed") : 0,
+                config.getInt("customers"),
+                config.hasPath("transactions-per-account")
+                        ? config.getInt("transactions-per-account")
+                        : 0,
+                config.hasPath("currencies")
+                        ? config.getStringList("currencies")
+                        : DEFAULT_CURRENCIES,
+                config.hasPath("bic") ? config.getString("bic") : DEFAULT_BIC);
+    }
+
+    /**
+     * Generates customer accounts. Account numbers are sequential and
+     * start at {@code 0000001}, same as the sample config.
+     *
+     * @return list of generated customer accounts
+     */
+    public List<AccountConfig> customerAccounts() {
+        return IntStream.range(0, customers)
+                .parallel()
+                .mapToObj(this::customerAccount)
+                .collect(toList());
+    }
+
+    /**
+     * Generates hold accounts, one per currency.
+     *
+     * @return hold accounts
+     */
+    public List<AccountConfig> holdAccounts() {
+        return currencies.stream()
+                .map(currency -> AccountConfig.create(
+                        "Hold account - " + currency,
+                        Address.getDefaultInstance(),
+                        bic,
+                        "1000" + currency,
+                        currency,
+                        0))
+                .collect(toList());
+    }
+
+    /**
+     * Generates FX accounts, one per currency.
+     *
+     * @return FX accounts
+     */
+    public List<AccountConfig> fxAccounts() {
+        return currencies.stream()
+                .map(currency -> AccountConfig.create(
+                        "FX account - " + currency,
+                        Address.getDefaultInstance(),
+                        bic,
+                        "2000" + currency,
+                        currency,
+                        0))
+                .collect(toList());
+    }
+
+    /**
+     * Pre-populates transaction history of the generated customer accounts.
+     * Each customer account is debited {@code transactions-per-account}
+     * times in favour of another generated customer.
+     *
+     * @param accounting accounting to post the transactions to
+     * @return number of transactions posted
+     */
+    public long populate(Accounting accounting) {
+        long posted = 0;
+        for (int i = 0; i < customers; i++) {
+            SplittableRandom random = randomFor(i, 1);
+            BankAccount from = toBankAccount(i);
+            String currency = currencyFor(i);
+            // Amounts are whole minor units of the currency, e.g. no JPY cents.
+            double minorUnits = Math.pow(
+                    10,
+                    Currency.getInstance(currency).getDefaultFractionDigits());
+            for (int t = 0; t < transactionsPerAccount; t++) {
+                double amount = 1 + Math.floor(
+                        random.nextDouble() * (MAX_TRANSACTION_AMOUNT - 1) * minorUnits)
+                        / minorUnits;
+                String id = "synthetic:" + accountNumber(i) + ":" + t;
+                accounting.createDebitTransaction(AccountTransaction.builder(DEBIT)
+                        .id(id)
+                        .referenceId(id)
+                        .from(from)
+                        .to(toBankAccount(random.nextInt(customers)))
+                        .amount(amount, currency)
+                        .transferAmount(amount, currency)
+                        .description("Synthetic transaction")
+                        .build());
+                posted++;
+            }
+        }
+        return posted;
+    }
+
+    private AccountConfig customerAccount(int index) {
+        SplittableRandom random = randomFor(index, 0);
+        // Make sure the pre-populated history never runs out of funds.
+        double balance = transactionsPerAccount * MAX_TRANSACTION_AMOUNT
+                + random.nextInt(1_000_000);
+        return AccountConfig.create(
+                "Customer " + accountNumber(index),
+                Address.getDefaultInstance(),
+                bic,
+                accountNumber(index),
+                currencyFor(index),
+                balance);
+    }
+
+    private BankAccount toBankAccount(int index) {
+        return BankAccount.newBuilder()
+                .setSwift(BankAccount.Swift.newBuilder()
+                        .setBic(bic)
+                        .setAccount(accountNumber(index))
+                        .build())
+                .build();
+    }
+
+    private String currencyFor(int index) {
+        return currencies.get(index % currencies.size());
+    }
+
+    /**
+     * Derives an independent random stream for the given account, so that
+     * the accounts can be generated in parallel and still be deterministic.
+     */
+    private SplittableRandom randomFor(int index, int stream) {
+        return new SplittableRandom(seed * 31 + index * 2L + stream);
+    }
+
+    private static String accountNumber(int index) {
+        return String.format("%07d", index + 1);
+    }
+}
@@ -0,0 +1,72 @@
+package io.token.banksample.config;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * Limits on the number and the total amount of debits over the last hour
+ * and the last day. Zero means no limit.
+ */
+@AutoValue
+public abstract class VelocityLimit {
+    /**
+     * No limits.
+     */
+    public static final VelocityLimit NONE = create(0, 0, 0, 0);
+
+    /**
+     * Creates new velocity limit.
+     *
+     * @param hourlyCount max number of debits in the last hour
+     * @param hourlyAmount max total amount debited in the last hour
+     * @param dailyCount max number of debits in the last day
+     * @param dailyAmount max total amount debited in the last day
+     * @return velocity limit
+     */
+    public static VelocityLimit create(
+            int hourlyCount,
+            double hourlyAmount,
+            int dailyCount,
+            double dailyAmount) {
+        return new AutoValue_VelocityLimit(hourlyCount, hourlyAmount, dailyCount, dailyAmount);
+    }
+
+    /**
+     * Returns max number of debits in the last hour.
+     *
+     * @return hourly count limit, 0 if unlimited
+     */
+    public abstract int getHourlyCount();
+
+    /**
+     * Returns max total amount debited in the last hour.
+     *
+     * @return hourly amount limit, 0 if unlimited
+     */
+    public abstract double getHourlyAmount();
+
+    /**
+     * Returns max number of debits in the last day.
+     *
+     * @return daily count limit, 0 if unlimited
+     */
+    public abstract int getDailyCount();
+
+    /**
+     * Returns max total amount debited in the last day.
+     *
+     * @return daily amount limit, 0 if unlimited
+     */
+    public abstract double getDailyAmount();
+
+    /**
+     * Checks whether any of the limits is set.
+     *
+     * @return true if nothing is limited
+     */
+    public boolean isUnlimited() {
+        return getHourlyCount() == 0
+                && getHourlyAmount() == 0
+                && getDailyCount() == 0
+                && getDailyAmount() == 0;
+    }
+}
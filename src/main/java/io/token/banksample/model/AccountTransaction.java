@@ -161,6 +161,24 @@ public final class AccountTransaction {
         return transferCurrency;
     }
 
+    /**
+     * Returns transaction description.
+     *
+     * @return transaction description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns transaction status.
+     *
+     * @return transaction status
+     */
+    public StatusCode getStatus() {
+        return status;
+    }
+
     /**
      * Sets transaction status.
      *
@@ -4,6 +4,9 @@ import io.token.banksample.config.AccountConfig;
 import io.token.proto.common.account.AccountProtos.BankAccount;
 import io.token.sdk.api.Balance;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,6 +30,38 @@ public interface Accounting {
      */
     Optional<Balance> lookupBalance(BankAccount account);
 
+    /**
+     * Looks up account balance as of the given time, e.g. for statements.
+     * The balance is exact as of any time since the account was opened,
+     * including the times whose transactions have been moved out of memory
+     * by history tiering. Times before the account was opened resolve to
+     * its opening balance.
+     *
+     * @param account account to lookup the balance for
+     * @param asOf time to lookup the balance at
+     * @return account balance if found
+     */
+    Optional<Balance> lookupBalance(BankAccount account, Instant asOf);
+
+    /**
+     * Resolves the account to its ordinal, see {@link Accounts#lookupOrdinal}.
+     *
+     * @param account account to look up
+     * @return account ordinal, or -1 if the account is not found
+     */
+    int lookupOrdinal(BankAccount account);
+
+    /**
+     * Looks up version of the account, which changes whenever the balance or
+     * any transaction of the account changes. Used to tell whether results
+     * read earlier are still current. Versions only ever grow, including
+     * across an account being removed and added back on reload.
+     *
+     * @param ordinal ordinal of the account to lookup the version for
+     * @return account version, or -1 if the account is not found
+     */
+    long lookupVersion(int ordinal);
+
     /**
      * Creates a new transaction.
      *
@@ -34,6 +69,17 @@ public interface Accounting {
      */
     void createDebitTransaction(AccountTransaction transaction);
 
+    /**
+     * Creates new transactions debiting the same account, e.g. the legs of a
+     * transfer split across several destinations. The transactions are
+     * created atomically: the account is checked and reserved for their
+     * total, and either all of them are posted or none. The transaction ids
+     * must be distinct.
+     *
+     * @param transactions new transactions
+     */
+    void createDebitTransactions(List<AccountTransaction> transactions);
+
     /**
      * Looks up transaction given the account and transaction ID.
      *
@@ -43,6 +89,17 @@ public interface Accounting {
      */
     Optional<AccountTransaction> lookupTransaction(BankAccount account, String transactionId);
 
+    /**
+     * Looks up transactions by their reference id, i.e. the Token transfer
+     * id, in any account. A transfer split across several destinations has
+     * a transaction per leg. Transactions that have been moved out of memory
+     * by history tiering are not found.
+     *
+     * @param referenceId transaction reference id
+     * @return looked up transactions, in the order they were created
+     */
+    List<AccountTransaction> lookupTransactionsByReference(String referenceId);
+
     /**
      * Looks up transactions for the given account.
      *
@@ -52,4 +109,20 @@ public interface Accounting {
      * @return list of looked up transactions
      */
     List<AccountTransaction> lookupTransactions(BankAccount account, int offset, int limit);
+
+    /**
+     * Writes the full transaction history of the given account, newest
+     * first, in a single pass. The history is read in chunks, so memory use
+     * does not depend on its length, and covers exactly the transactions
+     * present when the export starts. Transactions created while the export
+     * is in progress are not included.
+     *
+     * @param account account to export the transactions for
+     * @param format output format
+     * @param out stream to write to, flushed after each chunk but not closed
+     * @return number of transactions written
+     * @throws IOException if the output can't be written
+     */
+    long exportTransactions(BankAccount account, ExportFormat format, OutputStream out)
+            throws IOException;
 }
@@ -29,6 +29,24 @@ public interface Accounts {
      */
     BankAccount getFxAccount(String currency);
 
+    /**
+     * Returns ordinal of the hold account for the given currency, see
+     * {@link #lookupOrdinal}.
+     *
+     * @param currency currency to lookup the account for
+     * @return account ordinal
+     */
+    int getHoldAccountOrdinal(String currency);
+
+    /**
+     * Returns ordinal of the FX account for the given currency, see
+     * {@link #lookupOrdinal}.
+     *
+     * @param currency currency to lookup the account for
+     * @return account ordinal
+     */
+    int getFxAccountOrdinal(String currency);
+
     /**
      * Returns all the configured accounts.
      *
@@ -44,6 +62,24 @@ public interface Accounts {
      */
     Optional<AccountConfig> tryLookupAccount(BankAccount account);
 
+    /**
+     * Resolves the account to its ordinal. Ordinals are dense, assigned when
+     * the account is first loaded and stable across reloads, so they can be
+     * used to index per account state instead of the account protos.
+     *
+     * @param account account to look up
+     * @return account ordinal, or -1 if the account is not found
+     */
+    int lookupOrdinal(BankAccount account);
+
+    /**
+     * Returns ordinal of a loaded account.
+     *
+     * @param account account config
+     * @return account ordinal
+     */
+    int ordinalOf(AccountConfig account);
+
     /**
      * Looks up the account.
      *
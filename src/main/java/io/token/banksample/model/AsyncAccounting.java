@@ -0,0 +1,95 @@
+package io.token.banksample.model;
+
+import io.token.banksample.config.AccountConfig;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+import io.token.sdk.api.Balance;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous variant of {@link Accounting}. Calls return as soon as the
+ * work is queued, so that request threads don't block on postings and
+ * lookups of different requests can overlap. Failures, e.g. insufficient
+ * funds, complete the returned future exceptionally.
+ */
+public interface AsyncAccounting {
+    /**
+     * Looks up account information.
+     *
+     * @param bankAccount account to lookup the info for
+     * @return account info
+     */
+    CompletableFuture<Optional<AccountConfig>> lookupAccount(BankAccount bankAccount);
+
+    /**
+     * Looks up account balance.
+     *
+     * @param account account to lookup the balance for
+     * @return account balance if found
+     */
+    CompletableFuture<Optional<Balance>> lookupBalance(BankAccount account);
+
+    /**
+     * Looks up account balance as of the given time, e.g. for statements.
+     *
+     * @param account account to lookup the balance for
+     * @param asOf time to lookup the balance at
+     * @return account balance if found
+     */
+    CompletableFuture<Optional<Balance>> lookupBalance(BankAccount account, Instant asOf);
+
+    /**
+     * Creates a new transaction. The future completes once the transaction
+     * has been applied, after all the transactions queued before it.
+     *
+     * @param transaction new transaction
+     * @return future completed once the transaction is applied
+     */
+    CompletableFuture<Void> createDebitTransaction(AccountTransaction transaction);
+
+    /**
+     * Creates new transactions debiting the same account atomically, see
+     * {@link Accounting#createDebitTransactions}. The future completes once
+     * the transactions are applied.
+     *
+     * @param transactions new transactions
+     * @return future completed once the transactions are applied
+     */
+    CompletableFuture<Void> createDebitTransactions(List<AccountTransaction> transactions);
+
+    /**
+     * Looks up transaction given the account and transaction ID.
+     *
+     * @param account account to lookup the transaction for
+     * @param transactionId transaction id
+     * @return looked up transaction if found
+     */
+    CompletableFuture<Optional<AccountTransaction>> lookupTransaction(
+            BankAccount account,
+            String transactionId);
+
+    /**
+     * Looks up transactions by their reference id in any account.
+     *
+     * @param referenceId transaction reference id
+     * @return looked up transactions, in the order they were created
+     */
+    CompletableFuture<List<AccountTransaction>> lookupTransactionsByReference(
+            String referenceId);
+
+    /**
+     * Looks up transactions for the given account.
+     *
+     * @param account account to lookup the transactions for
+     * @param offset the result offset
+     * @param limit the limit on the number of results returned
+     * @return list of looked up transactions
+     */
+    CompletableFuture<List<AccountTransaction>> lookupTransactions(
+            BankAccount account,
+            int offset,
+            int limit);
+}
@@ -0,0 +1,24 @@
+package io.token.banksample.model;
+
+import java.util.Currency;
+
+/**
+ * Currency helpers shared by the transfer path and the ledger.
+ */
+public final class Currencies {
+    private Currencies() {}
+
+    /**
+     * Returns number of minor unit digits of the currency, 2 for the ISO
+     * currencies that don't have minor units defined, e.g. XAU.
+     *
+     * @param currency ISO 4217 currency code
+     * @return currency scale
+     * @throws IllegalArgumentException if the currency is not an ISO 4217
+     *      currency
+     */
+    public static int scaleOf(String currency) {
+        int digits = Currency.getInstance(currency).getDefaultFractionDigits();
+        return digits < 0 ? 2 : digits;
+    }
+}
@@ -0,0 +1,21 @@
+package io.token.banksample.model;
+
+/**
+ * Output format of the transaction history export, see
+ * {@link Accounting#exportTransactions}.
+ */
+public enum ExportFormat {
+    /**
+     * Comma separated values with a header line, quoted as per RFC 4180.
+     */
+    CSV,
+    /**
+     * One JSON object per line.
+     */
+    JSON_LINES,
+    /**
+     * Integration API {@code Transaction} protos, each prefixed with its
+     * varint length, as written by {@code writeDelimitedTo}.
+     */
+    PROTO,
+}
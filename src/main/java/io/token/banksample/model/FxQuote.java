@@ -0,0 +1,62 @@
+package io.token.banksample.model;
+
+import com.google.auto.value.AutoValue;
+
+import java.math.BigDecimal;
+
+/**
+ * FX quote for a currency pair: one unit of the base currency buys
+ * {@link #rate()} units of the quote currency.
+ */
+@AutoValue
+public abstract class FxQuote {
+    /**
+     * Creates a new FX quote.
+     *
+     * @param baseCurrency currency being converted from
+     * @param quoteCurrency currency being converted to
+     * @param rate conversion rate
+     * @param expiresAtMs time after which the quote must not be used, epoch
+     *      milliseconds
+     * @return FX quote
+     */
+    public static FxQuote create(
+            String baseCurrency,
+            String quoteCurrency,
+            BigDecimal rate,
+            long expiresAtMs) {
+        return new AutoValue_FxQuote(
+                baseCurrency,
+                quoteCurrency,
+                rate,
+                expiresAtMs);
+    }
+
+    public abstract String baseCurrency();
+
+    public abstract String quoteCurrency();
+
+    public abstract BigDecimal rate();
+
+    public abstract long expiresAtMs();
+
+    /**
+     * Converts amount in the base currency to the quote currency.
+     *
+     * @param amount amount in the base currency
+     * @return amount in the quote currency, unrounded
+     */
+    public BigDecimal convert(BigDecimal amount) {
+        return amount.multiply(rate());
+    }
+
+    /**
+     * Checks whether the quote has expired.
+     *
+     * @param nowMs current time, epoch milliseconds
+     * @return true if expired
+     */
+    public boolean isExpired(long nowMs) {
+        return nowMs >= expiresAtMs();
+    }
+}
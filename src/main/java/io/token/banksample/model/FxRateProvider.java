@@ -0,0 +1,19 @@
+package io.token.banksample.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Source of FX rates, such as a market data feed. Calls may block, they are
+ * made off the transfer path, see {@link FxRates}.
+ */
+public interface FxRateProvider {
+    /**
+     * Fetches current rate for the currency pair.
+     *
+     * @param baseCurrency currency being converted from
+     * @param quoteCurrency currency being converted to
+     * @return units of the quote currency one unit of the base currency buys
+     * @throws IllegalArgumentException if the pair is not supported
+     */
+    BigDecimal fetchRate(String baseCurrency, String quoteCurrency);
+}
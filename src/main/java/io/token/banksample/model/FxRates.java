@@ -0,0 +1,17 @@
+package io.token.banksample.model;
+
+import java.util.Optional;
+
+/**
+ * Provides FX quotes to price cross-currency transfers. Lookups never block.
+ */
+public interface FxRates {
+    /**
+     * Looks up a quote for the currency pair.
+     *
+     * @param baseCurrency currency being converted from
+     * @param quoteCurrency currency being converted to
+     * @return live quote, empty if no quote is available for the pair
+     */
+    Optional<FxQuote> lookupQuote(String baseCurrency, String quoteCurrency);
+}
@@ -3,49 +3,225 @@ package io.token.banksample.model.impl;
 import static io.token.proto.bankapi.Bankapi.StatusCode.FAILURE_CANCELED;
 import static io.token.proto.bankapi.Bankapi.StatusCode.FAILURE_INSUFFICIENT_FUNDS;
 import static io.token.proto.bankapi.Bankapi.StatusCode.SUCCESS;
+import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.math.BigDecimal.ROUND_FLOOR;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 
 import io.token.banksample.model.AccountTransaction;
+import io.token.proto.bankapi.Bankapi.StatusCode;
+import io.token.proto.common.account.AccountProtos.BankAccount;
 import io.token.sdk.api.Balance;
 import io.token.sdk.api.TransferException;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Maintains a list of per account transactions.
+ * Maintains a list of per account transactions. With {@link HistoryTiering},
+ * only the most recent transactions are kept in memory and the older ones
+ * are looked up from the {@link TransactionArchive}.
+ *
+ * <p>Writes are serialized by the caller. The balances, the transaction
+ * count and the account version are kept in an immutable {@link State} that
+ * is replaced on every write, so reading them never blocks and is never
+ * blocked by a writer.
  */
 class Account {
-    private final List<AccountTransaction> transactions;
+    // Counts the accounts opened, the versions of each account start above
+    // the versions of the accounts opened before it.
+    private static final AtomicLong opened = new AtomicLong();
+
+    private final int ordinal;
+    private final BankAccount bankAccount;
+    // In memory transactions, oldest first.
+    private final ArrayList<AccountTransaction> transactions;
     private final Map<String, AccountTransaction> transactionsById;
     private final String currency;
-    private double balanceAvailable;
-    private double balanceCurrent;
+    private final double openingAvailable;
+    private final BalanceHistory history;
+    private final HistoryTiering tiering; // null if not tiered
+    private final ChangeFeed changes; // null if not published
+    private final ReferenceIndex references; // null if not indexed
+    private VelocityCounter[] velocity; // null if not limited
+    private ColdHistory cold; // null until the first transaction is archived
+    private long hotBytes;
+    private volatile State state;
+
+    Account(
+            int ordinal,
+            BankAccount bankAccount,
+            String currency,
+            double balanceAvailable,
+            double balanceCurrent) {
+        this(
+                ordinal,
+                bankAccount,
+                currency,
+                balanceAvailable,
+                balanceCurrent,
+                null,
+                null,
+                null,
+                null);
+    }
 
-    Account(String currency, double balanceAvailable, double balanceCurrent) {
+    /**
+     * Creates new account.
+     *
+     * @param ordinal account ordinal
+     * @param bankAccount configured account
+     * @param currency account currency
+     * @param balanceAvailable opening available balance
+     * @param balanceCurrent opening current balance
+     * @param tiering history tiering, or null to keep all the transactions in
+     *      memory
+     * @param changes feed to publish the transaction status changes on, or
+     *      null
+     * @param references index to keep the in-memory transactions in by
+     *      reference id, or null
+     * @param velocity velocity counters every debit has to pass, or null
+     */
+    Account(
+            int ordinal,
+            BankAccount bankAccount,
+            String currency,
+            double balanceAvailable,
+            double balanceCurrent,
+            HistoryTiering tiering,
+            ChangeFeed changes,
+            ReferenceIndex references,
+            VelocityCounter[] velocity) {
+        this.ordinal = ordinal;
+        this.bankAccount = bankAccount;
+        this.changes = changes;
+        this.references = references;
+        this.velocity = velocity;
         this.currency = currency;
-        this.transactions = new LinkedList<>();
+        this.tiering = tiering;
+        this.transactions = new ArrayList<>();
         this.transactionsById = new HashMap<>();
-        this.balanceAvailable = balanceAvailable;
-        this.balanceCurrent = balanceCurrent;
+        this.openingAvailable = balanceAvailable;
+        this.state = new State(
+                opened.incrementAndGet() << 32,
+                balanceAvailable,
+                balanceCurrent,
+                0);
+        this.history = new BalanceHistory(
+                System.currentTimeMillis(),
+                balanceAvailable,
+                balanceCurrent,
+                tiering == null ? null : tiering.archive());
+    }
+
+    /**
+     * Replaces the velocity counters every debit has to pass. Called under
+     * the accounting lock when the limits are reloaded.
+     *
+     * @param velocity velocity counters, or null
+     */
+    void setVelocity(VelocityCounter[] velocity) {
+        this.velocity = velocity;
     }
 
+    /**
+     * Returns the account ordinal, as posted to the ledger.
+     *
+     * @return account ordinal
+     */
+    int getOrdinal() {
+        return ordinal;
+    }
+
+    /**
+     * Returns the configured account, as posted to the ledger.
+     *
+     * @return bank account
+     */
+    BankAccount getBankAccount() {
+        return bankAccount;
+    }
+
+    /**
+     * Returns the current balance. Does not require the caller to serialize
+     * with the writers.
+     *
+     * @return current balance
+     */
     Balance getBalance() {
+        State current = state;
         return Balance.create(
                 currency,
-                BigDecimal.valueOf(balanceAvailable).setScale(2, ROUND_FLOOR),
-                BigDecimal.valueOf(balanceCurrent).setScale(2, ROUND_FLOOR),
+                BigDecimal.valueOf(current.available).setScale(2, ROUND_FLOOR),
+                BigDecimal.valueOf(current.current).setScale(2, ROUND_FLOOR),
                 Instant.now().toEpochMilli(),
                 emptyList());
     }
 
+    /**
+     * Returns the balance as of the given time, computed from the nearest
+     * balance checkpoint and the changes after it, archived or not.
+     *
+     * @param asOf time to look up the balance at
+     * @return balance as of the given time
+     */
+    Balance getBalance(Instant asOf) {
+        double[] balance = history.balanceAt(asOf.toEpochMilli());
+        return Balance.create(
+                currency,
+                BigDecimal.valueOf(balance[0]).setScale(2, ROUND_FLOOR),
+                BigDecimal.valueOf(balance[1]).setScale(2, ROUND_FLOOR),
+                asOf.toEpochMilli(),
+                emptyList());
+    }
+
+    /**
+     * Returns how much the available balance has moved since the account was
+     * opened. Used to reconcile the account against the ledger.
+     *
+     * @return available balance movement
+     */
+    BigDecimal getAvailableMovement() {
+        return BigDecimal.valueOf(state.available - openingAvailable);
+    }
+
+    /**
+     * Returns number of transactions of the account, in memory and archived.
+     * Does not require the caller to serialize with the writers.
+     *
+     * @return number of transactions
+     */
+    int getTransactionCount() {
+        return state.transactions;
+    }
+
+    /**
+     * Returns version of the account, incremented whenever its balance or
+     * any of its transactions change. Does not require the caller to
+     * serialize with the writers.
+     *
+     * @return account version
+     */
+    long getVersion() {
+        return state.version;
+    }
+
+    /**
+     * Checks whether the account has any transactions.
+     *
+     * @return true if the account has transactions
+     */
+    boolean hasTransactions() {
+        return getTransactionCount() > 0;
+    }
+
     /**
      * Adds new transaction to the account.
      *
@@ -53,20 +229,138 @@ class Account {
      * @return true if transaction has been created, false if duplicate
      */
     boolean createTransaction(AccountTransaction transaction) {
-        if (transactionsById.containsKey(transaction.getId())) {
-            return false;
+        return createTransactions(singletonList(transaction));
+    }
+
+    /**
+     * Adds new transactions to the account with a single reservation of
+     * their total: either all of them are created or none. Velocity limits
+     * count them as one debit.
+     *
+     * @param added transactions to add
+     * @return true if the transactions have been created, false if any of
+     *      them is a duplicate
+     */
+    boolean createTransactions(List<AccountTransaction> added) {
+        double total = 0;
+        for (AccountTransaction transaction : added) {
+            if (transactionsById.containsKey(transaction.getId())
+                    || coldAddress(transaction.getId()) >= 0) {
+                return false;
+            }
+            total += transaction.getAmount();
         }
 
-        if (transaction.getAmount() > balanceAvailable) {
+        State current = state;
+        if (total > current.available) {
             throw new TransferException(FAILURE_INSUFFICIENT_FUNDS, "Balance exceeded");
         }
+        long now = System.currentTimeMillis();
+        if (velocity != null) {
+            // All the counters are checked before any is updated, so a
+            // rejected debit is not counted against the limits it passed.
+            for (VelocityCounter counter : velocity) {
+                counter.check(now, total);
+            }
+            for (VelocityCounter counter : velocity) {
+                counter.record(now, total);
+            }
+        }
 
-        transactions.add(0, transaction);
-        transactionsById.put(transaction.getId(), transaction);
-        balanceAvailable -= transaction.getAmount();
+        long bytes = 0;
+        for (AccountTransaction transaction : added) {
+            transactions.add(transaction);
+            transactionsById.put(transaction.getId(), transaction);
+            if (references != null) {
+                references.add(transaction.getReferenceId(), this, transaction);
+            }
+            if (tiering != null) {
+                bytes += TransactionCodec.estimateHeapBytes(transaction);
+            }
+        }
+        if (tiering != null) {
+            bytes += BalanceHistory.BYTES_PER_CHANGE;
+        }
+        State updated = new State(
+                current.version + 1,
+                current.available - total,
+                current.current,
+                current.transactions + added.size());
+        state = updated;
+        history.record(
+                now,
+                -total,
+                0,
+                updated.available,
+                updated.current);
+        if (changes != null) {
+            for (AccountTransaction transaction : added) {
+                changes.publish(bankAccount, transaction.getId(), transaction.getStatus());
+            }
+        }
+        if (tiering != null) {
+            hotBytes += bytes;
+            tiering.added(this, bytes);
+        }
         return true;
     }
 
+    /**
+     * Moves all but the most recent transactions to the archive, and all but
+     * as many of the most recent balance changes too, see
+     * {@link BalanceHistory#fold}.
+     *
+     * @param keep number of most recent transactions to keep in memory
+     * @return estimated size of the transactions and the balance changes
+     *      moved out of memory
+     */
+    long archiveOldest(int keep) {
+        long bytes = 0;
+        int archived = max(transactions.size() - keep, 0);
+        for (int i = 0; i < archived; i++) {
+            AccountTransaction transaction = transactions.get(i);
+            transactionsById.remove(transaction.getId());
+            if (references != null) {
+                references.remove(transaction.getReferenceId(), this, transaction);
+            }
+            if (cold == null) {
+                cold = new ColdHistory();
+            }
+            cold.add(transaction.getId(), tiering.archive().append(transaction));
+            bytes += TransactionCodec.estimateHeapBytes(transaction);
+        }
+        transactions.subList(0, archived).clear();
+        bytes += history.fold(keep);
+        hotBytes -= bytes;
+        return bytes;
+    }
+
+    /**
+     * Counts a balance change recorded without a new transaction against the
+     * memory bound of the history tiering.
+     */
+    private void recorded() {
+        if (tiering != null) {
+            hotBytes += BalanceHistory.BYTES_PER_CHANGE;
+            tiering.added(this, BalanceHistory.BYTES_PER_CHANGE);
+        }
+    }
+
+    /**
+     * Releases the in-memory history of the account when it is closed and
+     * removes it from the reference index.
+     */
+    void close() {
+        if (references != null) {
+            for (AccountTransaction transaction : transactions) {
+                references.remove(transaction.getReferenceId(), this, transaction);
+            }
+        }
+        if (tiering != null) {
+            tiering.removed(this, hotBytes);
+        }
+    }
+
     /**
      * Commits a transaction. Note this method is not called by Token; the specifics of when a
      * transaction is considered complete is up to the bank and payment scheme used.
@@ -74,11 +368,23 @@ class Account {
      * @param transactionId ID of the transaction to commit
      */
     Optional<AccountTransaction> commitTransaction(String transactionId) {
-        return Optional
-                .ofNullable(transactionsById.get(transactionId))
+        return lookupTransaction(transactionId)
                 .map(t -> {
-                    balanceCurrent -= t.getAmount();
-                    t.setStatus(SUCCESS);
+                    State current = state;
+                    State updated = new State(
+                            current.version + 1,
+                            current.available,
+                            current.current - t.getAmount(),
+                            current.transactions);
+                    state = updated;
+                    history.record(
+                            System.currentTimeMillis(),
+                            0,
+                            -t.getAmount(),
+                            updated.available,
+                            updated.current);
+                    recorded();
+                    setStatus(t, SUCCESS);
                     return t;
                 });
     }
@@ -90,11 +396,23 @@ class Account {
      * @param transactionId ID of the transaction to cancel
      */
     Optional<AccountTransaction> rollbackTransaction(String transactionId) {
-        return Optional
-                .ofNullable(transactionsById.get(transactionId))
+        return lookupTransaction(transactionId)
                 .map(t -> {
-                    balanceAvailable += t.getAmount();
-                    t.setStatus(FAILURE_CANCELED);
+                    State current = state;
+                    State updated = new State(
+                            current.version + 1,
+                            current.available + t.getAmount(),
+                            current.current,
+                            current.transactions);
+                    state = updated;
+                    history.record(
+                            System.currentTimeMillis(),
+                            t.getAmount(),
+                            0,
+                            updated.available,
+                            updated.current);
+                    recorded();
+                    setStatus(t, FAILURE_CANCELED);
                     return t;
                 });
     }
@@ -106,7 +424,14 @@ class Account {
      * @return looked up payment
      */
     Optional<AccountTransaction> lookupTransaction(String id) {
-        return Optional.ofNullable(transactionsById.get(id));
+        AccountTransaction transaction = transactionsById.get(id);
+        if (transaction != null) {
+            return Optional.of(transaction);
+        }
+        long address = coldAddress(id);
+        return address < 0
+                ? Optional.empty()
+                : Optional.of(tiering.archive().read(address));
     }
 
     /**
@@ -117,6 +442,50 @@ class Account {
      * @return list of payments
      */
     List<AccountTransaction> lookupTransactions(int offset, int limit) {
-        return transactions.subList(offset, min(offset + limit, transactions.size()));
+        // Newest first: the in-memory transactions, then the archived ones.
+        int hot = transactions.size();
+        List<AccountTransaction> page = new ArrayList<>(min(limit, 1024));
+        for (int i = offset; page.size() < limit && i < hot; i++) {
+            page.add(transactions.get(hot - 1 - i));
+        }
+        if (cold == null) {
+            return page;
+        }
+        for (int i = max(offset - hot, 0); page.size() < limit && i < cold.size(); i++) {
+            page.add(tiering.archive().read(cold.addressAt(cold.size() - 1 - i)));
+        }
+        return page;
+    }
+
+    private long coldAddress(String id) {
+        return cold == null ? -1 : cold.find(id, tiering.archive());
+    }
+
+    private void setStatus(AccountTransaction transaction, StatusCode status) {
+        transaction.setStatus(status);
+        if (changes != null) {
+            changes.publish(bankAccount, transaction.getId(), status);
+        }
+        if (transactionsById.get(transaction.getId()) != transaction) {
+            // Archived, decoded on lookup.
+            tiering.archive().updateStatus(coldAddress(transaction.getId()), status);
+        }
+    }
+
+    /**
+     * Balances and transaction count of the account at a point in time.
+     */
+    private static final class State {
+        private final long version;
+        private final double available;
+        private final double current;
+        private final int transactions;
+
+        private State(long version, double available, double current, int transactions) {
+            this.version = version;
+            this.available = available;
+            this.current = current;
+            this.transactions = transactions;
+        }
     }
 }
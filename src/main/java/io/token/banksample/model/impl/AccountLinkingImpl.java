@@ -1,26 +1,271 @@
 package io.token.banksample.model.impl;
 
+import static io.token.proto.bankapi.Bankapi.StatusCode.FAILURE_ACCOUNT_NOT_FOUND;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import io.token.banksample.model.AccessTokenAuthorization;
 import io.token.banksample.model.AccountLinking;
 import io.token.proto.banklink.Banklink.BankAuthorization;
 import io.token.sdk.BankAccountAuthorizer;
+import io.token.sdk.api.BankException;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * {@link AccountLinking} implementation. Creating a bank authorization
+ * involves signing and encryption, so the authorizations are cached per
+ * access token for (less than) their validity period and, optionally,
+ * refreshed ahead of expiry on a background executor. The crypto itself
+ * runs on a bounded {@link CryptoExecutor}.
+ *
+ * <p>Refreshes are scheduled when an authorization is cached, rather than
+ * triggered by the next read, so that an access token that is idle for a
+ * while still has a valid authorization when it is used again.
+ */
 public class AccountLinkingImpl implements AccountLinking {
+    private final static Logger logger = LoggerFactory.getLogger(AccountLinkingImpl.class);
+
+    /**
+     * Authorizations created by {@link BankAccountAuthorizer} expire after 1 day
+     * by default. Stop handing out cached ones well before that.
+     */
+    public static final Duration DEFAULT_EXPIRE_AFTER = Duration.ofHours(23);
+
+    /**
+     * How long to wait before trying again when a background refresh fails,
+     * e.g. because the crypto queue is full.
+     */
+    private static final Duration RETRY_AFTER = Duration.ofMinutes(1);
+
     private final BankAccountAuthorizer authorizer;
-    private final Map<String, AccessTokenAuthorization> authorizations;
+    private final LoadingCache<String, Cached> cache;
+    private final Duration refreshAfter;
+    private final ScheduledExecutorService refreshExecutor;
+    private final CryptoExecutor cryptoExecutor;
+    private final Map<String, ScheduledFuture<?>> refreshes = new ConcurrentHashMap<>();
+    private volatile Map<String, AccessTokenAuthorization> authorizations;
 
     public AccountLinkingImpl(
             BankAccountAuthorizer authorizer,
             Map<String, AccessTokenAuthorization> authorizations) {
+        this(
+                authorizer,
+                authorizations,
+                DEFAULT_EXPIRE_AFTER,
+                Duration.ZERO,
+                null,
+                CryptoExecutor.sameThread());
+    }
+
+    /**
+     * Creates new account linking instance.
+     *
+     * @param authorizer authorizer used to create bank authorizations
+     * @param authorizations access token authorizations
+     * @param expireAfter how long a cached authorization is handed out for,
+     *      must be less than the authorizer validity period
+     * @param refreshAfter age at which a cached authorization is replaced in
+     *      the background, must be less than {@code expireAfter}; zero to
+     *      disable background refresh
+     * @param refreshExecutor executor used to refresh the authorizations,
+     *      may be null if background refresh is disabled
+     * @param cryptoExecutor executor that runs signing and encryption
+     */
+    public AccountLinkingImpl(
+            BankAccountAuthorizer authorizer,
+            Map<String, AccessTokenAuthorization> authorizations,
+            Duration expireAfter,
+            Duration refreshAfter,
+            ScheduledExecutorService refreshExecutor,
+            CryptoExecutor cryptoExecutor) {
+        Preconditions.checkArgument(
+                refreshAfter.isZero() || refreshAfter.compareTo(expireAfter) < 0,
+                "refresh-after must be less than expire-after");
+        Preconditions.checkArgument(refreshAfter.isZero() || refreshExecutor != null);
         this.authorizer = authorizer;
-        this.authorizations = authorizations;
+        this.authorizations = snapshotOf(authorizations);
+        this.refreshAfter = refreshAfter;
+        this.refreshExecutor = refreshExecutor;
+        this.cryptoExecutor = cryptoExecutor;
+        this.cache = CacheBuilder.newBuilder()
+                .expireAfterWrite(expireAfter.toMillis(), MILLISECONDS)
+                .recordStats()
+                .build(CacheLoader.from(this::load));
     }
 
     @Override
     public BankAuthorization getBankAuthorization(String accessToken) {
+        try {
+            Cached cached = cache.getUnchecked(accessToken);
+            if (!cached.source.equals(authorizations.get(accessToken))) {
+                // Created from authorizations that have since been replaced.
+                cache.asMap().remove(accessToken, cached);
+                cached = cache.getUnchecked(accessToken);
+            }
+            return cached.authorization;
+        } catch (UncheckedExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Creates authorizations for all the known access tokens on the refresh
+     * executor, so that the first linking request for an access token does
+     * not pay for the crypto. Does nothing if background refresh is disabled.
+     */
+    public void warmUp() {
+        if (isRefreshEnabled()) {
+            for (String accessToken : authorizations.keySet()) {
+                scheduleRefresh(accessToken, Duration.ZERO);
+            }
+        }
+    }
+
+    /**
+     * Returns authorization cache statistics.
+     *
+     * @return cache statistics
+     */
+    public CacheStats getCacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Atomically replaces access token authorizations. Requests in flight keep
+     * using the authorizations they have started with. Cached bank
+     * authorizations of the changed and removed access tokens are evicted,
+     * and, if background refresh is enabled, the added and changed ones are
+     * created ahead of the first request.
+     *
+     * @param authorizations new access token authorizations
+     * @return number of access tokens that were added, removed or changed
+     */
+    public synchronized int updateAuthorizations(
+            Map<String, AccessTokenAuthorization> authorizations) {
+        Map<String, AccessTokenAuthorization> current = this.authorizations;
+        Map<String, AccessTokenAuthorization> next = snapshotOf(authorizations);
+
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<String, AccessTokenAuthorization> entry : next.entrySet()) {
+            if (!entry.getValue().equals(current.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (String accessToken : current.keySet()) {
+            if (!next.containsKey(accessToken)) {
+                removed.add(accessToken);
+            }
+        }
+
+        // Evict before publishing. A load that races with the update is
+        // caught by the source check in getBankAuthorization.
+        cache.invalidateAll(changed);
+        cache.invalidateAll(removed);
+        this.authorizations = next;
+
+        for (String accessToken : removed) {
+            ScheduledFuture<?> refresh = refreshes.remove(accessToken);
+            if (refresh != null) {
+                refresh.cancel(false);
+            }
+        }
+        if (isRefreshEnabled()) {
+            for (String accessToken : changed) {
+                scheduleRefresh(accessToken, Duration.ZERO);
+            }
+        }
+        return changed.size() + removed.size();
+    }
+
+    private Cached load(String accessToken) {
         AccessTokenAuthorization authorization = authorizations.get(accessToken);
-        return authorizer.createAuthorization(authorization.memberId(), authorization.accounts());
+        if (authorization == null) {
+            throw new BankException(FAILURE_ACCOUNT_NOT_FOUND, "Access token not found");
+        }
+        Cached cached = create(authorization);
+        if (isRefreshEnabled()) {
+            scheduleRefresh(accessToken, refreshAfter);
+        }
+        return cached;
+    }
+
+    /**
+     * Replaces the cached authorization of the access token and schedules
+     * the next refresh, or a retry if the authorization can't be created.
+     */
+    private void refresh(String accessToken) {
+        AccessTokenAuthorization authorization = authorizations.get(accessToken);
+        if (authorization == null) {
+            return;
+        }
+        try {
+            cache.put(accessToken, create(authorization));
+            scheduleRefresh(accessToken, refreshAfter);
+        } catch (RuntimeException ex) {
+            logger.warn("Failed to refresh bank authorization, retrying", ex);
+            scheduleRefresh(accessToken, RETRY_AFTER);
+        }
+    }
+
+    private void scheduleRefresh(String accessToken, Duration delay) {
+        ScheduledFuture<?> next = refreshExecutor.schedule(
+                () -> refresh(accessToken),
+                delay.toMillis(),
+                MILLISECONDS);
+        ScheduledFuture<?> previous = refreshes.put(accessToken, next);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    private Cached create(AccessTokenAuthorization authorization) {
+        return new Cached(authorization, cryptoExecutor.execute(() ->
+                authorizer.createAuthorization(
+                        authorization.memberId(),
+                        authorization.accounts())));
+    }
+
+    private boolean isRefreshEnabled() {
+        return !refreshAfter.isZero();
+    }
+
+    private static Map<String, AccessTokenAuthorization> snapshotOf(
+            Map<String, AccessTokenAuthorization> authorizations) {
+        return Collections.unmodifiableMap(new HashMap<>(authorizations));
+    }
+
+    /**
+     * Cached bank authorization and the access token authorization it was
+     * created from.
+     */
+    private static final class Cached {
+        private final AccessTokenAuthorization source;
+        private final BankAuthorization authorization;
+
+        private Cached(AccessTokenAuthorization source, BankAuthorization authorization) {
+            this.source = source;
+            this.authorization = authorization;
+        }
     }
 }
@@ -8,11 +8,11 @@ import com.google.auto.value.AutoValue;
 import io.token.proto.common.account.AccountProtos.BankAccount;
 import io.token.proto.common.money.MoneyProtos.Money;
 
-import java.util.UUID;
-
 /**
  * Represents a transaction posted to the source and destination accounts. The
- * change credits one account and debits the other.
+ * change credits one account and debits the other. Accounts are carried
+ * along with their ordinals, see {@link io.token.banksample.model.Accounts},
+ * which is what the ledger indexes them by.
  */
 @AutoValue
 abstract class AccountTransfer {
@@ -27,11 +27,11 @@ abstract class AccountTransfer {
     }
 
     /**
-     * Returns transfer id.
+     * Returns transfer id, see {@link TransferIdGenerator}.
      *
      * @return transfer id
      */
-    public abstract String getTransferId();
+    public abstract long getTransferId();
 
     /**
      * Returns transfer source/from account.
@@ -40,6 +40,13 @@ abstract class AccountTransfer {
      */
     public abstract BankAccount getFrom();
 
+    /**
+     * Returns ordinal of the source/from account.
+     *
+     * @return from account ordinal
+     */
+    public abstract int getFromOrdinal();
+
     /**
      * Returns transfer destination/to account.
      *
@@ -47,6 +54,13 @@ abstract class AccountTransfer {
      */
     public abstract BankAccount getTo();
 
+    /**
+     * Returns ordinal of the destination/to account.
+     *
+     * @return to account ordinal
+     */
+    public abstract int getToOrdinal();
+
     /**
      * Returns transfer amount.
      *
@@ -65,23 +79,24 @@ abstract class AccountTransfer {
      * {@link AccountTransfer} builder.
      */
     public static class Builder {
-        private String transferId;
+        private long transferId;
         private BankAccount from;
+        private int fromOrdinal = -1;
         private BankAccount to;
+        private int toOrdinal = -1;
         private double amount;
         private String currency;
 
         private Builder() {
-            transferId(UUID.randomUUID().toString());
         }
 
         /**
-         * Sets unique transfer id.
+         * Sets unique transfer id, see {@link TransferIdGenerator}.
          *
          * @param transferId transfer id
          * @return this object
          */
-        public Builder transferId(String transferId) {
+        public Builder transferId(long transferId) {
             this.transferId = transferId;
             return this;
         }
@@ -90,10 +105,12 @@ abstract class AccountTransfer {
          * Sets source/from account.
          *
          * @param from from account
+         * @param ordinal from account ordinal
          * @return this object
          */
-        public Builder from(BankAccount from) {
+        public Builder from(BankAccount from, int ordinal) {
             this.from = from;
+            this.fromOrdinal = ordinal;
             return this;
         }
 
@@ -101,10 +118,12 @@ abstract class AccountTransfer {
          * Sets destination/to account.
          *
          * @param to to account
+         * @param ordinal to account ordinal
          * @return this object
          */
-        public Builder to(BankAccount to) {
+        public Builder to(BankAccount to, int ordinal) {
             this.to = to;
+            this.toOrdinal = ordinal;
             return this;
         }
 
@@ -140,10 +159,15 @@ abstract class AccountTransfer {
          */
         public AccountTransfer build() {
             checkArgument(amount > 0, "Amount must be set");
+            checkArgument(transferId > 0, "Transfer id must be set");
+            checkArgument(fromOrdinal >= 0, "Source account ordinal must be set");
+            checkArgument(toOrdinal >= 0, "Destination account ordinal must be set");
             return new AutoValue_AccountTransfer(
-                    checkNotNull(transferId, "Transfer id must be set"),
+                    transferId,
                     checkNotNull(from, "Source account must be set"),
+                    fromOrdinal,
                     checkNotNull(to, "Destination account must be set"),
+                    toOrdinal,
                     amount,
                     checkNotNull(currency, "Currency must be set"));
         }
@@ -1,40 +1,155 @@
 package io.token.banksample.model.impl;
 
+import static io.token.proto.bankapi.Bankapi.StatusCode.FAILURE_ACCOUNT_NOT_FOUND;
 import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
 import static java.util.Collections.emptyList;
-import static java.util.stream.Collectors.toMap;
 
 import com.google.common.base.Preconditions;
 import io.token.banksample.config.AccountConfig;
 import io.token.banksample.model.AccountTransaction;
 import io.token.banksample.model.Accounting;
 import io.token.banksample.model.Accounts;
+import io.token.banksample.model.Currencies;
+import io.token.banksample.model.ExportFormat;
 import io.token.proto.common.account.AccountProtos.BankAccount;
 import io.token.sdk.api.Balance;
+import io.token.sdk.api.BankException;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
- * Configuration based account service implementation.
+ * Configuration based account service implementation. Incoming accounts are
+ * resolved to their ordinals once, per account state is kept in an array
+ * indexed by the ordinal.
  */
 public final class AccountingImpl implements Accounting {
+    // Transactions read per lock acquisition when exporting.
+    private static final int EXPORT_CHUNK = 1_000;
+
     private final Accounts config;
-    private final Map<AccountConfig, Account> accounts;
+    // Copy on write, only replaced when accounts are added or removed.
+    private volatile Account[] accounts;
     private final AccountingLedger ledger;
+    private final TransferIdGenerator transferIds;
+    private final FxNetting fxNetting;
+    private final HistoryTiering history;
+    private final ChangeFeed changes;
+    private final ReferenceIndex references;
+    private VelocityLimits velocityLimits;
 
     public AccountingImpl(Accounts config) {
-        this.config = config;
-        this.accounts = config.getAllAccounts()
-                .stream()
-                .collect(toMap(
-                        a -> a,
-                        a -> new Account(
-                                a.getBalance().getCurrency(),
-                                a.getBalance().getAvailable().doubleValue(),
-                                a.getBalance().getCurrent().doubleValue())));
-        this.ledger = new AccountingLedger();
+        this(builder(config));
+    }
+
+    private AccountingImpl(Builder builder) {
+        this.config = builder.config;
+        this.accounts = new Account[0];
+        this.ledger = new AccountingLedger(builder.ledgerLayout, builder.changes);
+        this.changes = builder.changes;
+        this.references = new ReferenceIndex();
+        this.velocityLimits = builder.velocityLimits;
+        this.transferIds = builder.transferIds;
+        this.fxNetting = builder.fxNetting ? new FxNetting() : null;
+        this.history = builder.historyDirectory == null
+                ? null
+                : new HistoryTiering(
+                        builder.historyDirectory,
+                        builder.hotTransactions,
+                        builder.maxResidentBytes,
+                        config);
+        addAccounts(config.getAllAccounts());
+    }
+
+    /**
+     * Creates a builder.
+     *
+     * @param config accounts
+     * @return builder
+     */
+    public static Builder builder(Accounts config) {
+        return new Builder(config);
+    }
+
+    /**
+     * Opens accounts for the given account configs. Accounts that are already
+     * open are left untouched, including their balances. Called before the
+     * accounts are published in the account index on reload.
+     *
+     * @param added accounts to open
+     */
+    public synchronized void addAccounts(Collection<AccountConfig> added) {
+        Account[] updated = accounts;
+        for (AccountConfig a : added) {
+            int ordinal = config.ordinalOf(a);
+            if (ordinal >= updated.length) {
+                updated = Arrays.copyOf(updated, Math.max(ordinal + 1, updated.length * 2));
+            }
+            if (updated[ordinal] == null) {
+                if (updated == accounts) {
+                    updated = updated.clone();
+                }
+                updated[ordinal] = new Account(
+                        ordinal,
+                        a.toBankAccount(),
+                        a.getBalance().getCurrency(),
+                        a.getBalance().getAvailable().doubleValue(),
+                        a.getBalance().getCurrent().doubleValue(),
+                        history,
+                        changes,
+                        references,
+                        velocityLimits == null ? null : velocityLimits.countersFor(a));
+            }
+        }
+        accounts = updated;
+    }
+
+    /**
+     * Closes accounts for the given account configs. Called after the
+     * accounts have been removed from the account index on reload.
+     *
+     * @param removed accounts to close
+     */
+    public synchronized void removeAccounts(Collection<AccountConfig> removed) {
+        Account[] updated = accounts.clone();
+        for (AccountConfig a : removed) {
+            int ordinal = config.ordinalOf(a);
+            if (ordinal < updated.length && updated[ordinal] != null) {
+                updated[ordinal].close();
+                updated[ordinal] = null;
+            }
+        }
+        accounts = updated;
+    }
+
+    /**
+     * Replaces the velocity limits of the open accounts. Debits counted so
+     * far stay counted against the new limits. Called after the accounts
+     * have been reloaded.
+     *
+     * @param updated velocity limits
+     */
+    public synchronized void updateVelocityLimits(VelocityLimits updated) {
+        for (Account account : accounts) {
+            if (account != null) {
+                account.setVelocity(config.tryLookupAccount(account.getBankAccount())
+                        .map(a -> updated.countersFor(a, velocityLimits))
+                        .orElse(null));
+            }
+        }
+        velocityLimits = updated;
     }
 
     @Override
@@ -43,62 +158,81 @@ public final class AccountingImpl implements Accounting {
     }
 
     @Override
-    public synchronized Optional<Balance> lookupBalance(BankAccount account) {
-        return config
-                .tryLookupAccount(account)
-                .flatMap(a -> Optional.ofNullable(accounts.get(a)))
-                .map(Account::getBalance);
+    public Optional<Balance> lookupBalance(BankAccount account) {
+        // Not synchronized, the account state is read without blocking the
+        // writers.
+        return lookup(account).map(Account::getBalance);
+    }
+
+    @Override
+    public synchronized Optional<Balance> lookupBalance(BankAccount account, Instant asOf) {
+        return lookup(account).map(a -> a.getBalance(asOf));
+    }
+
+    @Override
+    public int lookupOrdinal(BankAccount account) {
+        return config.lookupOrdinal(account);
+    }
+
+    @Override
+    public long lookupVersion(int ordinal) {
+        // Not synchronized, same as the balance.
+        Account[] current = accounts;
+        return ordinal < 0 || ordinal >= current.length || current[ordinal] == null
+                ? -1
+                : current[ordinal].getVersion();
     }
 
     @Override
     public synchronized void createDebitTransaction(AccountTransaction transaction) {
         Preconditions.checkArgument(transaction.getType() == DEBIT);
-        if (!createTransaction(transaction)) {
+        checkCurrencies(transaction);
+        Account account = lookupOrThrow(transaction.getFrom());
+        if (!account.createTransaction(transaction)) {
             return;
         }
+        List<AccountTransfer> transfers = new ArrayList<>(2);
+        addTransfers(account, transaction, transfers);
+        ledger.post(transfers);
+    }
 
-        if (transaction.getCurrency().equals(transaction.getTransferCurrency())) {
-            // If FX is not needed, just move the money to the holding account.
-            ledger.post(AccountTransfer.builder()
-                    .from(transaction.getFrom())
-                    .to(config.getHoldAccount(transaction.getCurrency()))
-                    .withAmount(
-                            transaction.getAmount(),
-                            transaction.getCurrency())
-                    .build());
-        } else {
-            // With FX.
-            // Create two transfers to account for FX.
-            // 1) DB customer, credit FX in the customer account currency.
-            // 2) DB FX, credit hold account in the settlement account currency.
-            // Note that we are not accounting for the spread with this
-            // transaction pair, it goes 'nowhere'.
-            ledger.post(
-                    AccountTransfer.builder()
-                            .from(transaction.getFrom())
-                            .to(config.getFxAccount(transaction.getCurrency()))
-                            .withAmount(
-                                    transaction.getAmount(),
-                                    transaction.getCurrency())
-                            .build(),
-                    AccountTransfer.builder()
-                            .from(config.getFxAccount(transaction.getTransferCurrency()))
-                            .to(config.getHoldAccount(transaction.getTransferCurrency()))
-                            .withAmount(
-                                    transaction.getTransferAmount(),
-                                    transaction.getTransferCurrency())
-                            .build());
+    @Override
+    public synchronized void createDebitTransactions(List<AccountTransaction> transactions) {
+        Preconditions.checkArgument(!transactions.isEmpty());
+        BankAccount source = transactions.get(0).getFrom();
+        Set<String> ids = new HashSet<>();
+        for (AccountTransaction transaction : transactions) {
+            Preconditions.checkArgument(transaction.getType() == DEBIT);
+            Preconditions.checkArgument(transaction.getFrom().equals(source));
+            checkCurrencies(transaction);
+            Preconditions.checkArgument(
+                    ids.add(transaction.getId()),
+                    "Repeated transaction id: %s",
+                    transaction.getId());
+        }
+        Account account = lookupOrThrow(source);
+        if (!account.createTransactions(transactions)) {
+            return;
+        }
+        List<AccountTransfer> transfers = new ArrayList<>(transactions.size() * 2);
+        for (AccountTransaction transaction : transactions) {
+            addTransfers(account, transaction, transfers);
         }
+        ledger.post(transfers);
     }
 
     @Override
     public synchronized Optional<AccountTransaction> lookupTransaction(
             BankAccount account,
             String transactionId) {
-        return config
-                .tryLookupAccount(account)
-                .flatMap(a -> Optional.ofNullable(accounts.get(a)))
-                .flatMap(a -> a.lookupTransaction(transactionId));
+        return lookup(account).flatMap(a -> a.lookupTransaction(transactionId));
+    }
+
+    @Override
+    public List<AccountTransaction> lookupTransactionsByReference(String referenceId) {
+        // Not synchronized, the index is concurrent and refers to the
+        // transactions directly.
+        return references.lookup(referenceId);
     }
 
     @Override
@@ -106,16 +240,362 @@ public final class AccountingImpl implements Accounting {
             BankAccount account,
             int offset,
             int limit) {
-        return Optional
-                .ofNullable(config.lookupAccount(account))
-                .flatMap(a -> Optional.ofNullable(accounts.get(a)))
-                .map(a -> a.lookupTransactions(offset, limit))
-                .orElse(emptyList());
+        return lookupOrThrow(account).lookupTransactions(offset, limit);
+    }
+
+    @Override
+    public long exportTransactions(BankAccount account, ExportFormat format, OutputStream out)
+            throws IOException {
+        // The lock is held only to read each chunk, the output is written
+        // without blocking the writers. New transactions are added at the
+        // newest end of the history, so skipping past them keeps the chunks
+        // aligned with the history as of the start of the export.
+        Account exported;
+        int total;
+        synchronized (this) {
+            exported = lookupOrThrow(account);
+            total = exported.getTransactionCount();
+        }
+        TransactionExporter exporter = new TransactionExporter(format, out);
+        int written = 0;
+        while (written < total) {
+            List<AccountTransaction> chunk;
+            synchronized (this) {
+                int added = exported.getTransactionCount() - total;
+                chunk = exported.lookupTransactions(
+                        added + written,
+                        Math.min(EXPORT_CHUNK, total - written));
+            }
+            if (chunk.isEmpty()) {
+                break; // Guards against looping if the history ever shrinks.
+            }
+            exporter.write(chunk);
+            written += chunk.size();
+        }
+        return written;
+    }
+
+    /**
+     * Closes the FX netting window: posts a single FX to hold account transfer
+     * for each currency pair with FX debits since the last flush. Does
+     * nothing if FX netting is disabled.
+     *
+     * @return number of transfers posted
+     */
+    public synchronized int flushFxNetting() {
+        if (fxNetting == null) {
+            return 0;
+        }
+        List<FxNetting.Position> positions = fxNetting.drain();
+        ledger.post(positions.stream()
+                .map(p -> transfer(
+                        fxAccount(p.getCurrency()),
+                        holdAccount(p.getCurrency()),
+                        p.getAmount().doubleValue(),
+                        p.getCurrency()))
+                .toArray(AccountTransfer[]::new));
+        return positions.size();
+    }
+
+    /**
+     * Looks up a page of the ledger statement of the account, e.g. a hold or
+     * FX account: entries posted to the account within the given time range,
+     * oldest first. Served from the ledger indexes without holding the
+     * accounting lock.
+     *
+     * @param account account to look up the statement for
+     * @param from start of the time range, inclusive
+     * @param to end of the time range, exclusive
+     * @param offset offset within the time range
+     * @param limit max number of entries to return
+     * @return page of ledger entries, empty if the account is not found
+     */
+    public List<LedgerEntry> lookupStatement(
+            BankAccount account,
+            Instant from,
+            Instant to,
+            int offset,
+            int limit) {
+        int ordinal = config.lookupOrdinal(account);
+        return ordinal < 0
+                ? emptyList()
+                : ledger.lookupStatement(
+                        ordinal,
+                        from.toEpochMilli(),
+                        to.toEpochMilli(),
+                        offset,
+                        limit);
+    }
+
+    /**
+     * Looks up a page of the entries posted to any account within the given
+     * time range, oldest first, e.g. to reconcile a period against an
+     * external statement.
+     *
+     * @param from start of the time range, inclusive
+     * @param to end of the time range, exclusive
+     * @param offset offset within the time range
+     * @param limit max number of entries to return
+     * @return page of ledger entries
+     */
+    public List<LedgerEntry> lookupLedgerEntries(Instant from, Instant to, int offset, int limit) {
+        return ledger.lookupEntries(from.toEpochMilli(), to.toEpochMilli(), offset, limit);
+    }
+
+    /**
+     * Looks up the debit and credit entries posted for a transfer.
+     *
+     * @param transferId transfer id, as returned by
+     *      {@link LedgerEntry#getTransferId()}
+     * @return debit and credit entries, empty if not found
+     */
+    public List<LedgerEntry> lookupTransfer(long transferId) {
+        return ledger.lookupTransfer(transferId);
+    }
+
+    /**
+     * Checks whether debits and credits posted to the ledger sum up to zero in
+     * every currency. Runs in constant time.
+     *
+     * @return true if the ledger is balanced
+     */
+    public boolean isBalanced() {
+        return ledger.isBalanced();
+    }
+
+    /**
+     * Runs a full reconciliation of the ledger against the running totals and
+     * the account balances. Only a snapshot of the totals is taken under the
+     * lock, the ledger itself is scanned in parallel without blocking the
+     * postings.
+     *
+     * @return reconciliation report
+     */
+    public ReconciliationReport reconcile() {
+        int size;
+        LedgerTotals running;
+        Account[] snapshot;
+        Map<Integer, BigDecimal> posted = new HashMap<>();
+        synchronized (this) {
+            size = ledger.size();
+            running = ledger.runningTotals();
+            snapshot = accounts;
+            for (Account account : snapshot) {
+                if (account != null && account.hasTransactions()) {
+                    posted.put(account.getOrdinal(), account.getAvailableMovement());
+                }
+            }
+        }
+        return ledger.verify(size, running, posted, ordinal -> {
+            Account account = ordinal < snapshot.length ? snapshot[ordinal] : null;
+            return account == null
+                    ? "account #" + ordinal
+                    : account.getBankAccount().getSwift().getBic()
+                            + "/" + account.getBankAccount().getSwift().getAccount();
+        });
+    }
+
+    /**
+     * Adds the ledger transfers of a debit to the list.
+     *
+     * @param from debited account
+     * @param transaction debit
+     * @param transfers list to add the transfers to
+     */
+    /**
+     * Checks the currencies of the transaction before anything is reserved,
+     * the ledger rejects unknown ones.
+     */
+    private static void checkCurrencies(AccountTransaction transaction) {
+        Currencies.scaleOf(transaction.getCurrency());
+        Currencies.scaleOf(transaction.getTransferCurrency());
+    }
+
+    private void addTransfers(
+            Account from,
+            AccountTransaction transaction,
+            List<AccountTransfer> transfers) {
+        if (transaction.getCurrency().equals(transaction.getTransferCurrency())) {
+            // If FX is not needed, just move the money to the holding account.
+            transfers.add(transfer(
+                    from,
+                    holdAccount(transaction.getCurrency()),
+                    transaction.getAmount(),
+                    transaction.getCurrency()));
+            return;
+        }
+        // With FX.
+        // Create two transfers to account for FX.
+        // 1) DB customer, credit FX in the customer account currency.
+        // 2) DB FX, credit hold account in the settlement account currency.
+        // Note that we are not accounting for the spread with this
+        // transaction pair, it goes 'nowhere'.
+        // With FX netting, 2) is added to the net position of the
+        // currency pair and posted when the netting window closes.
+        transfers.add(transfer(
+                from,
+                fxAccount(transaction.getCurrency()),
+                transaction.getAmount(),
+                transaction.getCurrency()));
+        if (fxNetting != null) {
+            fxNetting.add(
+                    transaction.getCurrency(),
+                    transaction.getTransferCurrency(),
+                    transaction.getTransferAmount());
+            return;
+        }
+        transfers.add(transfer(
+                fxAccount(transaction.getTransferCurrency()),
+                holdAccount(transaction.getTransferCurrency()),
+                transaction.getTransferAmount(),
+                transaction.getTransferCurrency()));
+    }
+
+    private AccountTransfer transfer(Account from, Account to, double amount, String currency) {
+        return AccountTransfer.builder()
+                .transferId(transferIds.next())
+                .from(from.getBankAccount(), from.getOrdinal())
+                .to(to.getBankAccount(), to.getOrdinal())
+                .withAmount(amount, currency)
+                .build();
+    }
+
+    private Account holdAccount(String currency) {
+        return accountAt(config.getHoldAccountOrdinal(currency));
+    }
+
+    private Account fxAccount(String currency) {
+        return accountAt(config.getFxAccountOrdinal(currency));
     }
 
-    private boolean createTransaction(AccountTransaction transaction) {
-        return accounts
-                .get(config.lookupAccount(transaction.getFrom()))
-                .createTransaction(transaction);
+    /**
+     * Resolves the account to its ordinal and looks up its state. This is
+     * the only place where incoming accounts are resolved.
+     *
+     * @param account account
+     * @return account state, empty if the account is not found
+     */
+    private Optional<Account> lookup(BankAccount account) {
+        int ordinal = config.lookupOrdinal(account);
+        Account[] current = accounts;
+        return ordinal < 0 || ordinal >= current.length
+                ? Optional.empty()
+                : Optional.ofNullable(current[ordinal]);
+    }
+
+    private Account accountAt(int ordinal) {
+        Account[] current = accounts;
+        if (ordinal >= current.length || current[ordinal] == null) {
+            throw new BankException(FAILURE_ACCOUNT_NOT_FOUND, "Account not found");
+        }
+        return current[ordinal];
+    }
+
+    private Account lookupOrThrow(BankAccount account) {
+        return lookup(account).orElseThrow(() -> new BankException(
+                FAILURE_ACCOUNT_NOT_FOUND,
+                "Account not found"));
+    }
+
+    /**
+     * Builds {@link AccountingImpl}.
+     */
+    public static final class Builder {
+        private final Accounts config;
+        private LedgerLayout ledgerLayout = LedgerLayout.OBJECT;
+        private TransferIdGenerator transferIds = new TransferIdGenerator(0);
+        private boolean fxNetting;
+        private Path historyDirectory;
+        private int hotTransactions;
+        private long maxResidentBytes;
+        private ChangeFeed changes;
+        private VelocityLimits velocityLimits;
+
+        private Builder(Accounts config) {
+            this.config = config;
+        }
+
+        /**
+         * Sets in-memory ledger layout, {@link LedgerLayout#OBJECT} by default.
+         *
+         * @param ledgerLayout ledger layout
+         * @return this builder
+         */
+        public Builder ledgerLayout(LedgerLayout ledgerLayout) {
+            this.ledgerLayout = ledgerLayout;
+            return this;
+        }
+
+        /**
+         * Sets transfer id generator, node 0 by default.
+         *
+         * @param transferIds transfer id generator
+         * @return this builder
+         */
+        public Builder transferIds(TransferIdGenerator transferIds) {
+            this.transferIds = transferIds;
+            return this;
+        }
+
+        /**
+         * Enables FX netting: the FX to hold account legs are netted per
+         * currency pair and only posted on {@link #flushFxNetting()}.
+         *
+         * @param fxNetting true to enable FX netting
+         * @return this builder
+         */
+        public Builder fxNetting(boolean fxNetting) {
+            this.fxNetting = fxNetting;
+            return this;
+        }
+
+        /**
+         * Enables history tiering: only the most recent transactions of each
+         * account are kept in memory, older ones are moved to memory mapped
+         * segment files in the given directory.
+         *
+         * @param directory directory to keep the archived transactions in
+         * @param hotTransactions number of most recent transactions to keep
+         *      in memory per account
+         * @param maxResidentBytes bound on the estimated size of the
+         *      transactions kept in memory across all the accounts
+         * @return this builder
+         */
+        public Builder history(Path directory, int hotTransactions, long maxResidentBytes) {
+            Preconditions.checkArgument(hotTransactions >= 0);
+            Preconditions.checkArgument(maxResidentBytes >= 0);
+            this.historyDirectory = directory;
+            this.hotTransactions = hotTransactions;
+            this.maxResidentBytes = maxResidentBytes;
+            return this;
+        }
+
+        /**
+         * Publishes ledger postings and transaction status changes on the
+         * given feed. Nothing is published by default.
+         *
+         * @param changes change feed
+         * @return this builder
+         */
+        public Builder changeFeed(ChangeFeed changes) {
+            this.changes = changes;
+            return this;
+        }
+
+        /**
+         * Enforces velocity limits on the debits, together with the balance
+         * check. Debits are only limited by the balance by default.
+         *
+         * @param velocityLimits velocity limits
+         * @return this builder
+         */
+        public Builder velocityLimits(VelocityLimits velocityLimits) {
+            this.velocityLimits = velocityLimits;
+            return this;
+        }
+
+        public AccountingImpl build() {
+            return new AccountingImpl(this);
+        }
     }
 }
@@ -2,20 +2,59 @@ package io.token.banksample.model.impl;
 
 import static io.token.banksample.model.impl.LedgerEntry.credit;
 import static io.token.banksample.model.impl.LedgerEntry.debit;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
 
 /**
- * Maintains ledger of transactions.
+ * Maintains ledger of transactions. Entries are appended in posting order and
+ * identified by their position in the ledger. The ledger is indexed by
+ * account ordinal, by transfer id and by posting time; the indexes only hold
+ * positions, so that they stay valid regardless of where the entries
+ * themselves are stored.
+ *
+ * <p>Entries are kept in a {@link LedgerStorage}, entries below
+ * {@link #size()} can be read without holding the ledger lock. The ledger
+ * keeps running totals of the posted entries, see {@link LedgerReconciler}.
+ * Posted entries are published on the {@link ChangeFeed}, if any. Both the
+ * entries and the indexes are kept in memory.
  */
 final class AccountingLedger {
-    private final List<LedgerEntry> ledger;
+    private final LedgerStorage storage;
+    private final LedgerReconciler reconciler;
+    // Indexed by the account ordinal.
+    private PositionList[] positionsByAccount;
+    private final Map<Long, Integer> positionsByTransferId;
+    private final ChangeFeed changes; // null if not published
 
     AccountingLedger() {
-        this.ledger = new ArrayList<>();
+        this(LedgerLayout.OBJECT, null);
+    }
+
+    /**
+     * Creates new ledger.
+     *
+     * @param layout storage layout
+     * @param changes feed to publish the posted entries on, or null
+     */
+    AccountingLedger(LedgerLayout layout, ChangeFeed changes) {
+        this.changes = changes;
+        this.storage = layout == LedgerLayout.COLUMNAR
+                ? new ColumnarLedgerStorage()
+                : new ObjectLedgerStorage();
+        this.reconciler = new LedgerReconciler();
+        this.positionsByAccount = new PositionList[64];
+        this.positionsByTransferId = new HashMap<>();
     }
 
     /**
@@ -39,16 +78,151 @@ final class AccountingLedger {
     }
 
     /**
-     * Posts transfers to ledger. Each transfer results in two transactions
-     * posted.
+     * Posts transfers to ledger in a single append: the entries are stored
+     * together, under one timestamp, with no other postings in between.
+     * Each transfer results in two transactions posted.
      *
      * @param transfers account transfers
      */
-    private void post(List<AccountTransfer> transfers) {
+    synchronized void post(List<AccountTransfer> transfers) {
+        // Keep the timestamps non-decreasing with the position even if the
+        // clock goes back, the time index relies on it.
+        long now = max(System.currentTimeMillis(), lastTimestamp());
         for (AccountTransfer transfer : transfers) {
-            post(debit(transfer));
-            post(credit(transfer));
+            positionsByTransferId.put(transfer.getTransferId(), storage.size());
+            post(debit(transfer, now));
+            post(credit(transfer, now));
+        }
+    }
+
+    /**
+     * Looks up a page of the account statement: entries posted to the account
+     * within the given time range, oldest first.
+     *
+     * @param accountOrdinal ordinal of the account to look up the entries
+     *      for, see {@link io.token.banksample.model.Accounts#lookupOrdinal}
+     * @param fromMs start of the time range, inclusive, epoch milliseconds
+     * @param toMs end of the time range, exclusive, epoch milliseconds
+     * @param offset offset within the time range
+     * @param limit max number of entries to return
+     * @return page of ledger entries
+     */
+    synchronized List<LedgerEntry> lookupStatement(
+            int accountOrdinal,
+            long fromMs,
+            long toMs,
+            int offset,
+            int limit) {
+        PositionList positions = accountOrdinal < positionsByAccount.length
+                ? positionsByAccount[accountOrdinal]
+                : null;
+        if (positions == null) {
+            return emptyList();
+        }
+        int start = positions.lowerBound(fromMs, storage::timestampAt);
+        int end = positions.lowerBound(toMs, storage::timestampAt);
+        int count = max(0, min(end - start - offset, limit));
+        List<LedgerEntry> page = new ArrayList<>(count);
+        for (int i = start + offset; i < start + offset + count; i++) {
+            page.add(entryAt(positions.get(i)));
         }
+        return page;
+    }
+
+    /**
+     * Looks up entries posted within the given time range, oldest first.
+     *
+     * @param fromMs start of the time range, inclusive, epoch milliseconds
+     * @param toMs end of the time range, exclusive, epoch milliseconds
+     * @param offset offset within the time range
+     * @param limit max number of entries to return
+     * @return page of ledger entries
+     */
+    synchronized List<LedgerEntry> lookupEntries(long fromMs, long toMs, int offset, int limit) {
+        int start = lowerBound(fromMs);
+        int end = lowerBound(toMs);
+        int count = max(0, min(end - start - offset, limit));
+        List<LedgerEntry> page = new ArrayList<>(count);
+        for (int p = start + offset; p < start + offset + count; p++) {
+            page.add(entryAt(p));
+        }
+        return page;
+    }
+
+    /**
+     * Looks up debit and credit entries posted for the given transfer.
+     *
+     * @param transferId transfer id, as returned by
+     *      {@link LedgerEntry#getTransferId()}
+     * @return debit and credit entries, empty if not found
+     */
+    synchronized List<LedgerEntry> lookupTransfer(long transferId) {
+        Integer position = positionsByTransferId.get(transferId);
+        if (position == null) {
+            return emptyList();
+        }
+        return asList(entryAt(position), entryAt(position + 1));
+    }
+
+    /**
+     * Checks whether debits and credits of the posted entries sum up to zero
+     * in every currency. Runs in constant time.
+     *
+     * @return true if the ledger is balanced
+     */
+    synchronized boolean isBalanced() {
+        return reconciler.isBalanced();
+    }
+
+    /**
+     * Returns a copy of the running totals of the first {@link #size()}
+     * entries. Call under the same lock as {@link #size()} to get a
+     * consistent pair.
+     *
+     * @return running totals
+     */
+    synchronized LedgerTotals runningTotals() {
+        return reconciler.snapshot();
+    }
+
+    /**
+     * Verifies the first {@code size} entries against the running totals and
+     * the account balance movements, see {@link LedgerReconciler#verify}.
+     * Doesn't hold the ledger lock.
+     *
+     * @param size number of entries to verify
+     * @param running running totals taken at the given size
+     * @param posted balance movement of the accounts by ordinal, taken at
+     *      the given size
+     * @param describe describes the account with the given ordinal
+     * @return reconciliation report
+     */
+    ReconciliationReport verify(
+            int size,
+            LedgerTotals running,
+            Map<Integer, BigDecimal> posted,
+            IntFunction<String> describe) {
+        return LedgerReconciler.verify(storage, size, running, posted, describe);
+    }
+
+    /**
+     * Returns the number of entries posted.
+     *
+     * @return ledger size
+     */
+    int size() {
+        return storage.size();
+    }
+
+    /**
+     * Returns entry at the given position. Doesn't require the ledger lock
+     * for positions below {@link #size()}.
+     *
+     * @param position ledger position
+     * @return ledger entry
+     */
+    LedgerEntry entryAt(int position) {
+        return storage.entryAt(position);
     }
 
     /**
@@ -57,6 +231,45 @@ final class AccountingLedger {
      * @param transaction transaction to post
      */
     private void post(LedgerEntry transaction) {
-        ledger.add(transaction);
+        int position = storage.size();
+        storage.append(transaction);
+        positionsOf(transaction.getAccountOrdinal()).add(position);
+        reconciler.add(transaction);
+        if (changes != null) {
+            changes.publish(transaction);
+        }
+    }
+
+    private PositionList positionsOf(int accountOrdinal) {
+        if (accountOrdinal >= positionsByAccount.length) {
+            positionsByAccount = Arrays.copyOf(
+                    positionsByAccount,
+                    max(accountOrdinal + 1, positionsByAccount.length * 2));
+        }
+        PositionList positions = positionsByAccount[accountOrdinal];
+        if (positions == null) {
+            positions = new PositionList();
+            positionsByAccount[accountOrdinal] = positions;
+        }
+        return positions;
+    }
+
+    private long lastTimestamp() {
+        int size = storage.size();
+        return size == 0 ? 0 : storage.timestampAt(size - 1);
+    }
+
+    private int lowerBound(long timestamp) {
+        int low = 0;
+        int high = storage.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (storage.timestampAt(mid) < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
     }
 }
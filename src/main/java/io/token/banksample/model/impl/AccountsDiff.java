@@ -0,0 +1,83 @@
+package io.token.banksample.model.impl;
+
+import static java.util.Collections.unmodifiableList;
+
+import io.token.banksample.config.AccountConfig;
+
+import java.util.List;
+
+/**
+ * Difference between the live account index and a reloaded one. Accounts
+ * are matched by BIC and account number.
+ */
+public final class AccountsDiff {
+    private final AccountsImpl.Snapshot base;
+    private final AccountsImpl.Snapshot target;
+    private final List<AccountConfig> added;
+    private final List<AccountConfig> removed;
+    private final List<AccountConfig> changed;
+
+    AccountsDiff(
+            AccountsImpl.Snapshot base,
+            AccountsImpl.Snapshot target,
+            List<AccountConfig> added,
+            List<AccountConfig> removed,
+            List<AccountConfig> changed) {
+        this.base = base;
+        this.target = target;
+        this.added = unmodifiableList(added);
+        this.removed = unmodifiableList(removed);
+        this.changed = unmodifiableList(changed);
+    }
+
+    /**
+     * Returns accounts that are not in the live index.
+     *
+     * @return added accounts
+     */
+    public List<AccountConfig> getAdded() {
+        return added;
+    }
+
+    /**
+     * Returns live accounts that are not in the reloaded index.
+     *
+     * @return removed accounts
+     */
+    public List<AccountConfig> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Returns accounts which details (name, address) have changed.
+     *
+     * @return changed accounts, as reloaded
+     */
+    public List<AccountConfig> getChanged() {
+        return changed;
+    }
+
+    /**
+     * Checks whether the reloaded index differs from the live one.
+     *
+     * @return true if nothing has changed
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    AccountsImpl.Snapshot getBase() {
+        return base;
+    }
+
+    AccountsImpl.Snapshot getTarget() {
+        return target;
+    }
+
+    @Override
+    public String toString() {
+        return "added: " + added.size()
+                + ", removed: " + removed.size()
+                + ", changed: " + changed.size();
+    }
+}
@@ -11,35 +11,41 @@ import io.token.sdk.api.BankException;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToIntFunction;
 
 /**
- * Configuration based {@link Accounts} implementation.
+ * Configuration based {@link Accounts} implementation. The account index is
+ * an immutable snapshot that is swapped atomically on reload, so lookups
+ * never block.
+ *
+ * <p>Every account is assigned a dense ordinal the first time it is loaded.
+ * The ordinal of an account, matched by BIC and number, never changes and
+ * is not reused if the account is removed.
  */
 public class AccountsImpl implements Accounts {
-    private final Map<String, AccountConfig> holdAccounts;
-    private final Map<String, AccountConfig> fxAccounts;
-    private final List<AccountConfig> accounts;
+    private final Map<String, Integer> ordinals;
+    private final AtomicReference<Snapshot> snapshot;
 
     public AccountsImpl(
             Collection<AccountConfig> holdAccounts,
             Collection<AccountConfig> fxAccounts,
             Collection<AccountConfig> customerAccounts) {
-        this.holdAccounts = indexAccounts(holdAccounts);
-        this.fxAccounts = indexAccounts(fxAccounts);
-        this.accounts = new ArrayList<AccountConfig>() {{
-            addAll(holdAccounts);
-            addAll(fxAccounts);
-            addAll(customerAccounts);
-        }};
+        this.ordinals = new ConcurrentHashMap<>();
+        this.snapshot = new AtomicReference<>(
+                new Snapshot(holdAccounts, fxAccounts, customerAccounts, this::assignOrdinal));
     }
 
     @Override
     public BankAccount getHoldAccount(String currency) {
         return Optional
-                .ofNullable(holdAccounts.get(currency))
+                .ofNullable(snapshot.get().holdAccounts.get(currency))
                 .map(AccountConfig::toBankAccount)
                 .orElseThrow(() -> new BankException(
                         FAILURE_ACCOUNT_NOT_FOUND,
@@ -49,25 +55,143 @@ public class AccountsImpl implements Accounts {
     @Override
     public BankAccount getFxAccount(String currency) {
         return Optional
-                .ofNullable(fxAccounts.get(currency))
+                .ofNullable(snapshot.get().fxAccounts.get(currency))
                 .map(AccountConfig::toBankAccount)
                 .orElseThrow(() -> new BankException(
                         FAILURE_ACCOUNT_NOT_FOUND,
                         "FX account is not found for: " + currency));
     }
 
+    @Override
+    public int getHoldAccountOrdinal(String currency) {
+        Integer ordinal = snapshot.get().holdOrdinals.get(currency);
+        if (ordinal == null) {
+            throw new BankException(
+                    FAILURE_ACCOUNT_NOT_FOUND,
+                    "Hold account is not found for: " + currency);
+        }
+        return ordinal;
+    }
+
+    @Override
+    public int getFxAccountOrdinal(String currency) {
+        Integer ordinal = snapshot.get().fxOrdinals.get(currency);
+        if (ordinal == null) {
+            throw new BankException(
+                    FAILURE_ACCOUNT_NOT_FOUND,
+                    "FX account is not found for: " + currency);
+        }
+        return ordinal;
+    }
+
     @Override
     public Collection<AccountConfig> getAllAccounts() {
-        return accounts;
+        return snapshot.get().accounts;
     }
 
     @Override
     public Optional<AccountConfig> tryLookupAccount(BankAccount account) {
-        return toSwiftAccount(account)
-                .flatMap(swift -> accounts.stream()
-                        .filter(a -> a.getBic().equals(swift.getBic()))
-                        .filter(a -> a.getNumber().equals(swift.getAccount()))
-                        .findFirst());
+        Snapshot current = snapshot.get();
+        return Optional.ofNullable(current.lookup(current.ordinalOf(account)));
+    }
+
+    @Override
+    public int lookupOrdinal(BankAccount account) {
+        return snapshot.get().ordinalOf(account);
+    }
+
+    @Override
+    public int ordinalOf(AccountConfig account) {
+        Integer ordinal = ordinals.get(keyOf(account));
+        if (ordinal == null) {
+            throw new IllegalArgumentException("Account has not been loaded: " + keyOf(account));
+        }
+        return ordinal;
+    }
+
+    /**
+     * Computes the difference between the live accounts and the given ones.
+     * Accounts are matched by BIC and number. The diff is not applied until
+     * {@link #apply(AccountsDiff)} is called.
+     *
+     * @param holdAccounts new hold accounts
+     * @param fxAccounts new FX accounts
+     * @param customerAccounts new customer accounts
+     * @return accounts diff
+     */
+    public AccountsDiff diff(
+            Collection<AccountConfig> holdAccounts,
+            Collection<AccountConfig> fxAccounts,
+            Collection<AccountConfig> customerAccounts) {
+        Snapshot current = snapshot.get();
+        Snapshot next = new Snapshot(
+                holdAccounts,
+                fxAccounts,
+                customerAccounts,
+                this::assignOrdinal);
+
+        List<AccountConfig> added = new ArrayList<>();
+        List<AccountConfig> changed = new ArrayList<>();
+        for (AccountConfig account : next.indexed()) {
+            AccountConfig existing = current.lookup(current.ordinalOf(keyOf(account)));
+            if (existing == null) {
+                added.add(account);
+            } else if (!existing.getBalance().getCurrency()
+                    .equals(account.getBalance().getCurrency())) {
+                throw new IllegalArgumentException(
+                        "Currency of a live account can't be changed: " + keyOf(account));
+            } else if (!sameDetails(existing, account)) {
+                changed.add(account);
+            }
+        }
+
+        List<AccountConfig> removed = new ArrayList<>();
+        for (AccountConfig account : current.indexed()) {
+            if (next.ordinalOf(keyOf(account)) < 0) {
+                removed.add(account);
+            }
+        }
+        return new AccountsDiff(current, next, added, removed, changed);
+    }
+
+    /**
+     * Atomically swaps in the account index computed by
+     * {@link #diff(Collection, Collection, Collection)}.
+     *
+     * @param diff accounts diff to apply
+     */
+    public void apply(AccountsDiff diff) {
+        if (!snapshot.compareAndSet(diff.getBase(), diff.getTarget())) {
+            throw new IllegalStateException("Accounts have changed since the diff was computed");
+        }
+    }
+
+    /**
+     * Returns the key that identifies the account across reloads.
+     *
+     * @param account account
+     * @return account key
+     */
+    static String keyOf(AccountConfig account) {
+        return key(account.getBic(), account.getNumber());
+    }
+
+    private static String key(String bic, String number) {
+        return bic + '/' + number;
+    }
+
+    private synchronized int assignOrdinal(String key) {
+        Integer ordinal = ordinals.get(key);
+        if (ordinal == null) {
+            ordinal = ordinals.size();
+            ordinals.put(key, ordinal);
+        }
+        return ordinal;
+    }
+
+    private static boolean sameDetails(AccountConfig a, AccountConfig b) {
+        // Balance is deliberately ignored, reload never touches live balances.
+        return a.getName().equals(b.getName()) && a.getAddress().equals(b.getAddress());
     }
 
     private static Map<String, AccountConfig> indexAccounts(
@@ -79,11 +203,92 @@ public class AccountsImpl implements Accounts {
                         a -> a));
     }
 
-    private static Optional<BankAccount.Swift> toSwiftAccount(BankAccount account) {
-        if (account.getAccountCase() != SWIFT) {
-            return Optional.empty();
-        } else {
-            return Optional.of(account.getSwift());
+
+    /**
+     * Immutable account index.
+     */
+    static final class Snapshot {
+        private final Map<String, AccountConfig> holdAccounts;
+        private final Map<String, AccountConfig> fxAccounts;
+        private final Map<String, Integer> holdOrdinals;
+        private final Map<String, Integer> fxOrdinals;
+        private final List<AccountConfig> accounts;
+        private final Map<String, Integer> ordinalsByNumber;
+        private final AccountConfig[] accountsByOrdinal;
+
+        private Snapshot(
+                Collection<AccountConfig> holdAccounts,
+                Collection<AccountConfig> fxAccounts,
+                Collection<AccountConfig> customerAccounts,
+                ToIntFunction<String> ordinals) {
+            this.holdAccounts = indexAccounts(holdAccounts);
+            this.fxAccounts = indexAccounts(fxAccounts);
+            List<AccountConfig> accounts = new ArrayList<>(
+                    holdAccounts.size() + fxAccounts.size() + customerAccounts.size());
+            accounts.addAll(holdAccounts);
+            accounts.addAll(fxAccounts);
+            accounts.addAll(customerAccounts);
+            this.accounts = Collections.unmodifiableList(accounts);
+            this.ordinalsByNumber = new HashMap<>(accounts.size() * 4 / 3 + 1);
+            int maxOrdinal = -1;
+            for (AccountConfig account : accounts) {
+                String key = keyOf(account);
+                if (!ordinalsByNumber.containsKey(key)) {
+                    int ordinal = ordinals.applyAsInt(key);
+                    ordinalsByNumber.put(key, ordinal);
+                    maxOrdinal = Math.max(maxOrdinal, ordinal);
+                }
+            }
+            this.accountsByOrdinal = new AccountConfig[maxOrdinal + 1];
+            for (AccountConfig account : accounts) {
+                int ordinal = ordinalsByNumber.get(keyOf(account));
+                if (accountsByOrdinal[ordinal] == null) {
+                    accountsByOrdinal[ordinal] = account;
+                }
+            }
+            this.holdOrdinals = ordinalsByCurrency(this.holdAccounts);
+            this.fxOrdinals = ordinalsByCurrency(this.fxAccounts);
+        }
+
+        /**
+         * Resolves the account to its ordinal. Only SWIFT accounts are
+         * configured, any other kind of account is not found.
+         *
+         * @param account account
+         * @return account ordinal, or -1 if the account is not found
+         */
+        private int ordinalOf(BankAccount account) {
+            if (account.getAccountCase() != SWIFT) {
+                return -1;
+            }
+            BankAccount.Swift swift = account.getSwift();
+            return ordinalOf(key(swift.getBic(), swift.getAccount()));
+        }
+
+        private int ordinalOf(String key) {
+            Integer ordinal = ordinalsByNumber.get(key);
+            return ordinal == null ? -1 : ordinal;
+        }
+
+        private Map<String, Integer> ordinalsByCurrency(Map<String, AccountConfig> accounts) {
+            Map<String, Integer> ordinals = new HashMap<>();
+            accounts.forEach((currency, account) ->
+                    ordinals.put(currency, ordinalsByNumber.get(keyOf(account))));
+            return ordinals;
+        }
+
+        private AccountConfig lookup(int ordinal) {
+            return ordinal < 0 ? null : accountsByOrdinal[ordinal];
+        }
+
+        private List<AccountConfig> indexed() {
+            List<AccountConfig> indexed = new ArrayList<>(ordinalsByNumber.size());
+            for (AccountConfig account : accountsByOrdinal) {
+                if (account != null) {
+                    indexed.add(account);
+                }
+            }
+            return indexed;
         }
     }
 }
@@ -0,0 +1,292 @@
+package io.token.banksample.model.impl;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Records the balance changes of an account, so that the balance can be
+ * looked up as of any point in time. Balances are checkpointed every
+ * {@link #CHECKPOINT_EVERY} changes or {@link #CHECKPOINT_INTERVAL_MS},
+ * whichever comes first; a historical balance is the nearest checkpoint
+ * plus a replay of the changes after it.
+ *
+ * <p>At most {@link #MAX_CHECKPOINTS} checkpoints are kept. When the limit is
+ * reached every other checkpoint is dropped and the spacing doubles, so deep
+ * histories trade a longer replay for bounded memory.
+ *
+ * <p>The older changes can be folded into a base balance and moved to a
+ * {@link TransactionArchive}, see {@link #fold(int)}. Balances as of a time
+ * before the last folded change are then replayed from the archive, so
+ * they stay exact.
+ *
+ * <p>Not thread safe, guarded by the {@link AccountingImpl} lock.
+ */
+final class BalanceHistory {
+    static final int CHECKPOINT_EVERY = 128;
+    static final long CHECKPOINT_INTERVAL_MS = 60 * 60 * 1000;
+    static final int MAX_CHECKPOINTS = 128;
+    // Heap taken by a recorded change: a time and two deltas.
+    static final long BYTES_PER_CHANGE = 24;
+    // Changes are folded at least this many at a time, unless all of them
+    // are, so that the index of the archived records stays small; and at
+    // most this many per archived record.
+    static final int MIN_FOLDED_CHANGES = 64;
+    static final int MAX_CHANGES_PER_RECORD = 64 * 1024;
+
+    private final TransactionArchive archive; // null if never folded
+
+    // Balance changes, from the first one that has not been folded. Change
+    // numbers are counted from the opening of the account, the change
+    // number n is kept at index n - folded.
+    private long[] times = new long[8];
+    private double[] availableDeltas = new double[8];
+    private double[] currentDeltas = new double[8];
+    private int size;
+    // Number of changes folded, the balance after them and the time of the
+    // last one.
+    private int folded;
+    private double foldedAvailable;
+    private double foldedCurrent;
+    private long foldedTime;
+    // Archived records of the folded changes, and the number of the first
+    // change in each.
+    private long[] foldedAddresses = new long[4];
+    private int[] foldedStarts = new int[4];
+    private int records;
+
+    // Checkpoints: balance after the first checkpointPositions[i] changes.
+    private final long[] checkpointTimes = new long[MAX_CHECKPOINTS];
+    private final int[] checkpointPositions = new int[MAX_CHECKPOINTS];
+    private final double[] checkpointAvailable = new double[MAX_CHECKPOINTS];
+    private final double[] checkpointCurrent = new double[MAX_CHECKPOINTS];
+    private int checkpoints;
+    private int every = CHECKPOINT_EVERY;
+    private long intervalMs = CHECKPOINT_INTERVAL_MS;
+
+    /**
+     * Creates new history.
+     *
+     * @param openedAtMs time the account was opened, epoch milliseconds
+     * @param available opening available balance
+     * @param current opening current balance
+     */
+    BalanceHistory(long openedAtMs, double available, double current) {
+        this(openedAtMs, available, current, null);
+    }
+
+    /**
+     * Creates new history.
+     *
+     * @param openedAtMs time the account was opened, epoch milliseconds
+     * @param available opening available balance
+     * @param current opening current balance
+     * @param archive archive to move the folded changes to, or null if the
+     *      changes are never folded
+     */
+    BalanceHistory(
+            long openedAtMs,
+            double available,
+            double current,
+            TransactionArchive archive) {
+        this.archive = archive;
+        foldedAvailable = available;
+        foldedCurrent = current;
+        foldedTime = openedAtMs;
+        checkpoint(openedAtMs, available, current);
+    }
+
+    /**
+     * Records a balance change.
+     *
+     * @param timeMs time of the change, epoch milliseconds
+     * @param availableDelta change of the available balance
+     * @param currentDelta change of the current balance
+     * @param available available balance after the change
+     * @param current current balance after the change
+     */
+    void record(
+            long timeMs,
+            double availableDelta,
+            double currentDelta,
+            double available,
+            double current) {
+        // Keep the times non-decreasing even if the clock goes back, the
+        // lookups rely on it.
+        int kept = size - folded;
+        long previous = kept == 0 ? foldedTime : times[kept - 1];
+        long time = max(timeMs, previous);
+        if (kept == times.length) {
+            times = Arrays.copyOf(times, kept * 2);
+            availableDeltas = Arrays.copyOf(availableDeltas, kept * 2);
+            currentDeltas = Arrays.copyOf(currentDeltas, kept * 2);
+        }
+        times[kept] = time;
+        availableDeltas[kept] = availableDelta;
+        currentDeltas[kept] = currentDelta;
+        size++;
+
+        int last = checkpoints - 1;
+        if (size - checkpointPositions[last] >= every
+                || time - checkpointTimes[last] >= intervalMs) {
+            checkpoint(time, available, current);
+        }
+    }
+
+    /**
+     * Looks up the balance as of the given time.
+     *
+     * @param timeMs time, epoch milliseconds
+     * @return available and current balance, opening balance if the time
+     *      precedes all the changes
+     */
+    double[] balanceAt(long timeMs) {
+        // Last checkpoint taken at or before the time.
+        int low = 1;
+        int high = checkpoints;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (checkpointTimes[mid] <= timeMs) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int checkpoint = low - 1;
+        double available = checkpointAvailable[checkpoint];
+        double current = checkpointCurrent[checkpoint];
+        int from = checkpointPositions[checkpoint] - folded;
+        if (from < 0) {
+            // The changes after the checkpoint have been folded, replay the
+            // archived ones if the time precedes the last of them, or the
+            // kept ones from the base balance otherwise.
+            if (timeMs < foldedTime) {
+                return replayFolded(checkpointPositions[checkpoint], timeMs, available, current);
+            }
+            available = foldedAvailable;
+            current = foldedCurrent;
+            from = 0;
+        }
+        for (int i = from;
+                i < size - folded && times[i] <= timeMs;
+                i++) {
+            available += availableDeltas[i];
+            current += currentDeltas[i];
+        }
+        return new double[] {available, current};
+    }
+
+    /**
+     * Folds all but the most recent changes into a base balance and moves
+     * them to the archive. Changes are only folded once there are at least
+     * {@link #MIN_FOLDED_CHANGES} to fold, or if none are kept.
+     *
+     * @param keep number of most recent changes to keep
+     * @return estimated size of the changes released from memory
+     */
+    long fold(int keep) {
+        int dropped = size - keep - folded;
+        if (dropped <= 0 || (dropped < MIN_FOLDED_CHANGES && keep > 0)) {
+            return 0;
+        }
+        Preconditions.checkState(archive != null, "Balance history is not archived");
+        for (int start = 0; start < dropped; start += MAX_CHANGES_PER_RECORD) {
+            if (records == foldedAddresses.length) {
+                foldedAddresses = Arrays.copyOf(foldedAddresses, records * 2);
+                foldedStarts = Arrays.copyOf(foldedStarts, records * 2);
+            }
+            int count = min(dropped - start, MAX_CHANGES_PER_RECORD);
+            foldedAddresses[records] = archive.appendChanges(
+                    times,
+                    availableDeltas,
+                    currentDeltas,
+                    start,
+                    count);
+            foldedStarts[records] = folded + start;
+            records++;
+        }
+        for (int i = 0; i < dropped; i++) {
+            foldedAvailable += availableDeltas[i];
+            foldedCurrent += currentDeltas[i];
+        }
+        foldedTime = times[dropped - 1];
+        int kept = size - folded - dropped;
+        System.arraycopy(times, dropped, times, 0, kept);
+        System.arraycopy(availableDeltas, dropped, availableDeltas, 0, kept);
+        System.arraycopy(currentDeltas, dropped, currentDeltas, 0, kept);
+        int capacity = max(8, Integer.highestOneBit(max(1, kept)) * 2);
+        if (capacity < times.length) {
+            times = Arrays.copyOf(times, capacity);
+            availableDeltas = Arrays.copyOf(availableDeltas, capacity);
+            currentDeltas = Arrays.copyOf(currentDeltas, capacity);
+        }
+        folded += dropped;
+        return dropped * BYTES_PER_CHANGE;
+    }
+
+    /**
+     * Replays the archived changes from the given change number on, up to
+     * the given time.
+     */
+    private double[] replayFolded(int from, long timeMs, double available, double current) {
+        // Last record starting at or before the change.
+        int low = 1;
+        int high = records;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (foldedStarts[mid] <= from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int change = from;
+        for (int record = low - 1; record < records; record++) {
+            ByteBuffer changes = archive.readChanges(foldedAddresses[record]);
+            changes.position(
+                    (change - foldedStarts[record]) * TransactionArchive.CHANGE_RECORD_BYTES);
+            while (changes.hasRemaining()) {
+                if (changes.getLong() > timeMs) {
+                    return new double[] {available, current};
+                }
+                available += changes.getDouble();
+                current += changes.getDouble();
+                change++;
+            }
+        }
+        return new double[] {available, current};
+    }
+
+    private void checkpoint(long time, double available, double current) {
+        if (checkpoints == MAX_CHECKPOINTS) {
+            thin();
+        }
+        checkpointTimes[checkpoints] = time;
+        checkpointPositions[checkpoints] = size;
+        checkpointAvailable[checkpoints] = available;
+        checkpointCurrent[checkpoints] = current;
+        checkpoints++;
+    }
+
+    /**
+     * Drops every other checkpoint, always keeping the opening balance, and
+     * doubles the spacing of the future checkpoints to match.
+     */
+    private void thin() {
+        int kept = 1;
+        for (int i = 2; i < checkpoints; i += 2) {
+            checkpointTimes[kept] = checkpointTimes[i];
+            checkpointPositions[kept] = checkpointPositions[i];
+            checkpointAvailable[kept] = checkpointAvailable[i];
+            checkpointCurrent[kept] = checkpointCurrent[i];
+            kept++;
+        }
+        checkpoints = kept;
+        every *= 2;
+        intervalMs *= 2;
+    }
+}
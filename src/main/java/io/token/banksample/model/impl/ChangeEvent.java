@@ -0,0 +1,171 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.common.account.AccountProtos.BankAccount.AccountCase.SWIFT;
+
+import io.token.proto.bankapi.Bankapi.StatusCode;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+
+/**
+ * Change published on the {@link ChangeFeed}: either a ledger entry posted or
+ * a transaction status change. Events are identified by their offset in the
+ * feed.
+ */
+public final class ChangeEvent {
+    /**
+     * Kind of change.
+     */
+    public enum Type {
+        ENTRY,
+        STATUS,
+    }
+
+    private final long offset;
+    private final Type type;
+    private final LedgerEntry entry; // null for STATUS
+    private final BankAccount account; // null for ENTRY
+    private final String transactionId; // null for ENTRY
+    private final StatusCode status; // null for ENTRY
+    private final long timestamp;
+
+    private ChangeEvent(
+            long offset,
+            Type type,
+            LedgerEntry entry,
+            BankAccount account,
+            String transactionId,
+            StatusCode status,
+            long timestamp) {
+        this.offset = offset;
+        this.type = type;
+        this.entry = entry;
+        this.account = account;
+        this.transactionId = transactionId;
+        this.status = status;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Creates ledger entry event.
+     *
+     * @param offset feed offset
+     * @param entry posted entry
+     * @return change event
+     */
+    static ChangeEvent entry(long offset, LedgerEntry entry) {
+        return new ChangeEvent(offset, Type.ENTRY, entry, null, null, null, entry.getTimestamp());
+    }
+
+    /**
+     * Creates transaction status event.
+     *
+     * @param offset feed offset
+     * @param account account the transaction belongs to
+     * @param transactionId transaction id
+     * @param status new transaction status
+     * @param timestamp time of the change, epoch milliseconds
+     * @return change event
+     */
+    static ChangeEvent status(
+            long offset,
+            BankAccount account,
+            String transactionId,
+            StatusCode status,
+            long timestamp) {
+        return new ChangeEvent(
+                offset,
+                Type.STATUS,
+                null,
+                account,
+                transactionId,
+                status,
+                timestamp);
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the posted ledger entry.
+     *
+     * @return ledger entry, null unless this is an {@link Type#ENTRY} event
+     */
+    public LedgerEntry getEntry() {
+        return entry;
+    }
+
+    /**
+     * Returns account of the transaction.
+     *
+     * @return account, null unless this is a {@link Type#STATUS} event
+     */
+    public BankAccount getAccount() {
+        return account;
+    }
+
+    /**
+     * Returns id of the transaction.
+     *
+     * @return transaction id, null unless this is a {@link Type#STATUS} event
+     */
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    /**
+     * Returns new status of the transaction.
+     *
+     * @return status, null unless this is a {@link Type#STATUS} event
+     */
+    public StatusCode getStatus() {
+        return status;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Formats the event as a single tab separated line, as written to the
+     * change log files and the feed socket. Accounts are written as
+     * {@code BIC/number}.
+     *
+     * <pre>
+     * offset  ENTRY   transferId  account  counterparty  amount  currency  timestamp
+     * offset  STATUS  account     transactionId  status  timestamp
+     * </pre>
+     *
+     * @return formatted event, without the line separator
+     */
+    public String toLine() {
+        if (type == Type.ENTRY) {
+            return offset
+                    + "\tENTRY\t" + entry.getTransferId()
+                    + '\t' + format(entry.getAccount())
+                    + '\t' + format(entry.getCounterPartyAccount())
+                    + '\t' + entry.getAmount()
+                    + '\t' + entry.getCurrency()
+                    + '\t' + timestamp;
+        }
+        return offset
+                + "\tSTATUS\t" + format(account)
+                + '\t' + transactionId
+                + '\t' + status
+                + '\t' + timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return toLine();
+    }
+
+    private static String format(BankAccount account) {
+        return account.getAccountCase() == SWIFT
+                ? account.getSwift().getBic() + '/' + account.getSwift().getAccount()
+                : account.getAccountCase().name();
+    }
+}
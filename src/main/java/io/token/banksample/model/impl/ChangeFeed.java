@@ -0,0 +1,187 @@
+package io.token.banksample.model.impl;
+
+import static java.util.Collections.emptyList;
+
+import com.google.common.base.Preconditions;
+import io.token.proto.bankapi.Bankapi.StatusCode;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ordered feed of ledger postings and transaction status changes for
+ * downstream consumers. Every event gets the next offset, starting at the
+ * offset the feed is created with, so that offsets can continue across
+ * restarts.
+ *
+ * <p>The most recent events are retained in a ring buffer. Publishing never
+ * waits for the consumers: they pull batches at their own pace through a
+ * {@link Subscription}, and a consumer that falls further behind than the
+ * ring buffer holds fails instead of stalling the posting path. Such a
+ * consumer can catch up from the change log files and resubscribe, or
+ * resubscribe at the {@link #oldestOffset() oldest retained event} and skip
+ * the events in between.
+ */
+public final class ChangeFeed {
+    private final ChangeEvent[] events;
+    private final long firstOffset;
+    private long nextOffset;
+    private int waiting;
+
+    /**
+     * Creates new feed.
+     *
+     * @param retained number of most recent events to keep in memory
+     */
+    public ChangeFeed(int retained) {
+        this(retained, 0);
+    }
+
+    /**
+     * Creates new feed.
+     *
+     * @param retained number of most recent events to keep in memory
+     * @param firstOffset offset of the first event
+     */
+    public ChangeFeed(int retained, long firstOffset) {
+        Preconditions.checkArgument(retained > 0);
+        Preconditions.checkArgument(firstOffset >= 0);
+        this.events = new ChangeEvent[retained];
+        this.firstOffset = firstOffset;
+        this.nextOffset = firstOffset;
+    }
+
+    /**
+     * Publishes posted ledger entry.
+     *
+     * @param entry ledger entry
+     */
+    synchronized void publish(LedgerEntry entry) {
+        append(ChangeEvent.entry(nextOffset, entry));
+    }
+
+    /**
+     * Publishes transaction status change.
+     *
+     * @param account account the transaction belongs to
+     * @param transactionId transaction id
+     * @param status new transaction status
+     */
+    synchronized void publish(BankAccount account, String transactionId, StatusCode status) {
+        append(ChangeEvent.status(
+                nextOffset,
+                account,
+                transactionId,
+                status,
+                System.currentTimeMillis()));
+    }
+
+    /**
+     * Returns offset the next event will be published at.
+     *
+     * @return next offset
+     */
+    public synchronized long nextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * Returns offset of the oldest event still retained.
+     *
+     * @return oldest offset, {@link #nextOffset()} if nothing was published
+     */
+    public synchronized long oldestOffset() {
+        return Math.max(firstOffset, nextOffset - events.length);
+    }
+
+    /**
+     * Subscribes to the events starting at the given offset.
+     *
+     * @param offset offset of the first event to receive, from the offset of
+     *      the first event up to {@link #nextOffset()}
+     * @return subscription
+     */
+    public synchronized Subscription subscribe(long offset) {
+        Preconditions.checkArgument(
+                offset >= firstOffset && offset <= nextOffset,
+                "Bad offset: %s",
+                offset);
+        return new Subscription(offset);
+    }
+
+    private void append(ChangeEvent event) {
+        events[(int) (nextOffset % events.length)] = event;
+        nextOffset++;
+        if (waiting > 0) {
+            notifyAll();
+        }
+    }
+
+    private synchronized List<ChangeEvent> read(Subscription subscription, int max, long timeoutMs)
+            throws InterruptedException {
+        long offset = subscription.offset;
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (offset >= nextOffset) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return emptyList();
+            }
+            waiting++;
+            try {
+                wait(remaining);
+            } finally {
+                waiting--;
+            }
+        }
+        if (offset < nextOffset - events.length) {
+            throw new IllegalStateException("Offset is no longer retained: " + offset);
+        }
+        int count = (int) Math.min(max, nextOffset - offset);
+        List<ChangeEvent> batch = new ArrayList<>(count);
+        for (long o = offset; o < offset + count; o++) {
+            batch.add(events[(int) (o % events.length)]);
+        }
+        subscription.offset = offset + count;
+        return batch;
+    }
+
+    /**
+     * Position of a consumer in the feed.
+     */
+    public final class Subscription {
+        // Guarded by the feed lock.
+        private long offset;
+
+        private Subscription(long offset) {
+            this.offset = offset;
+        }
+
+        /**
+         * Returns offset of the next event to receive.
+         *
+         * @return offset
+         */
+        public long offset() {
+            synchronized (ChangeFeed.this) {
+                return offset;
+            }
+        }
+
+        /**
+         * Returns the next batch of events, waiting for at least one to be
+         * published.
+         *
+         * @param max max number of events to return
+         * @param timeout max time to wait
+         * @return next events, empty if none were published within the timeout
+         * @throws InterruptedException if interrupted while waiting
+         * @throws IllegalStateException if the subscription has fallen behind
+         *      the retained events
+         */
+        public List<ChangeEvent> poll(int max, Duration timeout) throws InterruptedException {
+            return read(this, max, timeout.toMillis());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package io.token.banksample.model.impl;
+
+import io.token.banksample.model.Accounts;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns accounts and currencies to dense codes for the
+ * {@link TransactionCodec}. Accounts of the book are written as their
+ * {@link Accounts#lookupOrdinal ordinals}, the accounts outside of it are
+ * interned here. Records only refer to the codes, so they can only be decoded
+ * with the dictionary that encoded them; anything that ships the records out
+ * of the process has to ship the dictionary along.
+ *
+ * <p>Codes are assigned under a lock and published through volatile arrays,
+ * so decoding does not take the lock.
+ */
+final class CodecDictionary {
+    private final Accounts book;
+    private final Map<BankAccount, Integer> externalOrdinals = new HashMap<>();
+    private final Map<String, Integer> currencyOrdinals = new HashMap<>();
+    // Indexed by the book ordinal, kept so that the records of the accounts
+    // removed on reload can still be decoded.
+    private volatile BankAccount[] bookAccounts = new BankAccount[64];
+    private volatile BankAccount[] externalAccounts = new BankAccount[64];
+    private volatile String[] currencies = new String[16];
+    private volatile int[] currencyScales = new int[16];
+
+    /**
+     * Creates new instance.
+     *
+     * @param book accounts of the book
+     */
+    CodecDictionary(Accounts book) {
+        this.book = book;
+    }
+
+    /**
+     * Returns code of the account, resolving it to its book ordinal.
+     *
+     * @param account account
+     * @return account code
+     */
+    int accountCode(BankAccount account) {
+        return accountCode(account, book.lookupOrdinal(account));
+    }
+
+    /**
+     * Returns code of the account that has already been resolved to its
+     * book ordinal.
+     *
+     * @param account account
+     * @param ordinal book ordinal of the account, -1 if it is not in the book
+     * @return account code
+     */
+    int accountCode(BankAccount account, int ordinal) {
+        if (ordinal < 0) {
+            return externalOrdinal(account) << 1 | 1;
+        }
+        BankAccount[] snapshot = bookAccounts;
+        if (ordinal >= snapshot.length || snapshot[ordinal] == null) {
+            addBookAccount(account, ordinal);
+        }
+        return ordinal << 1;
+    }
+
+    private synchronized void addBookAccount(BankAccount account, int ordinal) {
+        BankAccount[] grown = ordinal >= bookAccounts.length
+                ? Arrays.copyOf(bookAccounts, Math.max(ordinal + 1, bookAccounts.length * 2))
+                : bookAccounts;
+        grown[ordinal] = account;
+        bookAccounts = grown;
+    }
+
+    private synchronized int externalOrdinal(BankAccount account) {
+        Integer ordinal = externalOrdinals.get(account);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        int next = externalOrdinals.size();
+        BankAccount[] grown = next == externalAccounts.length
+                ? Arrays.copyOf(externalAccounts, next * 2)
+                : externalAccounts;
+        grown[next] = account;
+        externalAccounts = grown;
+        externalOrdinals.put(account, next);
+        return next;
+    }
+
+    /**
+     * Returns ordinal of the currency, assigning the next one if the currency
+     * has not been seen before.
+     *
+     * @param currency currency code
+     * @return currency ordinal
+     */
+    synchronized int currencyOrdinal(String currency) {
+        Integer ordinal = currencyOrdinals.get(currency);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        int next = currencyOrdinals.size();
+        String[] grownCurrencies = currencies;
+        int[] grownScales = currencyScales;
+        if (next == grownCurrencies.length) {
+            grownCurrencies = Arrays.copyOf(grownCurrencies, next * 2);
+            grownScales = Arrays.copyOf(grownScales, next * 2);
+        }
+        grownCurrencies[next] = currency;
+        grownScales[next] = ColumnarLedgerStorage.scaleOf(currency);
+        currencyScales = grownScales;
+        currencies = grownCurrencies;
+        currencyOrdinals.put(currency, next);
+        return next;
+    }
+
+    /**
+     * Looks up account by code.
+     *
+     * @param code account code
+     * @return account, null if the code has not been assigned
+     */
+    BankAccount account(int code) {
+        BankAccount[] snapshot = (code & 1) == 0 ? bookAccounts : externalAccounts;
+        int ordinal = code >>> 1;
+        return ordinal < snapshot.length ? snapshot[ordinal] : null;
+    }
+
+    /**
+     * Returns book ordinal the account code was assigned for.
+     *
+     * @param code account code
+     * @return account ordinal, -1 if the account is not in the book
+     */
+    static int bookOrdinal(int code) {
+        return (code & 1) == 0 ? code >>> 1 : -1;
+    }
+
+    /**
+     * Looks up currency by ordinal.
+     *
+     * @param ordinal currency ordinal
+     * @return currency code, null if the ordinal has not been assigned
+     */
+    String currency(int ordinal) {
+        String[] snapshot = currencies;
+        return ordinal >= 0 && ordinal < snapshot.length ? snapshot[ordinal] : null;
+    }
+
+    /**
+     * Returns number of minor unit digits of the currency.
+     *
+     * @param ordinal currency ordinal
+     * @return currency scale
+     */
+    int scale(int ordinal) {
+        return currencyScales[ordinal];
+    }
+}
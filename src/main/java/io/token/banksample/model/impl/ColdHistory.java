@@ -0,0 +1,104 @@
+package io.token.banksample.model.impl;
+
+import java.util.Arrays;
+
+/**
+ * Index of the transactions of an account that have been moved to the
+ * {@link TransactionArchive}. Keeps the archive addresses in the order the
+ * transactions were created, and an open addressing table from the
+ * transaction id hash to the position, which takes about 20 bytes per
+ * transaction instead of the transaction itself.
+ *
+ * <p>Not thread safe, guarded by the {@link AccountingImpl} lock.
+ */
+final class ColdHistory {
+    private long[] addresses = new long[16];
+    private int[] hashes = new int[16];
+    private int size;
+    // Position + 1 of the transaction in each slot, 0 if the slot is empty.
+    private int[] table = new int[32];
+
+    /**
+     * Adds archived transaction. Transactions must be added in the order they
+     * were created.
+     *
+     * @param id transaction id
+     * @param address archive address
+     */
+    void add(String id, long address) {
+        if (size == addresses.length) {
+            addresses = Arrays.copyOf(addresses, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        addresses[size] = address;
+        hashes[size] = id.hashCode();
+        size++;
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        } else {
+            insert(size - 1);
+        }
+    }
+
+    /**
+     * Returns number of archived transactions.
+     *
+     * @return size
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns archive address of the transaction at the given position,
+     * oldest first.
+     *
+     * @param position position
+     * @return archive address
+     */
+    long addressAt(int position) {
+        return addresses[position];
+    }
+
+    /**
+     * Finds archive address of the transaction with the given id. The id
+     * hashes are checked in memory, the archive is only read for the
+     * candidates with a matching hash, and only their ids are decoded.
+     *
+     * @param id transaction id
+     * @param archive archive to check the candidate ids against
+     * @return archive address, or -1 if not found
+     */
+    long find(String id, TransactionArchive archive) {
+        int hash = id.hashCode();
+        int mask = table.length - 1;
+        for (int slot = mix(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int position = table[slot] - 1;
+            if (hashes[position] == hash
+                    && archive.readId(addresses[position]).equals(id)) {
+                return addresses[position];
+            }
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        for (int position = 0; position < size; position++) {
+            insert(position);
+        }
+    }
+
+    private void insert(int position) {
+        int mask = table.length - 1;
+        int slot = mix(hashes[position]) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = position + 1;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,332 @@
+package io.token.banksample.model.impl;
+
+import static java.math.BigDecimal.ZERO;
+import static java.math.RoundingMode.CEILING;
+
+import io.token.banksample.model.Currencies;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores ledger entries in primitive columns: account and counterparty
+ * ordinals, amounts in minor currency units, currency ordinals, transfer
+ * ids and posting times. Amounts that are not whole in the minor units of
+ * their currency, or too large to be held exactly, are kept as they are on
+ * the side and the amount column holds a marker for them, so that no amount
+ * is ever rounded. Account ordinals are the ones the entries carry,
+ * accounts are kept once in an array indexed by them and currencies in a
+ * dictionary; {@link LedgerEntry} objects and entry ids are only created
+ * when an entry is read back.
+ *
+ * <p>Columns are split into fixed size segments that are never copied once
+ * allocated, and the scans run tight loops over the primitive arrays of each
+ * segment.
+ */
+final class ColumnarLedgerStorage implements LedgerStorage {
+    private static final int SEGMENT_BITS = 16;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000};
+    // Amounts whose minor units are at least this large may not be exact.
+    private static final long MAX_EXACT = 1L << 53;
+    // Amount column marker for the amounts kept in rawAmounts.
+    private static final long RAW = Long.MIN_VALUE;
+
+    // Columns.
+    private int[][] accountColumn = new int[16][];
+    private int[][] counterpartyColumn = new int[16][];
+    private long[][] amountColumn = new long[16][];
+    private short[][] currencyColumn = new short[16][];
+    private long[][] transferColumn = new long[16][];
+    private long[][] timestampColumn = new long[16][];
+
+    // Dictionaries. The lookup map is only used by the writer, readers go
+    // through the arrays.
+    private final Map<String, Integer> currencyOrdinals = new HashMap<>();
+    private BankAccount[] accounts = new BankAccount[1024];
+    private String[] currencies = new String[16];
+    private int[] currencyScales = new int[16];
+    // Amounts that are not whole in minor units, by position. Rare.
+    private final Map<Integer, Double> rawAmounts = new ConcurrentHashMap<>();
+
+    // Written after the columns and the dictionaries, publishes them to the
+    // readers that don't hold the ledger lock.
+    private volatile int size;
+
+    @Override
+    public void append(LedgerEntry entry) {
+        int position = size;
+        int segment = position >>> SEGMENT_BITS;
+        int offset = position & SEGMENT_MASK;
+        if (segment == amountColumn.length) {
+            growColumns(segment * 2);
+        }
+        if (amountColumn[segment] == null) {
+            allocateSegment(segment);
+        }
+        int currency = currencyOrdinal(entry.getCurrency());
+        accountColumn[segment][offset] =
+                account(entry.getAccountOrdinal(), entry.getAccount());
+        counterpartyColumn[segment][offset] =
+                account(entry.getCounterPartyOrdinal(), entry.getCounterPartyAccount());
+        long amount = minorUnits(entry.getAmount(), currencyScales[currency]);
+        if (amount == RAW) {
+            rawAmounts.put(position, entry.getAmount());
+        }
+        amountColumn[segment][offset] = amount;
+        currencyColumn[segment][offset] = (short) currency;
+        transferColumn[segment][offset] = entry.getTransferId();
+        timestampColumn[segment][offset] = entry.getTimestamp();
+        size = position + 1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public LedgerEntry entryAt(int position) {
+        int segment = position >>> SEGMENT_BITS;
+        int offset = position & SEGMENT_MASK;
+        int currency = currencyColumn[segment][offset];
+        int account = accountColumn[segment][offset];
+        int counterparty = counterpartyColumn[segment][offset];
+        long amount = amountColumn[segment][offset];
+        return LedgerEntry.create(
+                transferColumn[segment][offset],
+                accounts[account],
+                account,
+                accounts[counterparty],
+                counterparty,
+                amount == RAW
+                        ? rawAmounts.get(position)
+                        : amount / (double) POWERS_OF_TEN[currencyScales[currency]],
+                currencies[currency],
+                timestampColumn[segment][offset]);
+    }
+
+    @Override
+    public long timestampAt(int position) {
+        return timestampColumn[position >>> SEGMENT_BITS][position & SEGMENT_MASK];
+    }
+
+    @Override
+    public BigDecimal sum(String currency, int from, int to) {
+        Integer ordinal = findCurrency(currency);
+        if (ordinal == null) {
+            return ZERO;
+        }
+        short c = ordinal.shortValue();
+        long sum = 0;
+        BigDecimal raw = ZERO;
+        for (int p = from; p < to; ) {
+            int segment = p >>> SEGMENT_BITS;
+            int start = p & SEGMENT_MASK;
+            int end = Math.min(SEGMENT_SIZE, start + to - p);
+            short[] currencyCodes = currencyColumn[segment];
+            long[] amounts = amountColumn[segment];
+            for (int i = start; i < end; i++) {
+                if (currencyCodes[i] != c) {
+                    continue;
+                }
+                if (amounts[i] == RAW) {
+                    raw = raw.add(rawAmount((segment << SEGMENT_BITS) + i));
+                } else {
+                    sum += amounts[i];
+                }
+            }
+            p += end - start;
+        }
+        return BigDecimal.valueOf(sum, currencyScales[c]).add(raw);
+    }
+
+    @Override
+    public PositionList filter(String currency, BigDecimal minAmount, int from, int to) {
+        PositionList positions = new PositionList();
+        Integer ordinal = findCurrency(currency);
+        if (ordinal == null) {
+            return positions;
+        }
+        short c = ordinal.shortValue();
+        long min = minAmount
+                .setScale(currencyScales[c], CEILING)
+                .unscaledValue()
+                .longValue();
+        for (int p = from; p < to; ) {
+            int segment = p >>> SEGMENT_BITS;
+            int start = p & SEGMENT_MASK;
+            int end = Math.min(SEGMENT_SIZE, start + to - p);
+            short[] currencyCodes = currencyColumn[segment];
+            long[] amounts = amountColumn[segment];
+            int base = segment << SEGMENT_BITS;
+            for (int i = start; i < end; i++) {
+                if (currencyCodes[i] != c) {
+                    continue;
+                }
+                if (amounts[i] == RAW
+                        ? rawAmount(base + i).abs().compareTo(minAmount) >= 0
+                        : Math.abs(amounts[i]) >= min) {
+                    positions.add(base + i);
+                }
+            }
+            p += end - start;
+        }
+        return positions;
+    }
+
+    @Override
+    public LedgerTotals totals(int from, int to) {
+        // Read the dictionaries once, they only grow.
+        String[] currencies = this.currencies;
+        int[] scales = this.currencyScales;
+        int accounts = this.accounts.length;
+
+        // Account totals may mix currencies of different scales, sum them in
+        // the units of the smallest one.
+        int maxScale = 0;
+        for (int c = 0; c < currencies.length && currencies[c] != null; c++) {
+            maxScale = Math.max(maxScale, scales[c]);
+        }
+        long[] multipliers = new long[currencies.length];
+        for (int c = 0; c < currencies.length && currencies[c] != null; c++) {
+            multipliers[c] = POWERS_OF_TEN[maxScale - scales[c]];
+        }
+
+        long[] byCurrency = new long[currencies.length];
+        long[] byAccount = new long[accounts];
+        boolean[] seen = new boolean[accounts];
+        LedgerTotals totals = new LedgerTotals();
+        for (int p = from; p < to; ) {
+            int segment = p >>> SEGMENT_BITS;
+            int start = p & SEGMENT_MASK;
+            int end = Math.min(SEGMENT_SIZE, start + to - p);
+            short[] currencyCodes = currencyColumn[segment];
+            int[] accountCodes = accountColumn[segment];
+            long[] amounts = amountColumn[segment];
+            for (int i = start; i < end; i++) {
+                if (amounts[i] == RAW) {
+                    BigDecimal raw = rawAmount((segment << SEGMENT_BITS) + i);
+                    totals.addCurrency(currencies[currencyCodes[i]], raw);
+                    totals.addAccount(accountCodes[i], raw);
+                    continue;
+                }
+                byCurrency[currencyCodes[i]] += amounts[i];
+                byAccount[accountCodes[i]] += amounts[i] * multipliers[currencyCodes[i]];
+                seen[accountCodes[i]] = true;
+            }
+            p += end - start;
+        }
+
+        for (int c = 0; c < currencies.length && currencies[c] != null; c++) {
+            totals.addCurrency(currencies[c], BigDecimal.valueOf(byCurrency[c], scales[c]));
+        }
+        for (int a = 0; a < accounts; a++) {
+            if (seen[a]) {
+                totals.addAccount(a, BigDecimal.valueOf(byAccount[a], maxScale));
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Looks up currency ordinal from the reader side. The ordinal is only
+     * valid if it was assigned before the entries being scanned.
+     */
+    private Integer findCurrency(String currency) {
+        String[] currencies = this.currencies;
+        for (int c = 0; c < currencies.length && currencies[c] != null; c++) {
+            if (currencies[c].equals(currency)) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    private BigDecimal rawAmount(int position) {
+        return BigDecimal.valueOf(rawAmounts.get(position));
+    }
+
+    /**
+     * Converts amount to minor units of the currency.
+     *
+     * @param amount amount
+     * @param scale currency scale
+     * @return minor units, or {@link #RAW} if the amount is not whole in
+     *      minor units or too large to be held exactly
+     */
+    private static long minorUnits(double amount, int scale) {
+        long minor = Math.round(amount * POWERS_OF_TEN[scale]);
+        return Math.abs(minor) < MAX_EXACT && minor / (double) POWERS_OF_TEN[scale] == amount
+                ? minor
+                : RAW;
+    }
+
+    /**
+     * Remembers the account under its ordinal, for reading the entries back.
+     */
+    private int account(int ordinal, BankAccount account) {
+        if (ordinal >= accounts.length) {
+            accounts = Arrays.copyOf(accounts, Math.max(ordinal + 1, accounts.length * 2));
+        }
+        if (accounts[ordinal] == null) {
+            accounts[ordinal] = account;
+        }
+        return ordinal;
+    }
+
+    private int currencyOrdinal(String currency) {
+        Integer ordinal = currencyOrdinals.get(currency);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        int next = currencyOrdinals.size();
+        if (next > Short.MAX_VALUE) {
+            throw new IllegalStateException("Too many currencies: " + next);
+        }
+        if (next == currencies.length) {
+            currencyScales = Arrays.copyOf(currencyScales, next * 2);
+            currencies = Arrays.copyOf(currencies, next * 2);
+        }
+        currencyScales[next] = scaleOf(currency);
+        currencies[next] = currency;
+        currencyOrdinals.put(currency, next);
+        return next;
+    }
+
+    private void growColumns(int segments) {
+        accountColumn = Arrays.copyOf(accountColumn, segments);
+        counterpartyColumn = Arrays.copyOf(counterpartyColumn, segments);
+        amountColumn = Arrays.copyOf(amountColumn, segments);
+        currencyColumn = Arrays.copyOf(currencyColumn, segments);
+        transferColumn = Arrays.copyOf(transferColumn, segments);
+        timestampColumn = Arrays.copyOf(timestampColumn, segments);
+    }
+
+    private void allocateSegment(int segment) {
+        accountColumn[segment] = new int[SEGMENT_SIZE];
+        counterpartyColumn[segment] = new int[SEGMENT_SIZE];
+        amountColumn[segment] = new long[SEGMENT_SIZE];
+        currencyColumn[segment] = new short[SEGMENT_SIZE];
+        transferColumn[segment] = new long[SEGMENT_SIZE];
+        timestampColumn[segment] = new long[SEGMENT_SIZE];
+    }
+
+    /**
+     * Returns number of minor unit digits of the currency, see
+     * {@link Currencies#scaleOf}, capped at 4.
+     *
+     * @param currency currency code
+     * @return currency scale
+     * @throws IllegalArgumentException if the currency is not an ISO 4217
+     *      currency
+     */
+    static int scaleOf(String currency) {
+        return Math.min(Currencies.scaleOf(currency), POWERS_OF_TEN.length - 1);
+    }
+}
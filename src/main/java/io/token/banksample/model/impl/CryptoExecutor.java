@@ -0,0 +1,190 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.bankapi.Bankapi.StatusCode.FAILURE_GENERIC;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import io.token.sdk.api.BankException;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded executor for signing and encryption done during account linking.
+ * The crypto runs on a fixed number of threads, so a linking burst uses at
+ * most that many CPUs and queues up here instead of starving balance and
+ * transfer calls of CPU. The request thread still waits for the result, for
+ * up to the deadline, since the account linking service is synchronous; the
+ * authorization cache is what keeps requests off this path. When the queue
+ * is full the request is rejected right away; a request that has waited in
+ * the queue past its deadline is dropped without doing the crypto.
+ */
+public final class CryptoExecutor {
+    private final static Logger logger = LoggerFactory.getLogger(CryptoExecutor.class);
+    private static final long REPORT_EVERY = 10_000;
+
+    private final ThreadPoolExecutor pool;
+    private final long deadlineNanos;
+    private final LongAdder queueNanos = new LongAdder();
+    private final LongAdder cryptoNanos = new LongAdder();
+    private final AtomicLong completed = new AtomicLong();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    /**
+     * Creates new executor.
+     *
+     * @param threads number of crypto threads
+     * @param queueSize max number of requests waiting for a crypto thread
+     * @param deadline max time a request waits for its result, including
+     *      time spent in the queue
+     * @param warmUp task that is run once on every crypto thread before it
+     *      starts serving requests; used to initialize per-thread key and
+     *      cipher state ahead of traffic
+     */
+    public CryptoExecutor(int threads, int queueSize, Duration deadline, Runnable warmUp) {
+        this.deadlineNanos = deadline.toNanos();
+        this.pool = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0,
+                MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                warmingThreadFactory(warmUp),
+                new ThreadPoolExecutor.AbortPolicy());
+        pool.prestartAllCoreThreads();
+    }
+
+    private CryptoExecutor() {
+        this.pool = null;
+        this.deadlineNanos = Long.MAX_VALUE;
+    }
+
+    /**
+     * Creates an executor that runs the crypto on the calling thread.
+     *
+     * @return same thread executor
+     */
+    public static CryptoExecutor sameThread() {
+        return new CryptoExecutor();
+    }
+
+    /**
+     * Runs the crypto task and waits for its result, blocking the calling
+     * thread for up to the deadline.
+     *
+     * @param task task to run
+     * @param <T> result type
+     * @return task result
+     */
+    public <T> T execute(Supplier<T> task) {
+        if (pool == null) {
+            return timed(task, System.nanoTime());
+        }
+
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = pool.submit(() -> {
+                if (System.nanoTime() - submittedAt > deadlineNanos) {
+                    expired.increment();
+                    throw new CancellationException("Deadline exceeded while queued");
+                }
+                return timed(task, submittedAt);
+            });
+        } catch (RejectedExecutionException ex) {
+            rejected.increment();
+            throw new BankException(FAILURE_GENERIC, "Account linking is overloaded");
+        }
+
+        try {
+            return future.get(deadlineNanos - (System.nanoTime() - submittedAt), NANOSECONDS);
+        } catch (TimeoutException | CancellationException ex) {
+            future.cancel(false);
+            expired.increment();
+            throw new BankException(FAILURE_GENERIC, "Account linking timed out");
+        } catch (InterruptedException ex) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new BankException(FAILURE_GENERIC, "Account linking interrupted");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof CancellationException) {
+                throw new BankException(FAILURE_GENERIC, "Account linking timed out");
+            }
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private <T> T timed(Supplier<T> task, long submittedAt) {
+        long startedAt = System.nanoTime();
+        try {
+            return task.get();
+        } finally {
+            queueNanos.add(startedAt - submittedAt);
+            cryptoNanos.add(System.nanoTime() - startedAt);
+            if (completed.incrementAndGet() % REPORT_EVERY == 0) {
+                logger.info("Crypto executor: {}", this);
+            }
+        }
+    }
+
+    /**
+     * Returns average time a request spent waiting for a crypto thread.
+     *
+     * @return average queue time
+     */
+    public Duration averageQueueTime() {
+        return Duration.ofNanos(queueNanos.sum() / Math.max(1, completed.get()));
+    }
+
+    /**
+     * Returns average time spent doing the crypto.
+     *
+     * @return average crypto time
+     */
+    public Duration averageCryptoTime() {
+        return Duration.ofNanos(cryptoNanos.sum() / Math.max(1, completed.get()));
+    }
+
+    @Override
+    public String toString() {
+        return "completed: " + completed.get()
+                + ", rejected: " + rejected.sum()
+                + ", expired: " + expired.sum()
+                + ", avg queue: " + averageQueueTime().toNanos() / 1000 + "us"
+                + ", avg crypto: " + averageCryptoTime().toNanos() / 1000 + "us";
+    }
+
+    private static ThreadFactory warmingThreadFactory(Runnable warmUp) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(() -> {
+                try {
+                    warmUp.run();
+                } catch (RuntimeException ex) {
+                    logger.warn("Crypto thread warm up failed", ex);
+                }
+                runnable.run();
+            }, "crypto-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,81 @@
+package io.token.banksample.model.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates the FX to hold account legs of FX debits into net positions per
+ * currency pair. Instead of posting a leg per debit, each position is posted
+ * as a single summarized transfer when the netting window closes. The
+ * customer to FX account leg of each debit is still posted individually, so
+ * that every customer debit keeps an exact ledger record.
+ *
+ * <p>Not thread safe, guarded by the {@link AccountingImpl} lock.
+ */
+final class FxNetting {
+    private final Map<String, Position> positions = new LinkedHashMap<>();
+
+    /**
+     * Adds FX leg to the net position of the currency pair.
+     *
+     * @param sourceCurrency customer account currency
+     * @param settlementCurrency transfer currency
+     * @param amount leg amount, in the settlement currency
+     */
+    void add(String sourceCurrency, String settlementCurrency, double amount) {
+        positions
+                .computeIfAbsent(
+                        sourceCurrency + "/" + settlementCurrency,
+                        pair -> new Position(settlementCurrency))
+                .add(amount);
+    }
+
+    /**
+     * Closes the netting window: returns the net positions accumulated since
+     * the last call and starts over.
+     *
+     * @return net positions, one per currency pair
+     */
+    List<Position> drain() {
+        List<Position> drained = new ArrayList<>(positions.values());
+        positions.clear();
+        return drained;
+    }
+
+    /**
+     * Net position of a currency pair within the netting window.
+     */
+    static final class Position {
+        private final String currency;
+        private BigDecimal amount = BigDecimal.ZERO;
+
+        private Position(String currency) {
+            this.currency = currency;
+        }
+
+        private void add(double legAmount) {
+            amount = amount.add(BigDecimal.valueOf(legAmount));
+        }
+
+        /**
+         * Returns settlement currency of the position.
+         *
+         * @return currency
+         */
+        String getCurrency() {
+            return currency;
+        }
+
+        /**
+         * Returns net amount of the position, in the settlement currency.
+         *
+         * @return amount
+         */
+        BigDecimal getAmount() {
+            return amount;
+        }
+    }
+}
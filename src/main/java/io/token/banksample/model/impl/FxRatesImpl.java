@@ -0,0 +1,123 @@
+package io.token.banksample.model.impl;
+
+import static java.math.BigDecimal.ONE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import io.token.banksample.model.FxQuote;
+import io.token.banksample.model.FxRateProvider;
+import io.token.banksample.model.FxRates;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches FX quotes per currency pair. Lookups only read the cache, quotes are
+ * fetched from the {@link FxRateProvider} in the background: refreshed ahead
+ * of expiry, or fetched after a lookup has missed. Each pair can have its own
+ * time to live.
+ */
+public final class FxRatesImpl implements FxRates {
+    private static final Logger logger = LoggerFactory.getLogger(FxRatesImpl.class);
+
+    private final FxRateProvider provider;
+    private final Duration ttl;
+    private final Map<String, Duration> ttlByPair;
+    private final ScheduledExecutorService refreshExecutor;
+    // Base currency -> quote currency -> quote, so that lookups don't need to
+    // build a pair key.
+    private final Map<String, Map<String, FxQuote>> quotes;
+    private final Set<String> refreshScheduled;
+
+    /**
+     * Creates new instance.
+     *
+     * @param provider FX rate provider
+     * @param ttl how long quotes are valid for
+     * @param ttlByPair per pair override of the time to live, keyed by the
+     *      concatenated base and quote currencies, e.g. EURUSD
+     * @param refreshExecutor executor to fetch the quotes on
+     */
+    public FxRatesImpl(
+            FxRateProvider provider,
+            Duration ttl,
+            Map<String, Duration> ttlByPair,
+            ScheduledExecutorService refreshExecutor) {
+        this.provider = provider;
+        this.ttl = ttl;
+        this.ttlByPair = new HashMap<>(ttlByPair);
+        this.refreshExecutor = refreshExecutor;
+        this.quotes = new ConcurrentHashMap<>();
+        this.refreshScheduled = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Fetches quotes for all the pairs of the given currencies, so that the
+     * first transfers don't miss. Quotes are then kept fresh in the
+     * background.
+     *
+     * @param currencies currencies to fetch the quotes for
+     */
+    public void prewarm(Collection<String> currencies) {
+        for (String base : currencies) {
+            for (String quote : currencies) {
+                if (!base.equals(quote)) {
+                    refresh(base, quote);
+                }
+            }
+        }
+        logger.info("Prewarmed FX quotes for {} currencies", currencies.size());
+    }
+
+    @Override
+    public Optional<FxQuote> lookupQuote(String baseCurrency, String quoteCurrency) {
+        if (baseCurrency.equals(quoteCurrency)) {
+            return Optional.of(FxQuote.create(baseCurrency, quoteCurrency, ONE, Long.MAX_VALUE));
+        }
+        Map<String, FxQuote> byQuote = quotes.get(baseCurrency);
+        FxQuote quote = byQuote == null ? null : byQuote.get(quoteCurrency);
+        if (quote == null || quote.isExpired(System.currentTimeMillis())) {
+            scheduleRefresh(baseCurrency, quoteCurrency, 0);
+            return Optional.empty();
+        }
+        return Optional.of(quote);
+    }
+
+    /**
+     * Fetches a quote and schedules the next refresh at 80% of its time to
+     * live. Failed fetches are not retried, the next lookup of the pair will
+     * try again.
+     */
+    private void refresh(String base, String quote) {
+        Duration pairTtl = ttlByPair.getOrDefault(base + quote, ttl);
+        try {
+            FxQuote fxQuote = FxQuote.create(
+                    base,
+                    quote,
+                    provider.fetchRate(base, quote),
+                    System.currentTimeMillis() + pairTtl.toMillis());
+            quotes.computeIfAbsent(base, b -> new ConcurrentHashMap<>()).put(quote, fxQuote);
+            scheduleRefresh(base, quote, pairTtl.toMillis() * 4 / 5);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to fetch FX rate {}/{}: {}", base, quote, e.getMessage());
+        }
+    }
+
+    private void scheduleRefresh(String base, String quote, long delayMs) {
+        String pair = base + quote;
+        if (refreshScheduled.add(pair)) {
+            refreshExecutor.schedule(() -> {
+                refreshScheduled.remove(pair);
+                refresh(base, quote);
+            }, delayMs, MILLISECONDS);
+        }
+    }
+}
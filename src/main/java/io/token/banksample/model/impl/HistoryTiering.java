@@ -0,0 +1,102 @@
+package io.token.banksample.model.impl;
+
+import io.token.banksample.model.Accounts;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Keeps the transaction history of the accounts in two tiers: the most recent
+ * transactions of each account stay in memory, older ones are moved to a
+ * {@link TransactionArchive} on disk. The balance changes recorded for the
+ * {@link BalanceHistory} are counted in the in-memory tier too, and moved
+ * to the archive along with the transactions. Total size of the in-memory
+ * tier is bounded as well; when it grows past the bound, the accounts that
+ * were written to least recently are moved out entirely.
+ *
+ * <p>Not thread safe, guarded by the {@link AccountingImpl} lock.
+ */
+final class HistoryTiering {
+    private final TransactionArchive archive;
+    private final int hotTransactions;
+    private final long maxResidentBytes;
+    // Accounts with transactions in memory, least recently written first.
+    private final Set<Account> resident;
+    private long residentBytes;
+
+    /**
+     * Creates new instance.
+     *
+     * @param directory directory to keep the archive in
+     * @param hotTransactions number of most recent transactions to keep in
+     *      memory per account
+     * @param maxResidentBytes bound on the estimated size of the transactions
+     *      and balance changes kept in memory across all the accounts
+     * @param accounts accounts of the book
+     */
+    HistoryTiering(
+            Path directory,
+            int hotTransactions,
+            long maxResidentBytes,
+            Accounts accounts) {
+        this.archive = new TransactionArchive(
+                directory,
+                new TransactionCodec(new CodecDictionary(accounts)));
+        this.hotTransactions = hotTransactions;
+        this.maxResidentBytes = maxResidentBytes;
+        this.resident = new LinkedHashSet<>();
+    }
+
+    /**
+     * Returns the archive the cold transactions are kept in.
+     *
+     * @return transaction archive
+     */
+    TransactionArchive archive() {
+        return archive;
+    }
+
+    /**
+     * Called after a transaction has been added to the account. Moves the
+     * transactions that no longer fit in memory to the archive.
+     *
+     * @param account account the transaction was added to
+     * @param bytes estimated size of the transaction
+     */
+    void added(Account account, long bytes) {
+        residentBytes += bytes;
+        resident.remove(account);
+        resident.add(account);
+        residentBytes -= account.archiveOldest(hotTransactions);
+
+        Iterator<Account> leastRecent = resident.iterator();
+        while (residentBytes > maxResidentBytes && leastRecent.hasNext()) {
+            residentBytes -= leastRecent.next().archiveOldest(0);
+            leastRecent.remove();
+        }
+    }
+
+    /**
+     * Called when the account is closed.
+     *
+     * @param account closed account
+     * @param bytes estimated size of the transactions the account keeps in
+     *      memory
+     */
+    void removed(Account account, long bytes) {
+        if (resident.remove(account)) {
+            residentBytes -= bytes;
+        }
+    }
+
+    /**
+     * Returns estimated size of the transactions kept in memory.
+     *
+     * @return size in bytes
+     */
+    long residentBytes() {
+        return residentBytes;
+    }
+}
@@ -6,55 +6,107 @@ import io.token.proto.common.account.AccountProtos.BankAccount;
 /**
  * Represents an account journal entry posted to the source and
  * destination accounts. The change credits one account and debits
- * the other.
+ * the other. The ledger indexes the entries by the account ordinals.
  */
 @AutoValue
 public abstract class LedgerEntry {
     /**
-     * Creates new debit journal entry.
+     * Creates new debit journal entry, posted to the source account.
      *
      * @param transfer to extract the transaction information from
+     * @param timestamp posting time, epoch milliseconds
      * @return newly created transaction
      */
-    static LedgerEntry debit(AccountTransfer transfer) {
+    static LedgerEntry debit(AccountTransfer transfer, long timestamp) {
         return new AutoValue_LedgerEntry(
-                transfer.getTransferId() + ":debit",
-                    transfer.getTransferId(),
-                    transfer.getFrom(),
-                    transfer.getTo(),
-                    - transfer.getAmount(),
-                    transfer.getCurrency());
+                transfer.getTransferId(),
+                transfer.getFrom(),
+                transfer.getFromOrdinal(),
+                transfer.getTo(),
+                transfer.getToOrdinal(),
+                - transfer.getAmount(),
+                transfer.getCurrency(),
+                timestamp);
     }
 
     /**
-     * Creates new credit journal entry.
+     * Creates new credit journal entry, posted to the destination account.
      *
      * @param transfer to extract the transaction information from
+     * @param timestamp posting time, epoch milliseconds
      * @return newly created transaction
      */
-    static LedgerEntry credit(AccountTransfer transfer) {
+    static LedgerEntry credit(AccountTransfer transfer, long timestamp) {
         return new AutoValue_LedgerEntry(
-                transfer.getTransferId() + ":credit",
                 transfer.getTransferId(),
-                transfer.getFrom(),
                 transfer.getTo(),
+                transfer.getToOrdinal(),
+                transfer.getFrom(),
+                transfer.getFromOrdinal(),
                 + transfer.getAmount(),
-                transfer.getCurrency());
+                transfer.getCurrency(),
+                timestamp);
     }
 
     /**
-     * Returns unique journal entry id.
+     * Creates journal entry from its fields.
+     *
+     * @param transferId transfer id
+     * @param account account
+     * @param accountOrdinal account ordinal
+     * @param counterparty counterparty account
+     * @param counterpartyOrdinal counterparty account ordinal
+     * @param amount amount, negative for debits
+     * @param currency currency
+     * @param timestamp posting time, epoch milliseconds
+     * @return journal entry
+     */
+    static LedgerEntry create(
+            long transferId,
+            BankAccount account,
+            int accountOrdinal,
+            BankAccount counterparty,
+            int counterpartyOrdinal,
+            double amount,
+            String currency,
+            long timestamp) {
+        return new AutoValue_LedgerEntry(
+                transferId,
+                account,
+                accountOrdinal,
+                counterparty,
+                counterpartyOrdinal,
+                amount,
+                currency,
+                timestamp);
+    }
+
+    /**
+     * Returns unique journal entry id, derived from the transfer id and the
+     * side of the entry.
      *
      * @return journal entry id
      */
-    public abstract String getId();
+    public String getId() {
+        return getTransactionId() + (getAmount() < 0 ? ":debit" : ":credit");
+    }
 
     /**
-     * Returns unique transaction id that the entry ties to.
+     * Returns unique transaction id that the entry ties to, rendered as a
+     * string.
      *
      * @return transaction id
      */
-    public abstract String getTransactionId();
+    public String getTransactionId() {
+        return TransferIdGenerator.format(getTransferId());
+    }
+
+    /**
+     * Returns transfer id that the entry ties to.
+     *
+     * @return transfer id
+     */
+    public abstract long getTransferId();
 
     /**
      * Returns account.
@@ -63,6 +115,13 @@ public abstract class LedgerEntry {
      */
     public abstract BankAccount getAccount();
 
+    /**
+     * Returns account ordinal.
+     *
+     * @return transaction account ordinal
+     */
+    public abstract int getAccountOrdinal();
+
     /**
      * Returns counterparty account.
      *
@@ -70,6 +129,13 @@ public abstract class LedgerEntry {
      */
     public abstract BankAccount getCounterPartyAccount();
 
+    /**
+     * Returns counterparty account ordinal.
+     *
+     * @return counterparty account ordinal
+     */
+    public abstract int getCounterPartyOrdinal();
+
     /**
      * Returns amount.
      *
@@ -83,4 +149,11 @@ public abstract class LedgerEntry {
      * @return currency
      */
     public abstract String getCurrency();
+
+    /**
+     * Returns posting time.
+     *
+     * @return posting time, epoch milliseconds
+     */
+    public abstract long getTimestamp();
 }
@@ -0,0 +1,18 @@
+package io.token.banksample.model.impl;
+
+/**
+ * In-memory layout of the ledger entries.
+ */
+public enum LedgerLayout {
+    /**
+     * One {@link LedgerEntry} object per entry. Cheapest to post to and to
+     * read entries back from.
+     */
+    OBJECT,
+
+    /**
+     * Primitive column per entry field. Several times smaller than the object
+     * layout and much faster to scan for reporting and reconciliation.
+     */
+    COLUMNAR
+}
@@ -0,0 +1,153 @@
+package io.token.banksample.model.impl;
+
+import static java.math.BigDecimal.ZERO;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Maintains running per-currency and per-account totals of the posted ledger
+ * entries. Every transfer posts a debit and a matching credit, so the
+ * per-currency totals of a healthy ledger are always zero. Amounts are summed
+ * as {@link BigDecimal} so that the totals are exact.
+ *
+ * <p>Not thread safe, guarded by the {@link AccountingLedger} lock.
+ */
+final class LedgerReconciler {
+    private static final int SEGMENT_SIZE = 64 * 1024;
+    private static final BigDecimal BALANCE_TOLERANCE = new BigDecimal("0.005");
+
+    private final LedgerTotals totals = new LedgerTotals();
+    private int unbalancedCurrencies;
+
+    /**
+     * Adds posted entry to the running totals.
+     *
+     * @param entry posted ledger entry
+     */
+    void add(LedgerEntry entry) {
+        BigDecimal before = totals.currencies().getOrDefault(entry.getCurrency(), ZERO);
+        totals.add(entry);
+        BigDecimal after = totals.currencies().get(entry.getCurrency());
+        if (before.signum() == 0 && after.signum() != 0) {
+            unbalancedCurrencies++;
+        } else if (before.signum() != 0 && after.signum() == 0) {
+            unbalancedCurrencies--;
+        }
+    }
+
+    /**
+     * Checks whether debits and credits sum up to zero in every currency.
+     *
+     * @return true if the ledger is balanced
+     */
+    boolean isBalanced() {
+        return unbalancedCurrencies == 0;
+    }
+
+    /**
+     * Returns a copy of the running totals.
+     *
+     * @return running totals
+     */
+    LedgerTotals snapshot() {
+        return totals.copy();
+    }
+
+    /**
+     * Verifies the ledger by recomputing the totals from scratch, scanning the
+     * ledger segments in parallel with fork/join. Checks that every currency
+     * is balanced, that the running totals agree with the recomputed ones and
+     * that the account balance movements agree with the ledger.
+     *
+     * @param storage ledger storage
+     * @param size number of ledger entries to scan
+     * @param running running totals taken at the given size
+     * @param posted balance movement of the accounts that have transactions,
+     *      by account ordinal, taken at the given size
+     * @param describe describes the account with the given ordinal in the
+     *      report
+     * @return reconciliation report
+     */
+    static ReconciliationReport verify(
+            LedgerStorage storage,
+            int size,
+            LedgerTotals running,
+            Map<Integer, BigDecimal> posted,
+            IntFunction<String> describe) {
+        LedgerTotals scanned = new ScanTask(storage, 0, size).invoke();
+        Map<String, BigDecimal> unbalanced = new TreeMap<>();
+        List<String> mismatches = new ArrayList<>();
+        scanned.currencies().forEach((currency, total) -> {
+            if (total.signum() != 0) {
+                unbalanced.put(currency, total);
+            }
+        });
+        compare(running.currencies(), scanned.currencies(), c -> c, mismatches);
+        compare(running.accounts(), scanned.accounts(), describe::apply, mismatches);
+        posted.forEach((account, movement) -> {
+            BigDecimal ledger = scanned.accounts().getOrDefault(account, ZERO);
+            // Account balances are kept as doubles, allow for the rounding.
+            if (movement.subtract(ledger).abs().compareTo(BALANCE_TOLERANCE) > 0) {
+                mismatches.add(String.format(
+                        "balance of %s moved by %s, ledger total %s",
+                        describe.apply(account),
+                        movement,
+                        ledger));
+            }
+        });
+        return new ReconciliationReport(size, unbalanced, mismatches);
+    }
+
+    private static <K> void compare(
+            Map<K, BigDecimal> running,
+            Map<K, BigDecimal> scanned,
+            Function<K, String> describe,
+            List<String> mismatches) {
+        Set<K> keys = new HashSet<>(running.keySet());
+        keys.addAll(scanned.keySet());
+        for (K key : keys) {
+            BigDecimal expected = scanned.getOrDefault(key, ZERO);
+            BigDecimal actual = running.getOrDefault(key, ZERO);
+            if (expected.compareTo(actual) != 0) {
+                mismatches.add(String.format(
+                        "running total of %s %s, ledger total %s",
+                        describe.apply(key),
+                        actual,
+                        expected));
+            }
+        }
+    }
+
+    private static final class ScanTask extends RecursiveTask<LedgerTotals> {
+        private final LedgerStorage storage;
+        private final int from;
+        private final int to;
+
+        private ScanTask(LedgerStorage storage, int from, int to) {
+            this.storage = storage;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected LedgerTotals compute() {
+            if (to - from <= SEGMENT_SIZE) {
+                return storage.totals(from, to);
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask left = new ScanTask(storage, from, mid);
+            left.fork();
+            LedgerTotals right = new ScanTask(storage, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package io.token.banksample.model.impl;
+
+import java.math.BigDecimal;
+
+/**
+ * Stores ledger entries by position. Entries are appended under the ledger
+ * lock and never modified; entries below {@link #size()} can be read and
+ * scanned without holding the lock.
+ */
+interface LedgerStorage {
+    /**
+     * Appends entry at position {@link #size()}.
+     *
+     * @param entry entry to append
+     */
+    void append(LedgerEntry entry);
+
+    /**
+     * Returns the number of entries stored.
+     *
+     * @return storage size
+     */
+    int size();
+
+    /**
+     * Returns entry at the given position.
+     *
+     * @param position ledger position
+     * @return ledger entry
+     */
+    LedgerEntry entryAt(int position);
+
+    /**
+     * Returns posting time of the entry at the given position.
+     *
+     * @param position ledger position
+     * @return posting time, epoch milliseconds
+     */
+    long timestampAt(int position);
+
+    /**
+     * Sums the amounts of the entries in the given currency.
+     *
+     * @param currency currency
+     * @param from first position, inclusive
+     * @param to last position, exclusive
+     * @return sum of the amounts
+     */
+    BigDecimal sum(String currency, int from, int to);
+
+    /**
+     * Finds entries in the given currency with at least the given absolute
+     * amount.
+     *
+     * @param currency currency
+     * @param minAmount minimum absolute amount
+     * @param from first position, inclusive
+     * @param to last position, exclusive
+     * @return positions of the entries found
+     */
+    PositionList filter(String currency, BigDecimal minAmount, int from, int to);
+
+    /**
+     * Sums the amounts of the entries grouped by currency and by account.
+     *
+     * @param from first position, inclusive
+     * @param to last position, exclusive
+     * @return totals
+     */
+    LedgerTotals totals(int from, int to);
+}
@@ -0,0 +1,85 @@
+package io.token.banksample.model.impl;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-currency and per-account totals of ledger entries. Accounts are keyed by
+ * their ordinals. Amounts are summed as {@link BigDecimal} so that the totals
+ * are exact.
+ */
+final class LedgerTotals {
+    private final Map<String, BigDecimal> currencies = new HashMap<>();
+    private final Map<Integer, BigDecimal> accounts = new HashMap<>();
+
+    /**
+     * Returns totals by currency.
+     *
+     * @return currency totals
+     */
+    Map<String, BigDecimal> currencies() {
+        return currencies;
+    }
+
+    /**
+     * Returns totals by account ordinal.
+     *
+     * @return account totals
+     */
+    Map<Integer, BigDecimal> accounts() {
+        return accounts;
+    }
+
+    /**
+     * Adds ledger entry to the totals.
+     *
+     * @param entry ledger entry
+     */
+    void add(LedgerEntry entry) {
+        BigDecimal amount = BigDecimal.valueOf(entry.getAmount());
+        addCurrency(entry.getCurrency(), amount);
+        addAccount(entry.getAccountOrdinal(), amount);
+    }
+
+    /**
+     * Adds amount to the currency total.
+     *
+     * @param currency currency
+     * @param amount amount to add
+     */
+    void addCurrency(String currency, BigDecimal amount) {
+        currencies.merge(currency, amount, BigDecimal::add);
+    }
+
+    /**
+     * Adds amount to the account total.
+     *
+     * @param account account ordinal
+     * @param amount amount to add
+     */
+    void addAccount(int account, BigDecimal amount) {
+        accounts.merge(account, amount, BigDecimal::add);
+    }
+
+    /**
+     * Adds other totals to these.
+     *
+     * @param other totals to add
+     * @return this object
+     */
+    LedgerTotals merge(LedgerTotals other) {
+        other.currencies.forEach(this::addCurrency);
+        other.accounts.forEach(this::addAccount);
+        return this;
+    }
+
+    /**
+     * Returns a copy of the totals.
+     *
+     * @return copy
+     */
+    LedgerTotals copy() {
+        return new LedgerTotals().merge(this);
+    }
+}
@@ -0,0 +1,89 @@
+package io.token.banksample.model.impl;
+
+import static java.math.BigDecimal.ZERO;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Stores ledger entries as {@link LedgerEntry} objects, in fixed size
+ * segments that are never copied once allocated. Posting times are kept in a
+ * primitive column alongside, for the time index.
+ */
+final class ObjectLedgerStorage implements LedgerStorage {
+    private static final int SEGMENT_BITS = 16;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private LedgerEntry[][] entries = new LedgerEntry[16][];
+    private long[][] timestamps = new long[16][];
+    // Written after the entry and the segments, publishes both to the
+    // readers that don't hold the ledger lock.
+    private volatile int size;
+
+    @Override
+    public void append(LedgerEntry entry) {
+        int position = size;
+        int segment = position >>> SEGMENT_BITS;
+        if (segment == entries.length) {
+            entries = Arrays.copyOf(entries, segment * 2);
+            timestamps = Arrays.copyOf(timestamps, segment * 2);
+        }
+        if (entries[segment] == null) {
+            entries[segment] = new LedgerEntry[SEGMENT_SIZE];
+            timestamps[segment] = new long[SEGMENT_SIZE];
+        }
+        entries[segment][position & SEGMENT_MASK] = entry;
+        timestamps[segment][position & SEGMENT_MASK] = entry.getTimestamp();
+        size = position + 1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public LedgerEntry entryAt(int position) {
+        return entries[position >>> SEGMENT_BITS][position & SEGMENT_MASK];
+    }
+
+    @Override
+    public long timestampAt(int position) {
+        return timestamps[position >>> SEGMENT_BITS][position & SEGMENT_MASK];
+    }
+
+    @Override
+    public BigDecimal sum(String currency, int from, int to) {
+        BigDecimal sum = ZERO;
+        for (int p = from; p < to; p++) {
+            LedgerEntry entry = entryAt(p);
+            if (entry.getCurrency().equals(currency)) {
+                sum = sum.add(BigDecimal.valueOf(entry.getAmount()));
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public PositionList filter(String currency, BigDecimal minAmount, int from, int to) {
+        double min = minAmount.doubleValue();
+        PositionList positions = new PositionList();
+        for (int p = from; p < to; p++) {
+            LedgerEntry entry = entryAt(p);
+            if (entry.getCurrency().equals(currency) && Math.abs(entry.getAmount()) >= min) {
+                positions.add(p);
+            }
+        }
+        return positions;
+    }
+
+    @Override
+    public LedgerTotals totals(int from, int to) {
+        LedgerTotals totals = new LedgerTotals();
+        for (int p = from; p < to; p++) {
+            totals.add(entryAt(p));
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,72 @@
+package io.token.banksample.model.impl;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of ledger positions, kept in ascending order. Used by the
+ * ledger indexes instead of a {@code List<Integer>} to avoid boxing.
+ */
+final class PositionList {
+    private int[] positions = new int[4];
+    private int size;
+
+    /**
+     * Appends a position. Positions must be appended in ascending order.
+     *
+     * @param position ledger position
+     */
+    void add(int position) {
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, size * 2);
+        }
+        positions[size++] = position;
+    }
+
+    /**
+     * Returns position at the given index.
+     *
+     * @param index index
+     * @return ledger position
+     */
+    int get(int index) {
+        return positions[index];
+    }
+
+    /**
+     * Returns number of positions.
+     *
+     * @return size
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns index of the first position whose key is not less than the
+     * given key. Keys must be non-decreasing with the position.
+     *
+     * @param key key to search for
+     * @param keyOf maps a position to its key
+     * @return insertion index
+     */
+    int lowerBound(long key, PositionKey keyOf) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keyOf.keyOf(positions[mid]) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Maps ledger position to a sort key.
+     */
+    interface PositionKey {
+        long keyOf(int position);
+    }
+}
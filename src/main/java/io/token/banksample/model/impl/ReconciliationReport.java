@@ -0,0 +1,71 @@
+package io.token.banksample.model.impl;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a full ledger reconciliation.
+ */
+public final class ReconciliationReport {
+    private final int entries;
+    private final Map<String, BigDecimal> unbalancedCurrencies;
+    private final List<String> mismatches;
+
+    ReconciliationReport(
+            int entries,
+            Map<String, BigDecimal> unbalancedCurrencies,
+            List<String> mismatches) {
+        this.entries = entries;
+        this.unbalancedCurrencies = unmodifiableMap(unbalancedCurrencies);
+        this.mismatches = unmodifiableList(mismatches);
+    }
+
+    /**
+     * Returns number of ledger entries verified.
+     *
+     * @return number of entries
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns currencies in which debits and credits don't sum up to zero,
+     * along with the difference.
+     *
+     * @return unbalanced currencies
+     */
+    public Map<String, BigDecimal> getUnbalancedCurrencies() {
+        return unbalancedCurrencies;
+    }
+
+    /**
+     * Returns descriptions of totals that don't agree: running totals vs the
+     * ledger and account balances vs the ledger.
+     *
+     * @return mismatches
+     */
+    public List<String> getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * Checks whether the reconciliation found no problems.
+     *
+     * @return true if reconciled
+     */
+    public boolean isReconciled() {
+        return unbalancedCurrencies.isEmpty() && mismatches.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "entries: " + entries
+                + ", unbalanced currencies: " + unbalancedCurrencies
+                + ", mismatches: " + mismatches;
+    }
+}
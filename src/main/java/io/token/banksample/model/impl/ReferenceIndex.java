@@ -0,0 +1,98 @@
+package io.token.banksample.model.impl;
+
+import static java.util.Collections.emptyList;
+
+import io.token.banksample.model.AccountTransaction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Global index of the transactions by reference id, i.e. by Token transfer
+ * id, across all the accounts. A reference id can refer to several
+ * transactions, e.g. the legs of a transfer split across several
+ * destinations. Only covers the transactions kept in memory: entries are
+ * removed when the transactions are archived by {@link HistoryTiering} or
+ * their account is closed. The index refers to the transactions themselves,
+ * so that lookups don't need the accounting lock.
+ */
+final class ReferenceIndex {
+    // Arrays are never modified once published, lookups read them unlocked.
+    private final Map<String, Ref[]> refs = new ConcurrentHashMap<>();
+
+    /**
+     * Adds transaction to the index, after the transactions already indexed
+     * under the same reference id.
+     *
+     * @param referenceId transaction reference id
+     * @param account account the transaction belongs to
+     * @param transaction transaction
+     */
+    void add(String referenceId, Account account, AccountTransaction transaction) {
+        Ref ref = new Ref(account, transaction);
+        refs.merge(referenceId, new Ref[] {ref}, (current, added) -> {
+            Ref[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = ref;
+            return updated;
+        });
+    }
+
+    /**
+     * Removes transaction from the index. The other transactions indexed
+     * under the same reference id are kept.
+     *
+     * @param referenceId transaction reference id
+     * @param account account the transaction belongs to
+     * @param transaction transaction
+     */
+    void remove(String referenceId, Account account, AccountTransaction transaction) {
+        refs.computeIfPresent(referenceId, (key, current) -> {
+            for (int i = 0; i < current.length; i++) {
+                if (current[i].account == account && current[i].transaction == transaction) {
+                    if (current.length == 1) {
+                        return null;
+                    }
+                    Ref[] updated = new Ref[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, updated.length - i);
+                    return updated;
+                }
+            }
+            return current;
+        });
+    }
+
+    /**
+     * Looks up transactions by reference id.
+     *
+     * @param referenceId transaction reference id
+     * @return transactions, in the order they were added, empty if not found
+     */
+    List<AccountTransaction> lookup(String referenceId) {
+        Ref[] found = refs.get(referenceId);
+        if (found == null) {
+            return emptyList();
+        }
+        List<AccountTransaction> transactions = new ArrayList<>(found.length);
+        for (Ref ref : found) {
+            transactions.add(ref.transaction);
+        }
+        return transactions;
+    }
+
+    /**
+     * Indexed transaction and the account it belongs to.
+     */
+    private static final class Ref {
+        private final Account account;
+        private final AccountTransaction transaction;
+
+        private Ref(Account account, AccountTransaction transaction) {
+            this.account = account;
+            this.transaction = transaction;
+        }
+    }
+}
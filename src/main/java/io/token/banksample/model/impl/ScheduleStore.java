@@ -0,0 +1,249 @@
+package io.token.banksample.model.impl;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
+import io.token.banksample.model.AccountTransaction;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+import io.token.proto.common.transaction.TransactionProtos.TransactionType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only log of the scheduled debits. A debit is written, and synced
+ * to disk, when it is scheduled and a marker is written once it has been
+ * executed or cancelled. Markers are synced in groups, see {@link #sync()}.
+ * On load the log is replayed and rewritten with only the pending debits,
+ * so it never grows beyond one load's worth of history.
+ *
+ * <p>Records are self contained: accounts are written as serialized
+ * {@link BankAccount} protos rather than {@link CodecDictionary} ordinals,
+ * which only live as long as the process.
+ */
+final class ScheduleStore {
+    private static final String FILE_NAME = "schedules.log";
+    private static final int ADDED = 1;
+    private static final int REMOVED = 2;
+
+    private final Path file;
+    private FileOutputStream fileOut;
+    private DataOutputStream out;
+
+    /**
+     * Creates new store.
+     *
+     * @param directory directory to keep the log in
+     */
+    ScheduleStore(Path directory) {
+        this.file = directory.resolve(FILE_NAME);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to create schedule directory", ex);
+        }
+    }
+
+    /**
+     * Replays the log and opens it for appending. Must be called once,
+     * before anything is added.
+     *
+     * @return pending debits, in the order they were scheduled
+     */
+    synchronized List<Entry> load() {
+        Map<String, Entry> pending = new LinkedHashMap<>();
+        if (Files.exists(file)) {
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(file)))) {
+                while (true) {
+                    int type;
+                    try {
+                        type = in.readByte();
+                    } catch (EOFException ex) {
+                        break;
+                    }
+                    if (type == ADDED) {
+                        Entry entry = readEntry(in);
+                        pending.put(entry.getTransaction().getId(), entry);
+                    } else if (type == REMOVED) {
+                        pending.remove(in.readUTF());
+                    } else {
+                        throw new IOException("Corrupt schedule log: record type " + type);
+                    }
+                }
+            } catch (EOFException ex) {
+                // Torn last record, the debit was never acknowledged.
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Failed to read schedule log", ex);
+            }
+        }
+
+        Path compacted = file.resolveSibling(FILE_NAME + ".tmp");
+        try {
+            try (FileOutputStream tmpOut = new FileOutputStream(compacted.toFile());
+                    DataOutputStream tmp = new DataOutputStream(
+                            new BufferedOutputStream(tmpOut))) {
+                for (Entry entry : pending.values()) {
+                    tmp.writeByte(ADDED);
+                    writeEntry(tmp, entry);
+                }
+                tmp.flush();
+                // The compacted log has to be on disk before it replaces the
+                // old one, or a crash could leave an empty log behind.
+                tmpOut.getFD().sync();
+            }
+            Files.move(compacted, file, REPLACE_EXISTING, ATOMIC_MOVE);
+            syncDirectory(file.getParent());
+            fileOut = new FileOutputStream(file.toFile(), true);
+            out = new DataOutputStream(new BufferedOutputStream(fileOut));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to compact schedule log", ex);
+        }
+        return new ArrayList<>(pending.values());
+    }
+
+    /**
+     * Appends scheduled debit and syncs the log to disk.
+     *
+     * @param entry scheduled debit
+     */
+    synchronized void add(Entry entry) {
+        try {
+            out.writeByte(ADDED);
+            writeEntry(out, entry);
+            out.flush();
+            fileOut.getFD().sync();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to write schedule log", ex);
+        }
+    }
+
+    /**
+     * Marks scheduled debit as executed or cancelled. Not synced until
+     * {@link #sync()} is called: a debit whose marker is lost is pending
+     * again after a restart.
+     *
+     * @param transactionId id of the scheduled transaction
+     */
+    synchronized void remove(String transactionId) {
+        try {
+            out.writeByte(REMOVED);
+            out.writeUTF(transactionId);
+            out.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to write schedule log", ex);
+        }
+    }
+
+    /**
+     * Syncs the markers written so far to disk.
+     */
+    synchronized void sync() {
+        try {
+            out.flush();
+            fileOut.getFD().sync();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to sync schedule log", ex);
+        }
+    }
+
+    /**
+     * Syncs the directory entries, making a rename durable. Not supported
+     * on every platform, in which case the rename is as durable as the
+     * file system makes it.
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, READ)) {
+            channel.force(true);
+        } catch (IOException ex) {
+            // Directories can not be opened or synced on some platforms.
+        }
+    }
+
+    private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        AccountTransaction transaction = entry.getTransaction();
+        out.writeLong(entry.getDueAt());
+        out.writeByte(transaction.getType().getNumber());
+        out.writeUTF(transaction.getId());
+        out.writeUTF(transaction.getReferenceId());
+        writeAccount(out, transaction.getFrom());
+        writeAccount(out, transaction.getTo());
+        out.writeDouble(transaction.getAmount());
+        out.writeUTF(transaction.getCurrency());
+        out.writeDouble(transaction.getTransferAmount());
+        out.writeUTF(transaction.getTransferCurrency());
+        out.writeBoolean(transaction.getDescription() != null);
+        if (transaction.getDescription() != null) {
+            out.writeUTF(transaction.getDescription());
+        }
+    }
+
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        long dueAt = in.readLong();
+        TransactionType type = TransactionType.forNumber(in.readByte());
+        if (type == null) {
+            throw new IOException("Corrupt schedule log: transaction type");
+        }
+        AccountTransaction.Builder builder = AccountTransaction.builder(type)
+                .id(in.readUTF())
+                .referenceId(in.readUTF())
+                .from(readAccount(in))
+                .to(readAccount(in));
+        double amount = in.readDouble();
+        builder.amount(amount, in.readUTF());
+        double transferAmount = in.readDouble();
+        builder.transferAmount(transferAmount, in.readUTF());
+        if (in.readBoolean()) {
+            builder.description(in.readUTF());
+        }
+        return new Entry(dueAt, builder.build());
+    }
+
+    private static void writeAccount(DataOutputStream out, BankAccount account)
+            throws IOException {
+        byte[] bytes = account.toByteArray();
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static BankAccount readAccount(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return BankAccount.parseFrom(bytes);
+    }
+
+    /**
+     * Scheduled debit: the transaction and when it is due.
+     */
+    static final class Entry {
+        private final long dueAt;
+        private final AccountTransaction transaction;
+
+        Entry(long dueAt, AccountTransaction transaction) {
+            this.dueAt = dueAt;
+            this.transaction = transaction;
+        }
+
+        long getDueAt() {
+            return dueAt;
+        }
+
+        AccountTransaction getTransaction() {
+            return transaction;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package io.token.banksample.model.impl;
+
+import static java.math.MathContext.DECIMAL64;
+
+import io.token.banksample.model.FxRateProvider;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Locally stubbed FX feed. Rates are derived from a fixed value of each
+ * currency in a common reference currency.
+ */
+public final class StubFxRateProvider implements FxRateProvider {
+    private final Map<String, BigDecimal> values;
+
+    /**
+     * Creates new stub provider.
+     *
+     * @param values value of one unit of each currency in the reference
+     *      currency
+     */
+    public StubFxRateProvider(Map<String, BigDecimal> values) {
+        this.values = new HashMap<>(values);
+    }
+
+    @Override
+    public BigDecimal fetchRate(String baseCurrency, String quoteCurrency) {
+        return valueOf(baseCurrency).divide(valueOf(quoteCurrency), DECIMAL64);
+    }
+
+    private BigDecimal valueOf(String currency) {
+        BigDecimal value = values.get(currency);
+        if (value == null) {
+            throw new IllegalArgumentException("No FX rate for currency: " + currency);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,158 @@
+package io.token.banksample.model.impl;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timer wheel. Four levels of 256 slots each: level 0 holds the
+ * timers due within 256 ticks, one slot per tick, and each higher level holds
+ * timers 256 times further out, one slot per 256 ticks of the level below.
+ * When the level below wraps around, the next slot of the level above is
+ * cascaded down. Adding a timer and advancing by a tick both cost O(1),
+ * regardless of the number of pending timers; each timer is cascaded at most
+ * three times.
+ *
+ * <p>Timers due in the same tick are returned in no particular order. Not
+ * thread safe.
+ *
+ * @param <T> timer payload type
+ */
+final class TimerWheel<T> {
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 8;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long MAX_TICKS = 1L << (LEVELS * SLOT_BITS);
+
+    private final long tickMillis;
+    private final List<List<Timer<T>>> slots; // LEVELS * SLOTS, null if empty
+    private List<T> overdue = new ArrayList<>();
+    private long tick;
+    private int size;
+
+    /**
+     * Creates new wheel.
+     *
+     * @param tickMillis tick duration in milliseconds
+     * @param now current time, epoch milliseconds
+     */
+    TimerWheel(long tickMillis, long now) {
+        Preconditions.checkArgument(tickMillis > 0);
+        this.tickMillis = tickMillis;
+        this.tick = now / tickMillis;
+        this.slots = new ArrayList<>(LEVELS * SLOTS);
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            slots.add(null);
+        }
+    }
+
+    /**
+     * Adds timer. Timers due at or before the current tick are returned by
+     * the next {@link #advance}.
+     *
+     * @param dueAt time the timer is due at, epoch milliseconds
+     * @param payload timer payload
+     */
+    void add(long dueAt, T payload) {
+        long dueTick = (dueAt + tickMillis - 1) / tickMillis;
+        Preconditions.checkArgument(
+                dueTick - tick < MAX_TICKS,
+                "Timer too far in the future: %s",
+                dueAt);
+        size++;
+        place(new Timer<>(dueTick, payload));
+    }
+
+    /**
+     * Advances the wheel to the given time.
+     *
+     * @param now current time, epoch milliseconds
+     * @return payloads of the timers that have fallen due
+     */
+    List<T> advance(long now) {
+        List<T> due = overdue;
+        overdue = new ArrayList<>();
+        long target = now / tickMillis;
+        while (tick < target) {
+            tick++;
+            cascade();
+            // Timers cascaded down exactly on their tick.
+            due.addAll(overdue);
+            overdue.clear();
+            List<Timer<T>> slot = slots.get(slotIndex(0, tick));
+            if (slot != null) {
+                slots.set(slotIndex(0, tick), null);
+                for (Timer<T> timer : slot) {
+                    due.add(timer.payload);
+                }
+            }
+        }
+        size -= due.size();
+        return due;
+    }
+
+    /**
+     * Returns number of pending timers.
+     *
+     * @return number of timers
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Moves the timers of the higher level slots that the current tick has
+     * reached down the wheel, highest level first.
+     */
+    private void cascade() {
+        int level = 0;
+        while (level < LEVELS - 1 && ((tick >>> (level * SLOT_BITS)) & SLOT_MASK) == 0) {
+            level++;
+        }
+        for (; level > 0; level--) {
+            int index = slotIndex(level, tick);
+            List<Timer<T>> slot = slots.get(index);
+            if (slot != null) {
+                slots.set(index, null);
+                for (Timer<T> timer : slot) {
+                    place(timer);
+                }
+            }
+        }
+    }
+
+    private void place(Timer<T> timer) {
+        long delta = timer.dueTick - tick;
+        if (delta <= 0) {
+            overdue.add(timer.payload);
+            return;
+        }
+        int level = 0;
+        while (delta >= 1L << ((level + 1) * SLOT_BITS)) {
+            level++;
+        }
+        int index = slotIndex(level, timer.dueTick);
+        List<Timer<T>> slot = slots.get(index);
+        if (slot == null) {
+            slot = new ArrayList<>(4);
+            slots.set(index, slot);
+        }
+        slot.add(timer);
+    }
+
+    private static int slotIndex(int level, long tick) {
+        return level * SLOTS + (int) ((tick >>> (level * SLOT_BITS)) & SLOT_MASK);
+    }
+
+    private static final class Timer<T> {
+        private final long dueTick;
+        private final T payload;
+
+        private Timer(long dueTick, T payload) {
+            this.dueTick = dueTick;
+            this.payload = payload;
+        }
+    }
+}
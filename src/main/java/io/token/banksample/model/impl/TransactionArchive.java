@@ -0,0 +1,212 @@
+package io.token.banksample.model.impl;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+
+import io.token.banksample.model.AccountTransaction;
+import io.token.proto.bankapi.Bankapi.StatusCode;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only store of transactions moved out of memory, see
+ * {@link HistoryTiering}, and of the balance changes folded out of the
+ * {@link BalanceHistory} of the accounts. Records are written to fixed size
+ * segment files that are memory mapped, and are addressed by segment and
+ * offset. The archive only lives as long as the process, existing segment
+ * files are deleted when it is opened.
+ *
+ * <p>Not thread safe, guarded by the {@link AccountingImpl} lock.
+ */
+final class TransactionArchive {
+    static final int SEGMENT_BYTES = 64 * 1024 * 1024;
+    // A balance change: a time and two deltas.
+    static final int CHANGE_RECORD_BYTES = Long.BYTES + 2 * Double.BYTES;
+
+    private final Path directory;
+    private final TransactionCodec codec;
+    private final int segmentBytes;
+    private final List<MappedByteBuffer> segments;
+    private int writeOffset;
+
+    /**
+     * Opens a new archive in the given directory.
+     *
+     * @param directory directory to keep the segment files in
+     * @param codec codec to encode the transactions with
+     */
+    TransactionArchive(Path directory, TransactionCodec codec) {
+        this(directory, codec, SEGMENT_BYTES);
+    }
+
+    /**
+     * Opens a new archive in the given directory.
+     *
+     * @param directory directory to keep the segment files in
+     * @param codec codec to encode the transactions with
+     * @param segmentBytes size of the segment files
+     */
+    TransactionArchive(Path directory, TransactionCodec codec, int segmentBytes) {
+        this.directory = directory;
+        this.codec = codec;
+        this.segmentBytes = segmentBytes;
+        this.segments = new ArrayList<>();
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> old = Files.newDirectoryStream(directory, "*.seg")) {
+                for (Path segment : old) {
+                    Files.delete(segment);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to open transaction archive: " + directory, ex);
+        }
+        newSegment();
+    }
+
+    /**
+     * Appends transaction to the archive.
+     *
+     * @param transaction transaction to append
+     * @return record address
+     */
+    long append(AccountTransaction transaction) {
+        byte[] record = codec.encode(transaction);
+        if (Integer.BYTES + record.length > segmentBytes) {
+            throw new IllegalArgumentException("Transaction too large: " + transaction.getId());
+        }
+        return append(record);
+    }
+
+    /**
+     * Appends balance changes to the archive.
+     *
+     * @param times change times, epoch milliseconds
+     * @param availableDeltas changes of the available balance
+     * @param currentDeltas changes of the current balance
+     * @param offset index of the first change to append
+     * @param count number of changes to append
+     * @return record address
+     */
+    long appendChanges(
+            long[] times,
+            double[] availableDeltas,
+            double[] currentDeltas,
+            int offset,
+            int count) {
+        if (Integer.BYTES + count * CHANGE_RECORD_BYTES > segmentBytes) {
+            throw new IllegalArgumentException("Too many changes: " + count);
+        }
+        ByteBuffer record = ByteBuffer.allocate(count * CHANGE_RECORD_BYTES);
+        for (int i = offset; i < offset + count; i++) {
+            record.putLong(times[i]);
+            record.putDouble(availableDeltas[i]);
+            record.putDouble(currentDeltas[i]);
+        }
+        return append(record.array());
+    }
+
+    private long append(byte[] record) {
+        if (writeOffset + Integer.BYTES + record.length > segmentBytes) {
+            newSegment();
+        }
+        int segment = segments.size() - 1;
+        ByteBuffer buffer = segments.get(segment).duplicate();
+        buffer.position(writeOffset);
+        buffer.putInt(record.length);
+        buffer.put(record);
+        long address = (long) segment << 32 | writeOffset;
+        writeOffset = buffer.position();
+        return address;
+    }
+
+    /**
+     * Reads transaction back.
+     *
+     * @param address record address, as returned by {@link #append}
+     * @return transaction
+     */
+    AccountTransaction read(long address) {
+        return codec.decodeTransaction(record(address));
+    }
+
+    /**
+     * Reads balance changes back. Each change is a time, epoch milliseconds,
+     * followed by the available and the current balance deltas.
+     *
+     * @param address record address, as returned by {@link #appendChanges}
+     * @return buffer holding the changes
+     */
+    ByteBuffer readChanges(long address) {
+        return ByteBuffer.wrap(record(address));
+    }
+
+    /**
+     * Reads only the id of the transaction back, without decoding the rest
+     * of the record.
+     *
+     * @param address record address, as returned by {@link #append}
+     * @return transaction id
+     */
+    String readId(long address) {
+        return codec.decodeId(record(address));
+    }
+
+    private byte[] record(long address) {
+        ByteBuffer buffer = segments.get(segmentOf(address)).duplicate();
+        buffer.position(offsetOf(address));
+        byte[] record = new byte[buffer.getInt()];
+        buffer.get(record);
+        return record;
+    }
+
+    /**
+     * Updates transaction status in place.
+     *
+     * @param address record address, as returned by {@link #append}
+     * @param status new status
+     */
+    void updateStatus(long address, StatusCode status) {
+        segments.get(segmentOf(address)).put(
+                offsetOf(address) + Integer.BYTES + TransactionCodec.STATUS_OFFSET,
+                (byte) status.getNumber());
+    }
+
+    /**
+     * Returns total size of the segment files.
+     *
+     * @return size in bytes
+     */
+    long sizeBytes() {
+        return (long) segmentBytes * (segments.size() - 1) + writeOffset;
+    }
+
+    private void newSegment() {
+        Path path = directory.resolve(String.format("%06d.seg", segments.size()));
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw");
+                FileChannel channel = file.getChannel()) {
+            // The mapping stays valid after the channel is closed.
+            segments.add(channel.map(READ_WRITE, 0, segmentBytes));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to create archive segment: " + path, ex);
+        }
+        writeOffset = 0;
+    }
+
+    private static int segmentOf(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offsetOf(long address) {
+        return (int) address;
+    }
+}
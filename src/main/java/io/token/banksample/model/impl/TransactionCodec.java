@@ -0,0 +1,352 @@
+package io.token.banksample.model.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.token.banksample.model.AccountTransaction;
+import io.token.proto.bankapi.Bankapi.StatusCode;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+import io.token.proto.common.transaction.TransactionProtos.TransactionType;
+
+import java.util.Arrays;
+
+/**
+ * Compact binary encoding of {@link AccountTransaction} and
+ * {@link LedgerEntry} records. Accounts and currencies are written as
+ * codes from a {@link CodecDictionary}, type and status as their enum
+ * numbers, and integers as varints. Amounts that are whole in the minor
+ * units of their currency, which is nearly all of them, are written as
+ * zigzag varints of the minor units, the rest as raw doubles.
+ *
+ * <p>Every record starts with the format version, followed by the status for
+ * transactions, so that the status can be updated in place.
+ */
+final class TransactionCodec {
+    /**
+     * Current format version.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Offset of the status byte within a transaction record.
+     */
+    static final int STATUS_OFFSET = 1;
+
+    private static final int HAS_DESCRIPTION = 1;
+    private static final int RAW_AMOUNT = 2;
+    private static final int RAW_TRANSFER_AMOUNT = 4;
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000};
+    // Largest magnitude of minor units that a double represents exactly.
+    private static final long MAX_EXACT = 1L << 53;
+
+    private final CodecDictionary dictionary;
+
+    /**
+     * Creates new codec.
+     *
+     * @param dictionary dictionary to intern accounts and currencies with
+     */
+    TransactionCodec(CodecDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Encodes transaction.
+     *
+     * @param transaction transaction to encode
+     * @return encoded record
+     */
+    byte[] encode(AccountTransaction transaction) {
+        int currency = dictionary.currencyOrdinal(transaction.getCurrency());
+        int transferCurrency = dictionary.currencyOrdinal(transaction.getTransferCurrency());
+        long amount = minorUnits(transaction.getAmount(), currency);
+        long transferAmount = minorUnits(transaction.getTransferAmount(), transferCurrency);
+        String description = transaction.getDescription();
+        int flags = (description != null ? HAS_DESCRIPTION : 0)
+                | (amount == Long.MIN_VALUE ? RAW_AMOUNT : 0)
+                | (transferAmount == Long.MIN_VALUE ? RAW_TRANSFER_AMOUNT : 0);
+
+        Writer out = new Writer(64);
+        out.writeByte(VERSION);
+        out.writeByte(transaction.getStatus().getNumber());
+        out.writeByte(transaction.getType().getNumber());
+        out.writeByte(flags);
+        out.writeString(transaction.getId());
+        out.writeString(transaction.getReferenceId());
+        out.writeVarint(dictionary.accountCode(transaction.getFrom()));
+        out.writeVarint(dictionary.accountCode(transaction.getTo()));
+        out.writeVarint(currency);
+        writeAmount(out, transaction.getAmount(), amount);
+        out.writeVarint(transferCurrency);
+        writeAmount(out, transaction.getTransferAmount(), transferAmount);
+        if (description != null) {
+            out.writeString(description);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes transaction.
+     *
+     * @param record encoded record
+     * @return decoded transaction
+     */
+    AccountTransaction decodeTransaction(byte[] record) {
+        Reader in = new Reader(record);
+        StatusCode status = StatusCode.forNumber(in.readByte());
+        TransactionType type = TransactionType.forNumber(in.readByte());
+        int flags = in.readByte();
+        if (status == null || type == null) {
+            throw new IllegalArgumentException("Corrupt transaction record");
+        }
+        AccountTransaction.Builder builder = AccountTransaction.builder(type)
+                .id(in.readString())
+                .referenceId(in.readString())
+                .from(account(in.readVarint()))
+                .to(account(in.readVarint()));
+        int currency = (int) in.readVarint();
+        String currencyCode = currency(currency);
+        builder.amount(readAmount(in, currency, flags & RAW_AMOUNT), currencyCode);
+        int transferCurrency = (int) in.readVarint();
+        String transferCurrencyCode = currency(transferCurrency);
+        builder.transferAmount(
+                readAmount(in, transferCurrency, flags & RAW_TRANSFER_AMOUNT),
+                transferCurrencyCode);
+        if ((flags & HAS_DESCRIPTION) != 0) {
+            builder.description(in.readString());
+        }
+        AccountTransaction transaction = builder.build();
+        transaction.setStatus(status);
+        return transaction;
+    }
+
+    /**
+     * Decodes only the id of a transaction record.
+     *
+     * @param record encoded record
+     * @return transaction id
+     */
+    String decodeId(byte[] record) {
+        Reader in = new Reader(record);
+        in.readByte(); // Status.
+        in.readByte(); // Type.
+        in.readByte(); // Flags.
+        return in.readString();
+    }
+
+    /**
+     * Encodes ledger entry.
+     *
+     * @param entry entry to encode
+     * @return encoded record
+     */
+    byte[] encode(LedgerEntry entry) {
+        int currency = dictionary.currencyOrdinal(entry.getCurrency());
+        long amount = minorUnits(entry.getAmount(), currency);
+
+        Writer out = new Writer(32);
+        out.writeByte(VERSION);
+        out.writeByte(amount == Long.MIN_VALUE ? RAW_AMOUNT : 0);
+        out.writeVarint(entry.getTransferId());
+        out.writeVarint(dictionary.accountCode(entry.getAccount(), entry.getAccountOrdinal()));
+        out.writeVarint(dictionary.accountCode(
+                entry.getCounterPartyAccount(),
+                entry.getCounterPartyOrdinal()));
+        out.writeVarint(currency);
+        writeAmount(out, entry.getAmount(), amount);
+        out.writeVarint(entry.getTimestamp());
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes ledger entry.
+     *
+     * @param record encoded record
+     * @return decoded entry
+     */
+    LedgerEntry decodeEntry(byte[] record) {
+        Reader in = new Reader(record);
+        int flags = in.readByte();
+        long transferId = in.readVarint();
+        int account = (int) in.readVarint();
+        int counterparty = (int) in.readVarint();
+        int currency = (int) in.readVarint();
+        String currencyCode = currency(currency);
+        double amount = readAmount(in, currency, flags & RAW_AMOUNT);
+        return LedgerEntry.create(
+                transferId,
+                account(account),
+                CodecDictionary.bookOrdinal(account),
+                account(counterparty),
+                CodecDictionary.bookOrdinal(counterparty),
+                amount,
+                currencyCode,
+                in.readVarint());
+    }
+
+    /**
+     * Estimates how much heap the transaction takes while kept in memory.
+     *
+     * @param transaction transaction
+     * @return estimated size in bytes
+     */
+    static long estimateHeapBytes(AccountTransaction transaction) {
+        // Object headers and fields of the transaction, its strings and
+        // protos, plus the list node and the map entry that refer to it.
+        long chars = transaction.getId().length()
+                + transaction.getReferenceId().length()
+                + (transaction.getDescription() == null
+                        ? 0
+                        : transaction.getDescription().length());
+        return 400 + 2 * chars;
+    }
+
+    /**
+     * Converts amount to minor units of the currency.
+     *
+     * @param amount amount
+     * @param currency currency ordinal
+     * @return minor units, or {@link Long#MIN_VALUE} if the amount is not
+     *      whole in minor units and has to be written as a raw double
+     */
+    private long minorUnits(double amount, int currency) {
+        long scale = POWERS_OF_TEN[dictionary.scale(currency)];
+        long minor = Math.round(amount * scale);
+        return Math.abs(minor) < MAX_EXACT && minor / (double) scale == amount
+                ? minor
+                : Long.MIN_VALUE;
+    }
+
+    private double readAmount(Reader in, int currency, int raw) {
+        if (raw != 0) {
+            return Double.longBitsToDouble(in.readLong());
+        }
+        long minor = in.readVarint();
+        return ((minor >>> 1) ^ -(minor & 1)) / (double) POWERS_OF_TEN[dictionary.scale(currency)];
+    }
+
+    private static void writeAmount(Writer out, double amount, long minor) {
+        if (minor == Long.MIN_VALUE) {
+            out.writeLong(Double.doubleToLongBits(amount));
+        } else {
+            out.writeVarint((minor << 1) ^ (minor >> 63));
+        }
+    }
+
+    private BankAccount account(long code) {
+        BankAccount account = dictionary.account((int) code);
+        if (account == null) {
+            throw new IllegalArgumentException("Unknown account code: " + code);
+        }
+        return account;
+    }
+
+    private String currency(int ordinal) {
+        String currency = dictionary.currency(ordinal);
+        if (currency == null) {
+            throw new IllegalArgumentException("Unknown currency ordinal: " + ordinal);
+        }
+        return currency;
+    }
+
+    private static final class Writer {
+        private byte[] bytes;
+        private int position;
+
+        private Writer(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        private void writeByte(int value) {
+            ensure(1);
+            bytes[position++] = (byte) value;
+        }
+
+        private void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[position++] = (byte) value;
+        }
+
+        private void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeString(String value) {
+            byte[] utf8 = value.getBytes(UTF_8);
+            writeVarint(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, position, utf8.length);
+            position += utf8.length;
+        }
+
+        private void ensure(int more) {
+            if (position + more > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + more));
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, position);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        private Reader(byte[] bytes) {
+            this.bytes = bytes;
+            if (bytes.length == 0 || bytes[0] != VERSION) {
+                throw new IllegalArgumentException("Unsupported record version: "
+                        + (bytes.length == 0 ? "empty" : bytes[0]));
+            }
+            this.position = 1;
+        }
+
+        private int readByte() {
+            check(1);
+            return bytes[position++] & 0xFF;
+        }
+
+        private long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Corrupt record: malformed varint");
+        }
+
+        private long readLong() {
+            check(8);
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = value << 8 | (bytes[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        private String readString() {
+            int length = (int) readVarint();
+            check(length);
+            String value = new String(bytes, position, length, UTF_8);
+            position += length;
+            return value;
+        }
+
+        private void check(int more) {
+            if (more < 0 || position + more > bytes.length) {
+                throw new IllegalArgumentException("Corrupt record: truncated");
+            }
+        }
+    }
+}
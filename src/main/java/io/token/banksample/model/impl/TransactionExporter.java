@@ -0,0 +1,182 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.common.account.AccountProtos.BankAccount.AccountCase.SWIFT;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.token.banksample.model.AccountTransaction;
+import io.token.banksample.model.ExportFormat;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes exported transactions to an output stream in the given
+ * {@link ExportFormat}. Keeps nothing but the output buffer, so the memory
+ * used does not depend on the number of transactions written.
+ */
+final class TransactionExporter {
+    private static final String CSV_HEADER = "id,referenceId,type,from,to,amount,currency,"
+            + "transferAmount,transferCurrency,description,status";
+
+    private final ExportFormat format;
+    private final OutputStream out;
+    private final Writer writer; // null for PROTO
+
+    /**
+     * Creates new exporter. Writes the header, if the format has one.
+     *
+     * @param format output format
+     * @param out stream to write to, not closed by the exporter
+     * @throws IOException if the header can't be written
+     */
+    TransactionExporter(ExportFormat format, OutputStream out) throws IOException {
+        this.format = format;
+        this.out = new BufferedOutputStream(out);
+        this.writer = format == ExportFormat.PROTO
+                ? null
+                : new BufferedWriter(new OutputStreamWriter(this.out, UTF_8));
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Writes a chunk of transactions and flushes it to the underlying stream.
+     *
+     * @param transactions transactions to write
+     * @throws IOException if the transactions can't be written
+     */
+    void write(List<AccountTransaction> transactions) throws IOException {
+        for (AccountTransaction transaction : transactions) {
+            switch (format) {
+                case CSV:
+                    writeCsv(transaction);
+                    break;
+                case JSON_LINES:
+                    writeJson(transaction);
+                    break;
+                case PROTO:
+                    transaction.toTransaction().writeDelimitedTo(out);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported format: " + format);
+            }
+        }
+        if (writer != null) {
+            writer.flush();
+        } else {
+            out.flush();
+        }
+    }
+
+    private void writeCsv(AccountTransaction transaction) throws IOException {
+        writeCsvField(transaction.getId());
+        writer.write(',');
+        writeCsvField(transaction.getReferenceId());
+        writer.write(',');
+        writer.write(transaction.getType().name());
+        writer.write(',');
+        writeCsvField(format(transaction.getFrom()));
+        writer.write(',');
+        writeCsvField(format(transaction.getTo()));
+        writer.write(',');
+        writer.write(Double.toString(transaction.getAmount()));
+        writer.write(',');
+        writer.write(transaction.getCurrency());
+        writer.write(',');
+        writer.write(Double.toString(transaction.getTransferAmount()));
+        writer.write(',');
+        writer.write(transaction.getTransferCurrency());
+        writer.write(',');
+        writeCsvField(transaction.getDescription());
+        writer.write(',');
+        writer.write(transaction.getStatus().name());
+        writer.write('\n');
+    }
+
+    private void writeCsvField(String value) throws IOException {
+        if (value.indexOf(',') < 0
+                && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private void writeJson(AccountTransaction transaction) throws IOException {
+        writer.write("{\"id\":");
+        writeJsonString(transaction.getId());
+        writer.write(",\"referenceId\":");
+        writeJsonString(transaction.getReferenceId());
+        writer.write(",\"type\":\"");
+        writer.write(transaction.getType().name());
+        writer.write("\",\"from\":");
+        writeJsonString(format(transaction.getFrom()));
+        writer.write(",\"to\":");
+        writeJsonString(format(transaction.getTo()));
+        writer.write(",\"amount\":");
+        writer.write(Double.toString(transaction.getAmount()));
+        writer.write(",\"currency\":");
+        writeJsonString(transaction.getCurrency());
+        writer.write(",\"transferAmount\":");
+        writer.write(Double.toString(transaction.getTransferAmount()));
+        writer.write(",\"transferCurrency\":");
+        writeJsonString(transaction.getTransferCurrency());
+        writer.write(",\"description\":");
+        writeJsonString(transaction.getDescription());
+        writer.write(",\"status\":\"");
+        writer.write(transaction.getStatus().name());
+        writer.write("\"}\n");
+    }
+
+    private void writeJsonString(String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+
+    /**
+     * Formats account as {@code BIC/number}, same as the change log.
+     */
+    private static String format(BankAccount account) {
+        return account.getAccountCase() == SWIFT
+                ? account.getSwift().getBic() + '/' + account.getSwift().getAccount()
+                : account.getAccountCase().name();
+    }
+}
@@ -0,0 +1,73 @@
+package io.token.banksample.model.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates 64 bit transfer ids made of the milliseconds since 2017-01-01
+ * (41 bits), the node id (10 bits) and a per millisecond sequence number
+ * (12 bits). Ids are positive, increase monotonically on each node and are
+ * unique across nodes with different ids.
+ *
+ * <p>When more than 4096 ids are generated within a millisecond, or the clock
+ * goes back, the generator borrows from the following milliseconds instead of
+ * waiting. Ids stay unique across restarts as long as a restart takes longer
+ * than the time borrowed.
+ */
+public final class TransferIdGenerator {
+    static final long EPOCH_MS = 1483228800000L;
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int MAX_NODE = (1 << NODE_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long node;
+    // Last time and sequence issued: milliseconds << SEQUENCE_BITS | sequence.
+    private final AtomicLong last = new AtomicLong();
+
+    /**
+     * Creates new generator.
+     *
+     * @param node node id, 0 to 1023
+     */
+    public TransferIdGenerator(int node) {
+        checkArgument(
+                node >= 0 && node <= MAX_NODE,
+                "Node id must be between 0 and %s: %s",
+                MAX_NODE,
+                node);
+        this.node = node;
+    }
+
+    /**
+     * Generates next transfer id.
+     *
+     * @return transfer id
+     */
+    public long next() {
+        long now = (System.currentTimeMillis() - EPOCH_MS) << SEQUENCE_BITS;
+        long prev;
+        long next;
+        do {
+            prev = last.get();
+            next = Math.max(prev + 1, now);
+        } while (!last.compareAndSet(prev, next));
+        return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)
+                | node << SEQUENCE_BITS
+                | next & SEQUENCE_MASK;
+    }
+
+    /**
+     * Renders transfer id as a fixed width hex string, so that the strings
+     * sort in the same order as the ids.
+     *
+     * @param transferId transfer id
+     * @return transfer id string
+     */
+    public static String format(long transferId) {
+        String hex = Long.toHexString(transferId);
+        return "0000000000000000".substring(hex.length()) + hex;
+    }
+}
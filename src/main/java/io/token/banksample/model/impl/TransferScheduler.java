@@ -0,0 +1,244 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
+import static java.util.Comparator.comparingLong;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.token.banksample.model.AccountTransaction;
+import io.token.banksample.model.Accounting;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes debits at a later time. Scheduled debits are written to a
+ * {@link ScheduleStore} before they are acknowledged, so they survive a
+ * restart, and are kept in a {@link TimerWheel}, so that scheduling a debit
+ * and each tick cost O(1) however many debits are pending.
+ *
+ * <p>Debits that fall due in the same tick are grouped by the ordinal of
+ * the account they debit. Groups are executed in parallel, the debits of a
+ * group one at a time in the order they were scheduled, and a tick
+ * completes before the next one starts, so debits of an account are always
+ * executed in order. A debit that fails, e.g. for insufficient funds, is
+ * logged and dropped.
+ *
+ * <p>Execution is at least once. The debits executed in a tick are marked
+ * as such in the store, synced once at the end of the tick. If the process
+ * dies before that, they are executed again after the restart. The book is
+ * rebuilt in memory, so they are posted once there, but consumers of the
+ * change log see them twice. A cancellation is synced before it returns.
+ */
+public final class TransferScheduler {
+    private final static Logger logger = LoggerFactory.getLogger(TransferScheduler.class);
+
+    private final Accounting accounting;
+    private final ScheduleStore store;
+    private final long tickMillis;
+    private final ExecutorService executor;
+    private final TimerWheel<Scheduled> wheel;
+    private final Map<String, Scheduled> pending = new HashMap<>();
+    private long sequence;
+
+    /**
+     * Creates new scheduler and loads the debits pending in the directory.
+     * Debits that fell due while the scheduler was not running are executed
+     * on the first tick.
+     *
+     * @param accounting accounting to post the debits to
+     * @param directory directory to keep the scheduled debits in
+     * @param tick timer resolution, debits are executed at most this late
+     * @param threads number of threads to execute the due debits on
+     */
+    public TransferScheduler(
+            Accounting accounting,
+            Path directory,
+            Duration tick,
+            int threads) {
+        Preconditions.checkArgument(threads > 0);
+        this.accounting = accounting;
+        this.store = new ScheduleStore(directory);
+        this.tickMillis = tick.toMillis();
+        this.wheel = new TimerWheel<>(tickMillis, System.currentTimeMillis());
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                .setNameFormat("scheduled-transfer-%d")
+                .setDaemon(true)
+                .build());
+        for (ScheduleStore.Entry entry : store.load()) {
+            add(entry);
+        }
+        logger.info("Loaded {} scheduled transfers", pending.size());
+    }
+
+    /**
+     * Schedules a debit. Returns once the debit has been stored. Scheduling
+     * a transaction id that is already pending does nothing.
+     *
+     * @param transaction debit to execute
+     * @param dueAt time to execute the debit at
+     */
+    public synchronized void schedule(AccountTransaction transaction, Instant dueAt) {
+        Preconditions.checkArgument(transaction.getType() == DEBIT);
+        if (pending.containsKey(transaction.getId())) {
+            return;
+        }
+        ScheduleStore.Entry entry = new ScheduleStore.Entry(dueAt.toEpochMilli(), transaction);
+        add(entry);
+        try {
+            store.add(entry);
+        } catch (RuntimeException ex) {
+            // Left in the wheel, skipped when it falls due.
+            pending.remove(transaction.getId());
+            throw ex;
+        }
+    }
+
+    /**
+     * Cancels a scheduled debit.
+     *
+     * @param transactionId id of the scheduled transaction
+     * @return true if cancelled, false if not pending, e.g. already executed
+     */
+    public synchronized boolean cancel(String transactionId) {
+        // The wheel entry is left in place and skipped when it falls due.
+        if (pending.remove(transactionId) == null) {
+            return false;
+        }
+        store.remove(transactionId);
+        store.sync();
+        return true;
+    }
+
+    /**
+     * Returns number of debits waiting to be executed.
+     *
+     * @return number of pending debits
+     */
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Starts ticking on a background thread.
+     */
+    public void start() {
+        Executors
+                .newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setNameFormat("transfer-scheduler-%d")
+                        .setDaemon(true)
+                        .build())
+                .scheduleAtFixedRate(
+                        () -> {
+                            try {
+                                tick(System.currentTimeMillis());
+                            } catch (RuntimeException ex) {
+                                logger.error("Scheduled transfers tick failed", ex);
+                            }
+                        },
+                        tickMillis,
+                        tickMillis,
+                        MILLISECONDS);
+    }
+
+    /**
+     * Advances the timer wheel and executes the debits that have fallen
+     * due.
+     *
+     * @param now current time, epoch milliseconds
+     * @return number of debits executed, including the failed ones
+     */
+    int tick(long now) {
+        List<Scheduled> due = new ArrayList<>();
+        synchronized (this) {
+            for (Scheduled scheduled : wheel.advance(now)) {
+                String id = scheduled.entry.getTransaction().getId();
+                if (pending.get(id) == scheduled) {
+                    pending.remove(id);
+                    due.add(scheduled);
+                }
+            }
+        }
+        if (due.isEmpty()) {
+            return 0;
+        }
+        due.sort(comparingLong(s -> s.sequence));
+        // Unknown accounts, -1, end up in one group and are rejected.
+        Map<Integer, List<Scheduled>> byAccount = new LinkedHashMap<>();
+        for (Scheduled scheduled : due) {
+            byAccount
+                    .computeIfAbsent(
+                            accounting.lookupOrdinal(scheduled.entry.getTransaction().getFrom()),
+                            ordinal -> new ArrayList<>())
+                    .add(scheduled);
+        }
+        if (byAccount.size() == 1) {
+            due.forEach(this::execute);
+        } else {
+            executeGroups(byAccount);
+        }
+        store.sync();
+        return due.size();
+    }
+
+    private void executeGroups(Map<Integer, List<Scheduled>> byAccount) {
+        List<Future<?>> groups = new ArrayList<>(byAccount.size());
+        for (List<Scheduled> group : byAccount.values()) {
+            groups.add(executor.submit(() -> group.forEach(this::execute)));
+        }
+        for (Future<?> group : groups) {
+            try {
+                group.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException ex) {
+                logger.error("Scheduled transfers failed", ex.getCause());
+            }
+        }
+    }
+
+    private void add(ScheduleStore.Entry entry) {
+        Scheduled scheduled = new Scheduled(sequence++, entry);
+        pending.put(entry.getTransaction().getId(), scheduled);
+        wheel.add(entry.getDueAt(), scheduled);
+    }
+
+    private void execute(Scheduled scheduled) {
+        AccountTransaction transaction = scheduled.entry.getTransaction();
+        try {
+            accounting.createDebitTransaction(transaction);
+        } catch (RuntimeException ex) {
+            logger.warn("Scheduled transfer {} failed: {}", transaction.getId(), ex.getMessage());
+        } finally {
+            store.remove(transaction.getId());
+        }
+    }
+
+    /**
+     * Pending debit, numbered in the order it was scheduled.
+     */
+    private static final class Scheduled {
+        private final long sequence;
+        private final ScheduleStore.Entry entry;
+
+        private Scheduled(long sequence, ScheduleStore.Entry entry) {
+            this.sequence = sequence;
+            this.entry = entry;
+        }
+    }
+}
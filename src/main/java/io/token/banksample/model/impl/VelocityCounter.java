@@ -0,0 +1,172 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.bankapi.Bankapi.StatusCode.FAILURE_GENERIC;
+
+import io.token.banksample.config.VelocityLimit;
+import io.token.sdk.api.TransferException;
+
+/**
+ * Counts the debits of an account or a member over a sliding hour and a
+ * sliding day and enforces a {@link VelocityLimit} on them. The hour is
+ * split into minute buckets and the day into hour buckets, so a check costs
+ * a pass over 84 slots regardless of the number of debits, and the window
+ * slides with the bucket granularity.
+ *
+ * <p>Not thread safe. Counters are checked and updated by {@link Account}
+ * under the same lock as the balance reservation, so a debit is either
+ * reserved and counted or neither.
+ */
+final class VelocityCounter {
+    private static final long MINUTE = 60_000;
+    private static final long HOUR = 60 * MINUTE;
+
+    private final String name;
+    private final VelocityLimit limit;
+    private final Window hourly;
+    private final Window daily;
+
+    /**
+     * Creates new counter.
+     *
+     * @param name name of what is limited, reported when the limit is hit,
+     *      e.g. {@code account 0000001}
+     * @param limit limit to enforce
+     */
+    VelocityCounter(String name, VelocityLimit limit) {
+        this(name, limit, new Window(60, MINUTE), new Window(24, HOUR));
+    }
+
+    private VelocityCounter(String name, VelocityLimit limit, Window hourly, Window daily) {
+        this.name = name;
+        this.limit = limit;
+        this.hourly = hourly;
+        this.daily = daily;
+    }
+
+    /**
+     * Creates a counter enforcing a new limit on the debits counted so far.
+     * The two counters share the counts, the replaced one must no longer be
+     * used.
+     *
+     * @param limit limit to enforce
+     * @return new counter
+     */
+    VelocityCounter withLimit(VelocityLimit limit) {
+        return new VelocityCounter(name, limit, hourly, daily);
+    }
+
+    /**
+     * Checks that the debit fits the limits.
+     *
+     * @param now current time, epoch milliseconds
+     * @param amount amount to debit
+     * @throws TransferException if the debit would exceed a limit
+     */
+    void check(long now, double amount) {
+        check(hourly, now, amount, limit.getHourlyCount(), limit.getHourlyAmount(), "hourly");
+        check(daily, now, amount, limit.getDailyCount(), limit.getDailyAmount(), "daily");
+    }
+
+    /**
+     * Counts a debit. Called once the debit has passed {@link #check}.
+     *
+     * @param now current time, epoch milliseconds
+     * @param amount amount debited
+     */
+    void record(long now, double amount) {
+        hourly.add(now, amount);
+        daily.add(now, amount);
+    }
+
+    /**
+     * Returns number of debits counted in the last hour.
+     *
+     * @param now current time, epoch milliseconds
+     * @return number of debits
+     */
+    long hourlyCount(long now) {
+        return hourly.count(now);
+    }
+
+    /**
+     * Returns number of debits counted in the last day.
+     *
+     * @param now current time, epoch milliseconds
+     * @return number of debits
+     */
+    long dailyCount(long now) {
+        return daily.count(now);
+    }
+
+    private void check(
+            Window window,
+            long now,
+            double amount,
+            int maxCount,
+            double maxAmount,
+            String period) {
+        if (maxCount > 0 && window.count(now) + 1 > maxCount) {
+            throw new TransferException(
+                    FAILURE_GENERIC,
+                    "Velocity limit exceeded: " + period + " count of " + name);
+        }
+        if (maxAmount > 0 && window.amount(now) + amount > maxAmount) {
+            throw new TransferException(
+                    FAILURE_GENERIC,
+                    "Velocity limit exceeded: " + period + " amount of " + name);
+        }
+    }
+
+    /**
+     * Ring of fixed width time buckets. A bucket is reused once its time is
+     * out of the window, and only buckets stamped with a time inside the
+     * window are summed.
+     */
+    private static final class Window {
+        private final long bucketMillis;
+        private final long[] stamps;
+        private final long[] counts;
+        private final double[] amounts;
+
+        private Window(int buckets, long bucketMillis) {
+            this.bucketMillis = bucketMillis;
+            this.stamps = new long[buckets];
+            this.counts = new long[buckets];
+            this.amounts = new double[buckets];
+        }
+
+        private void add(long now, double amount) {
+            long stamp = now / bucketMillis;
+            int slot = (int) (stamp % stamps.length);
+            if (stamps[slot] != stamp) {
+                stamps[slot] = stamp;
+                counts[slot] = 0;
+                amounts[slot] = 0;
+            }
+            counts[slot]++;
+            amounts[slot] += amount;
+        }
+
+        private long count(long now) {
+            long oldest = now / bucketMillis - stamps.length;
+            long count = 0;
+            for (int i = 0; i < stamps.length; i++) {
+                if (stamps[i] > oldest) {
+                    count += counts[i];
+                }
+            }
+            return count;
+        }
+
+        private double amount(long now) {
+            long oldest = now / bucketMillis - stamps.length;
+            double amount = 0;
+            for (int i = 0; i < stamps.length; i++) {
+                if (stamps[i] > oldest) {
+                    amount += amounts[i];
+                }
+            }
+            return amount;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package io.token.banksample.model.impl;
+
+import static java.util.Collections.emptyList;
+
+import io.token.banksample.config.AccountConfig;
+import io.token.banksample.config.VelocityLimit;
+import io.token.banksample.model.AccessTokenAuthorization;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+import io.token.sdk.NamedAccount;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Velocity limits of the customer accounts and of the members that link
+ * them. Resolves each account to the counters it has to pass when it is
+ * opened, so that a debit only touches the counters of its own account and
+ * members.
+ *
+ * <p>Member amounts are counted per currency: a member limit of 1000 allows
+ * up to 1000 USD from the member's USD accounts and up to 1000 EUR from the
+ * EUR ones. Members are resolved from the access tokens when the limits are
+ * created.
+ *
+ * <p>Accounts are identified by BIC and number, a limit configured under
+ * the number alone applies to the account of that number at any BIC. On
+ * config reload new limits replace the old ones, taking over the debits
+ * counted so far, see {@link #countersFor(AccountConfig, VelocityLimits)}.
+ */
+public final class VelocityLimits {
+    private final VelocityLimit accountDefault;
+    private final Map<String, VelocityLimit> accountLimits;
+    private final VelocityLimit memberDefault;
+    private final Map<String, VelocityLimit> memberLimits;
+    private final Map<String, List<String>> membersByAccount;
+    private final Map<String, VelocityCounter> accountCounters;
+    private final Map<String, VelocityCounter> memberCounters;
+
+    /**
+     * Creates new velocity limits.
+     *
+     * @param accountDefault limit of the accounts without one of their own
+     * @param accountLimits limits keyed by account BIC and number, as
+     *      {@code bic/number}, or by account number
+     * @param memberDefault limit of the members without one of their own
+     * @param memberLimits limits keyed by member id
+     * @param authorizations access tokens, linking the members to their
+     *      accounts
+     */
+    public VelocityLimits(
+            VelocityLimit accountDefault,
+            Map<String, VelocityLimit> accountLimits,
+            VelocityLimit memberDefault,
+            Map<String, VelocityLimit> memberLimits,
+            Collection<AccessTokenAuthorization> authorizations) {
+        this.accountDefault = accountDefault;
+        this.accountLimits = accountLimits;
+        this.memberDefault = memberDefault;
+        this.memberLimits = memberLimits;
+        this.membersByAccount = new HashMap<>();
+        this.accountCounters = new HashMap<>();
+        this.memberCounters = new HashMap<>();
+        for (AccessTokenAuthorization authorization : authorizations) {
+            for (NamedAccount account : authorization.accounts()) {
+                BankAccount.Swift swift = account.getBankAccount().getSwift();
+                List<String> members = membersByAccount.computeIfAbsent(
+                        key(swift.getBic(), swift.getAccount()),
+                        key -> new ArrayList<>(1));
+                if (!members.contains(authorization.memberId())) {
+                    members.add(authorization.memberId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether any limit is configured.
+     *
+     * @return true if no account or member is limited
+     */
+    public boolean isUnlimited() {
+        return accountDefault.isUnlimited()
+                && accountLimits.values().stream().allMatch(VelocityLimit::isUnlimited)
+                && memberDefault.isUnlimited()
+                && memberLimits.values().stream().allMatch(VelocityLimit::isUnlimited);
+    }
+
+    /**
+     * Resolves the counters a debit from the given account has to pass.
+     * Called under the accounting lock when the account is opened.
+     *
+     * @param account account configuration
+     * @return counters of the account and its members, null if unlimited
+     */
+    VelocityCounter[] countersFor(AccountConfig account) {
+        return countersFor(account, null);
+    }
+
+    /**
+     * Resolves the counters a debit from the given account has to pass,
+     * taking over the debits counted by the limits being replaced. Called
+     * under the accounting lock when the account is opened or the limits
+     * are reloaded.
+     *
+     * @param account account configuration
+     * @param previous limits being replaced, or null
+     * @return counters of the account and its members, null if unlimited
+     */
+    VelocityCounter[] countersFor(AccountConfig account, VelocityLimits previous) {
+        List<VelocityCounter> counters = new ArrayList<>();
+        String key = key(account.getBic(), account.getNumber());
+        VelocityLimit limit = accountLimits.getOrDefault(
+                key,
+                accountLimits.getOrDefault(account.getNumber(), accountDefault));
+        if (!limit.isUnlimited()) {
+            counters.add(counter(
+                    accountCounters,
+                    previous == null ? null : previous.accountCounters,
+                    key,
+                    "account " + account.getNumber(),
+                    limit));
+        }
+        String currency = account.getBalance().getCurrency();
+        for (String member : membersByAccount.getOrDefault(key, emptyList())) {
+            VelocityLimit memberLimit = memberLimits.getOrDefault(member, memberDefault);
+            if (!memberLimit.isUnlimited()) {
+                counters.add(counter(
+                        memberCounters,
+                        previous == null ? null : previous.memberCounters,
+                        member + '/' + currency,
+                        "member " + member,
+                        memberLimit));
+            }
+        }
+        return counters.isEmpty() ? null : counters.toArray(new VelocityCounter[0]);
+    }
+
+    private static VelocityCounter counter(
+            Map<String, VelocityCounter> counters,
+            Map<String, VelocityCounter> previous,
+            String key,
+            String name,
+            VelocityLimit limit) {
+        return counters.computeIfAbsent(key, k -> {
+            VelocityCounter counted = previous == null ? null : previous.get(k);
+            return counted == null
+                    ? new VelocityCounter(name, limit)
+                    : counted.withLimit(limit);
+        });
+    }
+
+    private static String key(String bic, String number) {
+        return bic + '/' + number;
+    }
+}
@@ -4,9 +4,11 @@ import static io.token.proto.bankapi.Bankapi.StatusCode.FAILURE_ACCOUNT_NOT_FOUN
 import static io.token.proto.common.account.AccountProtos.AccountIdentifier.Iban;
 import static java.util.stream.Collectors.toList;
 
+import com.google.common.collect.Maps;
 import io.token.banksample.config.AccountConfig;
 import io.token.banksample.model.AccountTransaction;
 import io.token.banksample.model.Accounting;
+import io.token.banksample.model.ExportFormat;
 import io.token.proto.PagedList;
 import io.token.proto.bankapi.Bankapi.GetAccountResponse;
 import io.token.proto.bankapi.Bankapi.GetAccountResponse.Account;
@@ -22,18 +24,32 @@ import io.token.sdk.api.Balance;
 import io.token.sdk.api.BankException;
 import io.token.sdk.api.service.AccountService;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Sample implementation of the {@link AccountService}. Returns fake data.
+ *
+ * <p>Balance and transaction polls are served through a {@link ReadCoalescer},
+ * so that a client polling a payment costs one lookup per change of the
+ * account rather than one per poll.
  */
 public class AccountServiceImpl implements AccountService {
+    private static final long MAX_CACHED_READS = 100_000;
+
     private final Accounting accounts;
+    // Keyed by the account ordinal.
+    private final ReadCoalescer<Integer, Balance> balances;
+    private final ReadCoalescer<Map.Entry<Integer, String>, Optional<Transaction>> transactions;
 
     public AccountServiceImpl(Accounting accounts) {
         this.accounts = accounts;
+        this.balances = new ReadCoalescer<>("balances", MAX_CACHED_READS);
+        this.transactions = new ReadCoalescer<>("transactions", MAX_CACHED_READS);
     }
 
     @Override
@@ -72,18 +88,23 @@ public class AccountServiceImpl implements AccountService {
 
     @Override
     public Balance getBalance(BankAccount account) {
-        return accounts
+        int ordinal = accounts.lookupOrdinal(account);
+        return balances.get(ordinal, accounts.lookupVersion(ordinal), () -> accounts
                 .lookupBalance(account)
                 .orElseThrow(() -> new BankException(
                         FAILURE_ACCOUNT_NOT_FOUND,
-                        "Account not found"));
+                        "Account not found")));
     }
 
     @Override
     public Optional<Transaction> getTransaction(BankAccount account, String transactionId) {
-        return accounts
-                .lookupTransaction(account, transactionId)
-                .map(AccountTransaction::toTransaction);
+        int ordinal = accounts.lookupOrdinal(account);
+        return transactions.get(
+                Maps.immutableEntry(ordinal, transactionId),
+                accounts.lookupVersion(ordinal),
+                () -> accounts
+                        .lookupTransaction(account, transactionId)
+                        .map(AccountTransaction::toTransaction));
     }
 
     @Override
@@ -100,6 +121,22 @@ public class AccountServiceImpl implements AccountService {
         return PagedList.create(transactions, encodeCursor(offset + transactions.size()));
     }
 
+    /**
+     * Streams the full transaction history of the account, newest first.
+     * Not part of the {@link AccountService}; meant for statement and audit
+     * exports that would otherwise page through {@link #getTransactions}.
+     *
+     * @param account account to export the transactions for
+     * @param format output format
+     * @param out stream to write to
+     * @return number of transactions written
+     * @throws IOException if the output can't be written
+     */
+    public long exportTransactions(BankAccount account, ExportFormat format, OutputStream out)
+            throws IOException {
+        return accounts.exportTransactions(account, format, out);
+    }
+
     @Override
     public List<TransferDestination> resolveTransferDestinations(BankAccount bankAccount) {
         AccountConfig account = accounts
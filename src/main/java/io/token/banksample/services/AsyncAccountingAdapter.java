@@ -0,0 +1,159 @@
+package io.token.banksample.services;
+
+import static io.token.proto.bankapi.Bankapi.StatusCode.FAILURE_GENERIC;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.token.banksample.config.AccountConfig;
+import io.token.banksample.model.AccountTransaction;
+import io.token.banksample.model.Accounting;
+import io.token.banksample.model.AsyncAccounting;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+import io.token.sdk.api.Balance;
+import io.token.sdk.api.BankException;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Supplier;
+
+/**
+ * Exposes a synchronous {@link Accounting} as {@link AsyncAccounting}.
+ * Transactions are applied in order by a single writer, so request threads
+ * only queue them instead of contending for the accounting lock. Lookups
+ * run on a separate read executor, except for the balance which never
+ * blocks and is read on the calling thread. The wrapped accounting remains
+ * available for synchronous callers.
+ */
+public final class AsyncAccountingAdapter implements AsyncAccounting {
+    private final Accounting accounting;
+    private final Executor writeExecutor;
+    private final Executor readExecutor;
+
+    /**
+     * Creates new adapter.
+     *
+     * @param accounting accounting to delegate to
+     * @param writeExecutor executor to apply the transactions on, must run
+     *      the tasks one at a time in submission order
+     * @param readExecutor executor to run the lookups on
+     */
+    public AsyncAccountingAdapter(
+            Accounting accounting,
+            Executor writeExecutor,
+            Executor readExecutor) {
+        this.accounting = accounting;
+        this.writeExecutor = writeExecutor;
+        this.readExecutor = readExecutor;
+    }
+
+    /**
+     * Creates new adapter with a single writer thread and a fixed pool of
+     * reader threads.
+     *
+     * @param accounting accounting to delegate to
+     * @param queueSize max number of transactions waiting to be applied;
+     *      transactions over the limit are rejected
+     * @param readThreads number of reader threads
+     * @return async accounting
+     */
+    public static AsyncAccountingAdapter create(
+            Accounting accounting,
+            int queueSize,
+            int readThreads) {
+        return new AsyncAccountingAdapter(
+                accounting,
+                new ThreadPoolExecutor(
+                        1,
+                        1,
+                        0,
+                        MILLISECONDS,
+                        new ArrayBlockingQueue<>(queueSize),
+                        new ThreadFactoryBuilder()
+                                .setNameFormat("accounting-writer-%d")
+                                .setDaemon(true)
+                                .build()),
+                Executors.newFixedThreadPool(readThreads, new ThreadFactoryBuilder()
+                        .setNameFormat("accounting-reader-%d")
+                        .setDaemon(true)
+                        .build()));
+    }
+
+    @Override
+    public CompletableFuture<Optional<AccountConfig>> lookupAccount(BankAccount bankAccount) {
+        return submit(readExecutor, () -> accounting.lookupAccount(bankAccount));
+    }
+
+    @Override
+    public CompletableFuture<Optional<Balance>> lookupBalance(BankAccount account) {
+        // Lock free, not worth a thread hop.
+        try {
+            return CompletableFuture.completedFuture(accounting.lookupBalance(account));
+        } catch (RuntimeException ex) {
+            CompletableFuture<Optional<Balance>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(ex);
+            return failed;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Optional<Balance>> lookupBalance(
+            BankAccount account,
+            Instant asOf) {
+        return submit(readExecutor, () -> accounting.lookupBalance(account, asOf));
+    }
+
+    @Override
+    public CompletableFuture<Void> createDebitTransaction(AccountTransaction transaction) {
+        return submit(writeExecutor, () -> {
+            accounting.createDebitTransaction(transaction);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> createDebitTransactions(List<AccountTransaction> transactions) {
+        return submit(writeExecutor, () -> {
+            accounting.createDebitTransactions(transactions);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Optional<AccountTransaction>> lookupTransaction(
+            BankAccount account,
+            String transactionId) {
+        return submit(readExecutor, () -> accounting.lookupTransaction(account, transactionId));
+    }
+
+    @Override
+    public CompletableFuture<List<AccountTransaction>> lookupTransactionsByReference(
+            String referenceId) {
+        return submit(readExecutor, () -> accounting.lookupTransactionsByReference(referenceId));
+    }
+
+    @Override
+    public CompletableFuture<List<AccountTransaction>> lookupTransactions(
+            BankAccount account,
+            int offset,
+            int limit) {
+        return submit(readExecutor, () -> accounting.lookupTransactions(account, offset, limit));
+    }
+
+    private static <T> CompletableFuture<T> submit(Executor executor, Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException ex) {
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(
+                    new BankException(FAILURE_GENERIC, "Accounting is overloaded"));
+            return failed;
+        }
+    }
+}
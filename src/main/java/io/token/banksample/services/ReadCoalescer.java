@@ -0,0 +1,173 @@
+package io.token.banksample.services;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves repeated reads of the same key, e.g. clients polling the balance or
+ * the status of a transfer. Results are cached along with the version of the
+ * account they were read at and are served until the account version
+ * changes. Concurrent misses for the same key and version are coalesced:
+ * one caller computes the result, the others wait for it.
+ *
+ * @param <K> key type
+ * @param <V> result type
+ */
+final class ReadCoalescer<K, V> {
+    private final static Logger logger = LoggerFactory.getLogger(ReadCoalescer.class);
+    private static final long REPORT_EVERY = 100_000;
+
+    private final String name;
+    private final Cache<K, Versioned<V>> results;
+    private final ConcurrentMap<K, InFlight<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder cached = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final AtomicLong executed = new AtomicLong();
+
+    /**
+     * Creates new coalescer.
+     *
+     * @param name name to report the counters under
+     * @param maxSize max number of results to cache
+     */
+    ReadCoalescer(String name, long maxSize) {
+        this.name = name;
+        this.results = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * Returns the result for the key, computing it unless it has been
+     * computed at the same version already or is being computed right now.
+     *
+     * @param key key
+     * @param version version of the account the key belongs to, read before
+     *      computing the result; negative if unknown, the result is then
+     *      computed and not cached
+     * @param compute computes the result
+     * @return result
+     */
+    V get(K key, long version, Supplier<V> compute) {
+        if (version < 0) {
+            return compute.get();
+        }
+        Versioned<V> result = results.getIfPresent(key);
+        if (result != null && result.version == version) {
+            cached.increment();
+            return result.value;
+        }
+
+        InFlight<V> call = new InFlight<>(version);
+        InFlight<V> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null && existing.version == version) {
+            coalesced.increment();
+            return existing.join();
+        }
+        if (existing != null) {
+            // Computed at another version, can't share the result.
+            call = null;
+        }
+
+        if (executed.incrementAndGet() % REPORT_EVERY == 0) {
+            logger.info("Read coalescer {}: {}", name, this);
+        }
+        try {
+            V value = compute.get();
+            // The version was read before computing, so the result is at
+            // least as recent as the version it is cached at.
+            results.asMap().merge(
+                    key,
+                    new Versioned<>(version, value),
+                    (a, b) -> a.version > b.version ? a : b);
+            if (call != null) {
+                call.future.complete(value);
+            }
+            return value;
+        } catch (RuntimeException | Error ex) {
+            if (call != null) {
+                call.future.completeExceptionally(ex);
+            }
+            throw ex;
+        } finally {
+            if (call != null) {
+                inFlight.remove(key, call);
+            }
+        }
+    }
+
+    /**
+     * Returns number of results served from the cache.
+     *
+     * @return number of cached results
+     */
+    long getCached() {
+        return cached.sum();
+    }
+
+    /**
+     * Returns number of calls that waited for a concurrent identical call.
+     *
+     * @return number of coalesced calls
+     */
+    long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Returns number of calls that computed their result.
+     *
+     * @return number of executed calls
+     */
+    long getExecuted() {
+        return executed.get();
+    }
+
+    @Override
+    public String toString() {
+        return "cached: " + cached.sum()
+                + ", coalesced: " + coalesced.sum()
+                + ", executed: " + executed.get();
+    }
+
+    private static final class Versioned<V> {
+        private final long version;
+        private final V value;
+
+        private Versioned(long version, V value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+
+    private static final class InFlight<V> {
+        private final long version;
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+
+        private InFlight(long version) {
+            this.version = version;
+        }
+
+        private V join() {
+            try {
+                return future.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw ex;
+            }
+        }
+    }
+}
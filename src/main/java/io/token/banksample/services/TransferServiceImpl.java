@@ -5,22 +5,34 @@ import static io.token.proto.bankapi.Bankapi.StatusCode.FAILURE_INSUFFICIENT_FUN
 import static io.token.proto.bankapi.Bankapi.StatusCode.FAILURE_INVALID_CURRENCY;
 import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
 import static java.lang.String.join;
+import static java.util.stream.Collectors.toList;
 
 import io.token.banksample.model.AccountTransaction;
 import io.token.banksample.model.Accounting;
+import io.token.banksample.model.Currencies;
+import io.token.banksample.model.FxRates;
+import io.token.proto.common.account.AccountProtos.BankAccount;
 import io.token.sdk.api.Balance;
 import io.token.sdk.api.Transfer;
 import io.token.sdk.api.TransferException;
 import io.token.sdk.api.service.TransferService;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Sample implementation of the {@link TransferService}. Returns fake data.
  */
 public class TransferServiceImpl implements TransferService {
     private final Accounting accounts;
+    private final FxRates fxRates;
 
-    public TransferServiceImpl(Accounting accounts) {
+    public TransferServiceImpl(Accounting accounts, FxRates fxRates) {
         this.accounts = accounts;
+        this.fxRates = fxRates;
     }
 
     @Override
@@ -30,37 +42,151 @@ public class TransferServiceImpl implements TransferService {
                 .orElseThrow(() -> new TransferException(
                         FAILURE_GENERIC,
                         "Account not found: " + transfer.getAccount()));
+        // Both currencies have to be known, the ledger rejects unknown ones.
+        int scale = scaleOf(balance.getCurrency());
+        scaleOf(transfer.getRequestedAmountCurrency());
 
+        // The customer account is debited in the account currency, priced off
+        // the cached FX quote if the requested amount is in a different
+        // currency. The requested amount is what the destinations receive.
+        BigDecimal amount = transfer.getTransactionAmount();
         if (!balance.getCurrency().equals(transfer.getRequestedAmountCurrency())) {
-            throw new TransferException(
-                    FAILURE_INVALID_CURRENCY,
-                    "FX is not supported");
+            amount = fxRates
+                    .lookupQuote(transfer.getRequestedAmountCurrency(), balance.getCurrency())
+                    .orElseThrow(() -> new TransferException(
+                            FAILURE_INVALID_CURRENCY,
+                            "FX rate not available: "
+                                    + transfer.getRequestedAmountCurrency()
+                                    + "/"
+                                    + balance.getCurrency()))
+                    .convert(transfer.getRequestedAmount())
+                    .setScale(scale, RoundingMode.UP);
         }
 
-        if (balance.getAvailable().compareTo(transfer.getTransactionAmount()) < 0) {
+        if (balance.getAvailable().compareTo(amount) < 0) {
             throw new TransferException(
                     FAILURE_INSUFFICIENT_FUNDS,
                     "Balance exceeded");
         }
 
-        AccountTransaction transaction = AccountTransaction.builder(DEBIT)
-                .id(join(":", transfer.getTokenTransferId(), DEBIT.name().toLowerCase()))
+        List<BankAccount> destinations = transfer.getDestinations()
+                .stream()
+                .map(destination -> destination.getAccount())
+                .collect(toList());
+        if (destinations.isEmpty()) {
+            throw new TransferException(FAILURE_GENERIC, "No transfer destination");
+        }
+        String debitId = join(":", transfer.getTokenTransferId(), DEBIT.name().toLowerCase());
+        if (destinations.size() == 1) {
+            AccountTransaction transaction = debit(
+                    transfer,
+                    debitId,
+                    destinations.get(0),
+                    amount,
+                    balance.getCurrency(),
+                    transfer.getRequestedAmount());
+            accounts.createDebitTransaction(transaction);
+
+            // A bank needs to initiate a transfer here. Leaving this part out
+            // since it changes from scheme to scheme.
+
+            return transaction.getId();
+        }
+
+        // The payment is split evenly across the destinations. The legs are
+        // posted together, with a single reservation of the total.
+        List<BigDecimal> amounts = split(amount, balance.getCurrency(), destinations.size());
+        List<BigDecimal> transferAmounts = split(
+                transfer.getRequestedAmount(),
+                transfer.getRequestedAmountCurrency(),
+                destinations.size());
+        List<AccountTransaction> legs = new ArrayList<>(destinations.size());
+        for (int i = 0; i < destinations.size(); i++) {
+            legs.add(debit(
+                    transfer,
+                    join(":", debitId, String.valueOf(i)),
+                    destinations.get(i),
+                    amounts.get(i),
+                    balance.getCurrency(),
+                    transferAmounts.get(i)));
+        }
+        accounts.createDebitTransactions(legs);
+        return legs.get(0).getId();
+    }
+
+    private static AccountTransaction debit(
+            Transfer transfer,
+            String id,
+            BankAccount destination,
+            BigDecimal amount,
+            String currency,
+            BigDecimal transferAmount) {
+        return AccountTransaction.builder(DEBIT)
+                .id(id)
                 .referenceId(transfer.getTokenTransferId())
                 .from(transfer.getAccount())
-                .to(transfer.getDestinations().get(0).getAccount())
-                .amount(
-                        transfer.getTransactionAmount().doubleValue(),
-                        transfer.getTransactionAmountCurrency())
+                .to(destination)
+                .amount(amount.doubleValue(), currency)
                 .transferAmount(
-                        transfer.getTransactionAmount().doubleValue(),
-                        transfer.getTransactionAmountCurrency())
+                        transferAmount.doubleValue(),
+                        transfer.getRequestedAmountCurrency())
                 .description(transfer.getDescription())
                 .build();
-        accounts.createDebitTransaction(transaction);
+    }
 
-        // A bank needs to initiate a transfer here. Leaving this part out
-        // since it changes from scheme to scheme.
+    /**
+     * Returns number of minor unit digits of the currency, see
+     * {@link Currencies#scaleOf}.
+     *
+     * @param currency currency code
+     * @return currency scale
+     * @throws TransferException if the currency is not an ISO 4217 currency
+     */
+    private static int scaleOf(String currency) {
+        try {
+            return Currencies.scaleOf(currency);
+        } catch (IllegalArgumentException ex) {
+            throw new TransferException(
+                    FAILURE_INVALID_CURRENCY,
+                    "Unknown currency: " + currency);
+        }
+    }
 
-        return transaction.getId();
+    /**
+     * Splits amount into equal parts in the minor units of its currency. The
+     * remainder goes to the first parts, one unit each, so that the parts
+     * add up to the amount exactly.
+     *
+     * @param amount amount to split
+     * @param currency amount currency
+     * @param parts number of parts
+     * @return parts
+     * @throws TransferException if the amount is not whole in minor units or
+     *      too small to give every part at least one unit
+     */
+    static List<BigDecimal> split(BigDecimal amount, String currency, int parts) {
+        BigDecimal minor;
+        try {
+            minor = amount.setScale(scaleOf(currency), RoundingMode.UNNECESSARY);
+        } catch (ArithmeticException ex) {
+            throw new TransferException(
+                    FAILURE_GENERIC,
+                    "Amount not in minor units of " + currency + ": " + amount);
+        }
+        BigInteger[] quotient = minor.unscaledValue()
+                .divideAndRemainder(BigInteger.valueOf(parts));
+        if (quotient[0].signum() <= 0) {
+            throw new TransferException(
+                    FAILURE_GENERIC,
+                    "Amount too small to split across " + parts + " destinations: "
+                            + amount + " " + currency);
+        }
+        int remainder = quotient[1].intValue();
+        List<BigDecimal> split = new ArrayList<>(parts);
+        for (int i = 0; i < parts; i++) {
+            BigInteger part = i < remainder ? quotient[0].add(BigInteger.ONE) : quotient[0];
+            split.add(new BigDecimal(part, minor.scale()));
+        }
+        return split;
     }
 }
@@ -0,0 +1,61 @@
+package io.token.banksample;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that change log offsets continue from the files already written.
+ */
+public class ChangeLogWriterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recoverEmpty() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        assertThat(ChangeLogWriter.recover(directory)).isZero();
+        assertThat(ChangeLogWriter.recover(directory.resolve("missing"))).isZero();
+    }
+
+    @Test
+    public void recoverFromLastFile() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        write(directory, 0, "a\nb\nc\nd\n");
+        write(directory, 4, "e\nf\n");
+
+        assertThat(ChangeLogWriter.recover(directory)).isEqualTo(6);
+    }
+
+    @Test
+    public void recoverTruncatesPartialLine() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        write(directory, 0, "a\nb\nc\nd\n");
+        Path last = write(directory, 4, "e\nf\ng");
+
+        assertThat(ChangeLogWriter.recover(directory)).isEqualTo(6);
+        assertThat(new String(Files.readAllBytes(last), UTF_8)).isEqualTo("e\nf\n");
+    }
+
+    @Test
+    public void recoverAfterGap() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        write(directory, 0, "a\nb\n");
+        // Events 2 to 5 were skipped by a writer that fell behind.
+        write(directory, 6, "g\nh\n");
+
+        assertThat(ChangeLogWriter.recover(directory)).isEqualTo(8);
+    }
+
+    private static Path write(Path directory, long offset, String lines) throws Exception {
+        Path file = directory.resolve(ChangeLogWriter.fileName(offset));
+        Files.write(file, lines.getBytes(UTF_8));
+        return file;
+    }
+}
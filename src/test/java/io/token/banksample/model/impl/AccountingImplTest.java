@@ -0,0 +1,135 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
+import static java.time.temporal.ChronoUnit.HOURS;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.token.banksample.config.AccountConfig;
+import io.token.banksample.config.SyntheticAccounts;
+import io.token.banksample.model.AccountTransaction;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+import io.token.sdk.api.TransferException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Checks that the legs of a split transfer are posted together or not at
+ * all, and are found by their shared reference.
+ */
+public class AccountingImplTest {
+    private final SyntheticAccounts synthetic =
+            new SyntheticAccounts(42, 3, 1, singletonList("USD"), "RUBYUSCA000");
+    private final List<AccountConfig> customers = synthetic.customerAccounts();
+    private final AccountingImpl accounting = AccountingImpl.builder(new AccountsImpl(
+                    synthetic.holdAccounts(),
+                    synthetic.fxAccounts(),
+                    customers))
+            .build();
+    private final BankAccount from = customers.get(0).toBankAccount();
+
+    @Test
+    public void legsPostedTogether() {
+        BigDecimal available = accounting.lookupBalance(from).get().getAvailable();
+        accounting.createDebitTransactions(asList(
+                leg("split:0", 1, 10),
+                leg("split:1", 2, 5)));
+
+        assertThat(accounting.lookupBalance(from).get().getAvailable())
+                .isEqualByComparingTo(available.subtract(new BigDecimal("15")));
+        assertThat(accounting.lookupTransactionsByReference("split"))
+                .extracting(AccountTransaction::getId)
+                .containsExactly("split:0", "split:1");
+        assertThat(accounting.isBalanced()).isTrue();
+    }
+
+    @Test
+    public void legsRejectedTogether() {
+        BigDecimal available = accounting.lookupBalance(from).get().getAvailable();
+
+        // The legs fit the balance one by one but not together.
+        double amount = available.doubleValue() / 2 + 1;
+        assertThatThrownBy(() -> accounting.createDebitTransactions(asList(
+                leg("split:0", 1, amount),
+                leg("split:1", 2, amount))))
+                .isInstanceOf(TransferException.class);
+
+        assertThat(accounting.lookupTransaction(from, "split:0")).isEmpty();
+        assertThat(accounting.lookupTransactionsByReference("split")).isEmpty();
+        assertThat(accounting.lookupBalance(from).get().getAvailable())
+                .isEqualByComparingTo(available);
+        assertThat(accounting.isBalanced()).isTrue();
+    }
+
+    @Test
+    public void duplicateLegRejectsAll() {
+        accounting.createDebitTransaction(leg("split:1", 2, 1));
+
+        accounting.createDebitTransactions(asList(
+                leg("split:0", 1, 1),
+                leg("split:1", 2, 1)));
+        assertThat(accounting.lookupTransaction(from, "split:0")).isEmpty();
+        assertThat(accounting.lookupTransactionsByReference("split")).hasSize(1);
+    }
+
+    @Test
+    public void repeatedIdRejected() {
+        assertThatThrownBy(() -> accounting.createDebitTransactions(asList(
+                leg("split:0", 1, 1),
+                leg("split:0", 2, 1))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(accounting.lookupTransactions(from, 0, 10)).isEmpty();
+        assertThat(accounting.lookupTransactionsByReference("split")).isEmpty();
+    }
+
+    @Test
+    public void ledgerQueries() {
+        accounting.createDebitTransactions(asList(
+                leg("split:0", 1, 10),
+                leg("split:1", 2, 5)));
+        BankAccount hold = synthetic.holdAccounts().get(0).toBankAccount();
+        Instant start = Instant.now().minus(1, HOURS);
+        Instant end = Instant.now().plus(1, HOURS);
+
+        List<LedgerEntry> statement = accounting.lookupStatement(from, start, end, 0, 10);
+        assertThat(statement).extracting(LedgerEntry::getAmount).containsExactly(-10.0, -5.0);
+        assertThat(accounting.lookupStatement(from, start, end, 1, 10)).hasSize(1);
+        assertThat(accounting.lookupStatement(hold, start, end, 0, 10))
+                .extracting(LedgerEntry::getAmount)
+                .containsExactly(10.0, 5.0);
+        assertThat(accounting.lookupStatement(from, end, end.plus(1, HOURS), 0, 10)).isEmpty();
+        assertThat(accounting.lookupStatement(unknown(), start, end, 0, 10)).isEmpty();
+
+        assertThat(accounting.lookupTransfer(statement.get(1).getTransferId()))
+                .extracting(LedgerEntry::getAccount)
+                .containsExactly(from, hold);
+        assertThat(accounting.lookupTransfer(-1)).isEmpty();
+        assertThat(accounting.lookupLedgerEntries(start, end, 0, 10)).hasSize(4);
+    }
+
+    private AccountTransaction leg(String id, int to, double amount) {
+        return AccountTransaction.builder(DEBIT)
+                .id(id)
+                .referenceId("split")
+                .from(from)
+                .to(customers.get(to).toBankAccount())
+                .amount(amount, "USD")
+                .transferAmount(amount, "USD")
+                .description("Split")
+                .build();
+    }
+
+    private static BankAccount unknown() {
+        return BankAccount.newBuilder()
+                .setSwift(BankAccount.Swift.newBuilder()
+                        .setBic("RUBYUSCA000")
+                        .setAccount("9999999"))
+                .build();
+    }
+}
@@ -0,0 +1,107 @@
+package io.token.banksample.model.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.token.proto.common.account.AccountProtos.BankAccount;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Checks the account, transfer id and time indexes of the ledger.
+ */
+public class AccountingLedgerTest {
+    private static final int HOLD = 0;
+
+    private final AccountingLedger ledger = new AccountingLedger();
+
+    @Test
+    public void statementByAccount() {
+        ledger.post(transfer(1, 1, 10), transfer(2, 2, 20), transfer(3, 1, 30));
+
+        List<LedgerEntry> statement = ledger.lookupStatement(1, 0, Long.MAX_VALUE, 0, 10);
+        assertThat(statement).extracting(LedgerEntry::getTransferId).containsExactly(1L, 3L);
+        assertThat(statement).extracting(LedgerEntry::getAccountOrdinal).containsOnly(1);
+        assertThat(statement).extracting(LedgerEntry::getAmount).containsExactly(-10.0, -30.0);
+
+        assertThat(ledger.lookupStatement(HOLD, 0, Long.MAX_VALUE, 0, 10))
+                .extracting(LedgerEntry::getAmount)
+                .containsExactly(10.0, 20.0, 30.0);
+        assertThat(ledger.lookupStatement(7, 0, Long.MAX_VALUE, 0, 10)).isEmpty();
+        assertThat(ledger.lookupStatement(1000, 0, Long.MAX_VALUE, 0, 10)).isEmpty();
+    }
+
+    @Test
+    public void statementPages() {
+        for (int i = 1; i <= 5; i++) {
+            ledger.post(transfer(i, 1, i));
+        }
+
+        assertThat(ledger.lookupStatement(1, 0, Long.MAX_VALUE, 1, 2))
+                .extracting(LedgerEntry::getTransferId)
+                .containsExactly(2L, 3L);
+        assertThat(ledger.lookupStatement(1, 0, Long.MAX_VALUE, 4, 2))
+                .extracting(LedgerEntry::getTransferId)
+                .containsExactly(5L);
+        assertThat(ledger.lookupStatement(1, 0, Long.MAX_VALUE, 5, 2)).isEmpty();
+    }
+
+    @Test
+    public void statementByTime() {
+        ledger.post(transfer(1, 1, 10));
+        long split = nextMillis(ledger.entryAt(ledger.size() - 1).getTimestamp());
+        ledger.post(transfer(2, 1, 20));
+
+        assertThat(ledger.lookupStatement(1, 0, split, 0, 10))
+                .extracting(LedgerEntry::getTransferId)
+                .containsExactly(1L);
+        assertThat(ledger.lookupStatement(1, split, Long.MAX_VALUE, 0, 10))
+                .extracting(LedgerEntry::getTransferId)
+                .containsExactly(2L);
+        assertThat(ledger.lookupEntries(split, Long.MAX_VALUE, 0, 10))
+                .extracting(LedgerEntry::getAccountOrdinal)
+                .containsExactly(1, HOLD);
+        assertThat(ledger.lookupEntries(0, split, 1, 10))
+                .extracting(LedgerEntry::getAccountOrdinal)
+                .containsExactly(HOLD);
+    }
+
+    @Test
+    public void transferById() {
+        ledger.post(transfer(11, 1, 10), transfer(12, 2, 20));
+
+        List<LedgerEntry> entries = ledger.lookupTransfer(12);
+        assertThat(entries).extracting(LedgerEntry::getAccountOrdinal).containsExactly(2, HOLD);
+        assertThat(entries).extracting(LedgerEntry::getAmount).containsExactly(-20.0, 20.0);
+        assertThat(ledger.lookupTransfer(13)).isEmpty();
+    }
+
+    private static AccountTransfer transfer(long transferId, int from, double amount) {
+        return AccountTransfer.builder()
+                .transferId(transferId)
+                .from(account(from), from)
+                .to(account(HOLD), HOLD)
+                .withAmount(amount, "USD")
+                .build();
+    }
+
+    private static BankAccount account(int ordinal) {
+        return BankAccount.newBuilder()
+                .setSwift(BankAccount.Swift.newBuilder()
+                        .setBic("RUBYUSCA000")
+                        .setAccount(String.format("%07d", ordinal)))
+                .build();
+    }
+
+    // Waits for the clock to move past the given time, so that the next
+    // posting gets a later timestamp.
+    private static long nextMillis(long timestamp) {
+        long now = System.currentTimeMillis();
+        while (now <= timestamp) {
+            Thread.yield();
+            now = System.currentTimeMillis();
+        }
+        return now;
+    }
+}
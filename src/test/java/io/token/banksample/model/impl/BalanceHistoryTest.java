@@ -0,0 +1,97 @@
+package io.token.banksample.model.impl;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks balance-as-of lookups before and after the changes are folded.
+ */
+public class BalanceHistoryTest {
+    private static final long START_MS = 1_500_000_000_000L;
+    private static final int CHANGES = 1_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private BalanceHistory history;
+
+    @Before
+    public void setUp() throws Exception {
+        TransactionArchive archive = new TransactionArchive(
+                folder.newFolder().toPath(),
+                new TransactionCodec(new CodecDictionary(
+                        new AccountsImpl(emptyList(), emptyList(), emptyList()))));
+        history = new BalanceHistory(START_MS, 0, 0, archive);
+    }
+
+    @Test
+    public void exactBeforeFold() {
+        record(0, CHANGES);
+        assertThat(history.balanceAt(START_MS - 1)[0]).isEqualTo(0.0);
+        for (int i = 1; i <= CHANGES; i++) {
+            assertThat(history.balanceAt(START_MS + i)[0]).isEqualTo(i);
+        }
+    }
+
+    @Test
+    public void fold() {
+        record(0, CHANGES);
+        long released = history.fold(100);
+
+        // The folded balances are replayed from the archive.
+        assertThat(released).isEqualTo((CHANGES - 100) * BalanceHistory.BYTES_PER_CHANGE);
+        assertThat(history.balanceAt(START_MS - 1)[0]).isEqualTo(0.0);
+        for (int i = 1; i <= CHANGES; i++) {
+            assertThat(history.balanceAt(START_MS + i)[0]).isEqualTo(i);
+            assertThat(history.balanceAt(START_MS + i)[1]).isEqualTo(i);
+        }
+
+        // Nothing more to fold until more changes are recorded.
+        assertThat(history.fold(100)).isZero();
+        record(CHANGES, CHANGES + 10);
+        assertThat(history.balanceAt(START_MS + CHANGES + 10)[0]).isEqualTo(CHANGES + 10);
+    }
+
+    @Test
+    public void foldRepeatedly() {
+        // Folded in many archived records, as tiering does.
+        for (int n = 0; n < CHANGES; n += 10) {
+            record(n, n + 10);
+            history.fold(5);
+        }
+        for (int i = 1; i <= CHANGES; i++) {
+            assertThat(history.balanceAt(START_MS + i)[0]).isEqualTo(i);
+        }
+    }
+
+    @Test
+    public void foldAtLeast() {
+        record(0, BalanceHistory.MIN_FOLDED_CHANGES);
+        assertThat(history.fold(1)).isZero();
+        assertThat(history.fold(0))
+                .isEqualTo(BalanceHistory.MIN_FOLDED_CHANGES * BalanceHistory.BYTES_PER_CHANGE);
+    }
+
+    @Test
+    public void foldAll() {
+        record(0, CHANGES);
+        history.fold(0);
+        record(CHANGES, CHANGES + 1);
+        assertThat(history.balanceAt(START_MS + CHANGES)[0]).isEqualTo(CHANGES);
+        assertThat(history.balanceAt(START_MS + CHANGES + 1)[0]).isEqualTo(CHANGES + 1);
+        assertThat(history.balanceAt(START_MS + 1)[0]).isEqualTo(1.0);
+        assertThat(history.balanceAt(START_MS + 130)[0]).isEqualTo(130.0);
+    }
+
+    // Records changes of +1 at START_MS + n for n in (from, to].
+    private void record(int from, int to) {
+        for (int n = from + 1; n <= to; n++) {
+            history.record(START_MS + n, 1, 1, n, n);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.bankapi.Bankapi.StatusCode.SUCCESS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.token.proto.common.account.AccountProtos.BankAccount;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Checks the offsets of the change feed and what happens to the consumers
+ * that fall behind.
+ */
+public class ChangeFeedTest {
+    private static final BankAccount ACCOUNT = BankAccount.newBuilder()
+            .setSwift(BankAccount.Swift.newBuilder()
+                    .setBic("RUBYUSCA000")
+                    .setAccount("0000001"))
+            .build();
+
+    @Test
+    public void offsets() throws Exception {
+        ChangeFeed feed = new ChangeFeed(10, 100);
+        assertThat(feed.nextOffset()).isEqualTo(100);
+        publish(feed, 3);
+
+        ChangeFeed.Subscription subscription = feed.subscribe(100);
+        List<ChangeEvent> batch = subscription.poll(2, Duration.ZERO);
+        assertThat(batch).extracting(ChangeEvent::getOffset).containsExactly(100L, 101L);
+        assertThat(batch.get(0).getTransactionId()).isEqualTo("t0");
+        assertThat(subscription.offset()).isEqualTo(102);
+        assertThat(subscription.poll(10, Duration.ZERO))
+                .extracting(ChangeEvent::getOffset)
+                .containsExactly(102L);
+        assertThat(subscription.poll(10, Duration.ZERO)).isEmpty();
+
+        assertThatThrownBy(() -> feed.subscribe(99)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> feed.subscribe(104)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void fallBehind() throws Exception {
+        ChangeFeed feed = new ChangeFeed(4);
+        ChangeFeed.Subscription subscription = feed.subscribe(0);
+        publish(feed, 5);
+
+        assertThatThrownBy(() -> subscription.poll(10, Duration.ZERO))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(feed.subscribe(1).poll(10, Duration.ZERO))
+                .extracting(ChangeEvent::getOffset)
+                .containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    public void resubscribeAtOldest() throws Exception {
+        ChangeFeed feed = new ChangeFeed(4, 10);
+        assertThat(feed.oldestOffset()).isEqualTo(10);
+        ChangeFeed.Subscription subscription = feed.subscribe(10);
+        // Publishing doesn't wait for the subscription that fell behind.
+        publish(feed, 6);
+        assertThat(feed.nextOffset()).isEqualTo(16);
+
+        assertThatThrownBy(() -> subscription.poll(10, Duration.ZERO))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(feed.oldestOffset()).isEqualTo(12);
+        assertThat(feed.subscribe(feed.oldestOffset()).poll(10, Duration.ZERO))
+                .extracting(ChangeEvent::getOffset)
+                .containsExactly(12L, 13L, 14L, 15L);
+    }
+
+    private static void publish(ChangeFeed feed, int events) {
+        for (int i = 0; i < events; i++) {
+            feed.publish(ACCOUNT, "t" + i, SUCCESS);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.token.banksample.config.SyntheticAccounts;
+import io.token.banksample.model.AccountTransaction;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that archived transactions are found by id, including ids with
+ * colliding hashes, as the index grows.
+ */
+public class ColdHistoryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final SyntheticAccounts synthetic =
+            new SyntheticAccounts(42, 2, 0, singletonList("USD"), "RUBYUSCA000");
+    private final BankAccount customer = synthetic.customerAccounts().get(0).toBankAccount();
+    private final ColdHistory cold = new ColdHistory();
+    private TransactionArchive archive;
+
+    @Before
+    public void setUp() throws Exception {
+        archive = new TransactionArchive(
+                folder.newFolder().toPath(),
+                new TransactionCodec(new CodecDictionary(new AccountsImpl(
+                        synthetic.holdAccounts(),
+                        synthetic.fxAccounts(),
+                        synthetic.customerAccounts()))));
+    }
+
+    @Test
+    public void hashCollisions() {
+        // All of these have the same hash code.
+        assertThat("AaAa".hashCode()).isEqualTo("BBBB".hashCode());
+        long aaAa = add("AaAa");
+        long aaBb = add("AaBB");
+        long bbAa = add("BBAa");
+
+        assertThat(cold.find("AaAa", archive)).isEqualTo(aaAa);
+        assertThat(cold.find("AaBB", archive)).isEqualTo(aaBb);
+        assertThat(cold.find("BBAa", archive)).isEqualTo(bbAa);
+        assertThat(cold.find("BBBB", archive)).isEqualTo(-1);
+        assertThat(cold.find("other", archive)).isEqualTo(-1);
+    }
+
+    @Test
+    public void grow() {
+        int transactions = 1_000;
+        long[] addresses = new long[transactions];
+        for (int i = 0; i < transactions; i++) {
+            addresses[i] = add("t" + i);
+        }
+
+        assertThat(cold.size()).isEqualTo(transactions);
+        for (int i = 0; i < transactions; i++) {
+            assertThat(cold.addressAt(i)).isEqualTo(addresses[i]);
+            assertThat(cold.find("t" + i, archive)).isEqualTo(addresses[i]);
+        }
+        assertThat(cold.find("t" + transactions, archive)).isEqualTo(-1);
+    }
+
+    private long add(String id) {
+        long address = archive.append(AccountTransaction.builder(DEBIT)
+                .id(id)
+                .referenceId(id)
+                .from(customer)
+                .to(customer)
+                .amount(1, "USD")
+                .transferAmount(1, "USD")
+                .build());
+        cold.add(id, address);
+        return address;
+    }
+}
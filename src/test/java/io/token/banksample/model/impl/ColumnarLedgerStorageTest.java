@@ -0,0 +1,69 @@
+package io.token.banksample.model.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.token.proto.common.account.AccountProtos.BankAccount;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+/**
+ * Checks that the columnar ledger keeps amounts exactly, including the ones
+ * that are not whole in minor units.
+ */
+public class ColumnarLedgerStorageTest {
+    private final LedgerStorage storage = new ColumnarLedgerStorage();
+
+    @Test
+    public void exactAmounts() {
+        double[] amounts = {12.34, 0.001, 1e17, 0.1 + 0.2};
+        for (int i = 0; i < amounts.length; i++) {
+            storage.append(entry(i, amounts[i], "USD"));
+        }
+        storage.append(entry(amounts.length, 0.5, "JPY"));
+
+        for (int i = 0; i < amounts.length; i++) {
+            assertThat(storage.entryAt(i).getAmount()).isEqualTo(amounts[i]);
+        }
+        assertThat(storage.entryAt(amounts.length).getAmount()).isEqualTo(0.5);
+        assertThat(storage.entryAt(amounts.length).getCurrency()).isEqualTo("JPY");
+    }
+
+    @Test
+    public void scansIncludeRawAmounts() {
+        storage.append(entry(1, 10, "USD"));
+        storage.append(entry(2, 0.005, "USD"));
+        storage.append(entry(3, 0.5, "JPY"));
+        int size = storage.size();
+
+        assertThat(storage.sum("USD", 0, size)).isEqualByComparingTo("10.005");
+        assertThat(storage.sum("JPY", 0, size)).isEqualByComparingTo("0.5");
+        assertThat(storage.filter("USD", new BigDecimal("0.001"), 0, size).size()).isEqualTo(2);
+        assertThat(storage.filter("USD", new BigDecimal("0.01"), 0, size).size()).isEqualTo(1);
+
+        LedgerTotals totals = storage.totals(0, size);
+        assertThat(totals.currencies().get("USD")).isEqualByComparingTo("10.005");
+        assertThat(totals.accounts().get(1)).isEqualByComparingTo("10.505");
+    }
+
+    private static LedgerEntry entry(long transferId, double amount, String currency) {
+        return LedgerEntry.create(
+                transferId,
+                account(1),
+                1,
+                account(0),
+                0,
+                amount,
+                currency,
+                1_500_000_000_000L + transferId);
+    }
+
+    private static BankAccount account(int ordinal) {
+        return BankAccount.newBuilder()
+                .setSwift(BankAccount.Swift.newBuilder()
+                        .setBic("RUBYUSCA000")
+                        .setAccount(String.format("%07d", ordinal)))
+                .build();
+    }
+}
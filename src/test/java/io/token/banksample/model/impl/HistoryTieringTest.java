@@ -0,0 +1,150 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.bankapi.Bankapi.StatusCode.FAILURE_CANCELED;
+import static io.token.proto.bankapi.Bankapi.StatusCode.PROCESSING;
+import static io.token.proto.bankapi.Bankapi.StatusCode.SUCCESS;
+import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.token.banksample.config.SyntheticAccounts;
+import io.token.banksample.model.AccountTransaction;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that transactions stay available as they are moved between the
+ * in-memory and the archived tier, and that the in-memory tier is kept
+ * within its bound.
+ */
+public class HistoryTieringTest {
+    private static final int HOT = 2;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final SyntheticAccounts synthetic =
+            new SyntheticAccounts(42, 2, 0, singletonList("USD"), "RUBYUSCA000");
+    private final AccountsImpl accounts = new AccountsImpl(
+            synthetic.holdAccounts(),
+            synthetic.fxAccounts(),
+            synthetic.customerAccounts());
+    private Path directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.newFolder().toPath();
+    }
+
+    @Test
+    public void pagesAcrossTiers() {
+        Account account = account(0, new HistoryTiering(directory, HOT, Long.MAX_VALUE, accounts));
+        for (int i = 0; i < 5; i++) {
+            assertThat(account.createTransaction(debit(account, "t" + i))).isTrue();
+        }
+
+        // Newest first, t4 and t3 are in memory, the rest archived.
+        assertThat(account.lookupTransactions(0, 10))
+                .extracting(AccountTransaction::getId)
+                .containsExactly("t4", "t3", "t2", "t1", "t0");
+        assertThat(account.lookupTransactions(1, 2))
+                .extracting(AccountTransaction::getId)
+                .containsExactly("t3", "t2");
+        assertThat(account.lookupTransactions(3, 10))
+                .extracting(AccountTransaction::getId)
+                .containsExactly("t1", "t0");
+        assertThat(account.lookupTransactions(5, 10)).isEmpty();
+        assertThat(account.lookupTransaction("t0").get().getId()).isEqualTo("t0");
+        assertThat(account.lookupTransaction("t4").get().getId()).isEqualTo("t4");
+        assertThat(account.lookupTransaction("t5")).isEmpty();
+        assertThat(account.getTransactionCount()).isEqualTo(5);
+
+        // Archived ids are still checked for duplicates.
+        assertThat(account.createTransaction(debit(account, "t0"))).isFalse();
+        assertThat(account.getTransactionCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void commitAndRollbackArchived() {
+        Account account = account(0, new HistoryTiering(directory, HOT, Long.MAX_VALUE, accounts));
+        for (int i = 0; i < 4; i++) {
+            account.createTransaction(debit(account, "t" + i));
+        }
+
+        assertThat(account.commitTransaction("t0").get().getStatus()).isEqualTo(SUCCESS);
+        assertThat(account.rollbackTransaction("t1").get().getStatus())
+                .isEqualTo(FAILURE_CANCELED);
+
+        // The status is updated in the archive, read back on every lookup.
+        assertThat(account.lookupTransaction("t0").get().getStatus()).isEqualTo(SUCCESS);
+        assertThat(account.lookupTransaction("t1").get().getStatus())
+                .isEqualTo(FAILURE_CANCELED);
+        assertThat(account.lookupTransaction("t2").get().getStatus()).isEqualTo(PROCESSING);
+        assertThat(account.getBalance().getAvailable()).isEqualByComparingTo("997");
+        assertThat(account.getBalance().getCurrent()).isEqualByComparingTo("999");
+    }
+
+    @Test
+    public void evictLeastRecentlyWritten() {
+        long perTransaction = TransactionCodec.estimateHeapBytes(debit(account(0, null), "t0"))
+                + BalanceHistory.BYTES_PER_CHANGE;
+        HistoryTiering tiering = new HistoryTiering(directory, 100, 3 * perTransaction, accounts);
+        Account first = account(0, tiering);
+        Account second = account(1, tiering);
+
+        first.createTransaction(debit(first, "t0"));
+        first.createTransaction(debit(first, "t1"));
+        second.createTransaction(debit(second, "t2"));
+        assertThat(tiering.residentBytes()).isEqualTo(3 * perTransaction);
+
+        // Over the bound, the first account is moved out entirely.
+        second.createTransaction(debit(second, "t3"));
+        assertThat(tiering.residentBytes()).isEqualTo(2 * perTransaction);
+        assertThat(tiering.archive().sizeBytes()).isGreaterThan(0);
+        assertThat(first.lookupTransactions(0, 10))
+                .extracting(AccountTransaction::getId)
+                .containsExactly("t1", "t0");
+        assertThat(second.lookupTransactions(0, 10))
+                .extracting(AccountTransaction::getId)
+                .containsExactly("t3", "t2");
+
+        // Still within the bound as the accounts take turns.
+        first.createTransaction(debit(first, "t4"));
+        second.createTransaction(debit(second, "t5"));
+        assertThat(tiering.residentBytes()).isLessThanOrEqualTo(3 * perTransaction);
+        assertThat(first.lookupTransactions(0, 10))
+                .extracting(AccountTransaction::getId)
+                .containsExactly("t4", "t1", "t0");
+    }
+
+    private Account account(int customer, HistoryTiering tiering) {
+        BankAccount bankAccount = synthetic.customerAccounts().get(customer).toBankAccount();
+        return new Account(
+                accounts.lookupOrdinal(bankAccount),
+                bankAccount,
+                "USD",
+                1000,
+                1000,
+                tiering,
+                null,
+                null,
+                null);
+    }
+
+    private AccountTransaction debit(Account from, String id) {
+        return AccountTransaction.builder(DEBIT)
+                .id(id)
+                .referenceId(id)
+                .from(from.getBankAccount())
+                .to(synthetic.holdAccounts().get(0).toBankAccount())
+                .amount(1, "USD")
+                .transferAmount(1, "USD")
+                .build();
+    }
+}
@@ -0,0 +1,146 @@
+package io.token.banksample.model.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.token.proto.common.account.AccountProtos.BankAccount;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Checks the running totals of the reconciler and the full ledger scan.
+ */
+public class LedgerReconcilerTest {
+    private static final int HOLD = 0;
+
+    private final LedgerStorage storage = new ColumnarLedgerStorage();
+    private final LedgerReconciler reconciler = new LedgerReconciler();
+
+    @Test
+    public void balancedInEveryCurrency() {
+        LedgerEntry debit = LedgerEntry.debit(transfer(1, 1, 10, "USD"), 0);
+        LedgerEntry credit = LedgerEntry.credit(transfer(1, 1, 10, "USD"), 0);
+        assertThat(reconciler.isBalanced()).isTrue();
+
+        reconciler.add(debit);
+        assertThat(reconciler.isBalanced()).isFalse();
+        reconciler.add(LedgerEntry.debit(transfer(2, 1, 5, "EUR"), 0));
+        reconciler.add(credit);
+        assertThat(reconciler.isBalanced()).isFalse();
+        reconciler.add(LedgerEntry.credit(transfer(2, 1, 5, "EUR"), 0));
+        assertThat(reconciler.isBalanced()).isTrue();
+
+        LedgerTotals totals = reconciler.snapshot();
+        assertThat(totals.accounts().get(1)).isEqualByComparingTo("-15");
+        assertThat(totals.accounts().get(HOLD)).isEqualByComparingTo("15");
+    }
+
+    @Test
+    public void snapshotIsCopy() {
+        post(transfer(1, 1, 10, "USD"));
+        LedgerTotals snapshot = reconciler.snapshot();
+        post(transfer(2, 1, 10, "USD"));
+        assertThat(snapshot.accounts().get(1)).isEqualByComparingTo("-10");
+    }
+
+    @Test
+    public void reconciled() {
+        // Spans several scan segments.
+        int transfers = 100_000;
+        Map<Integer, BigDecimal> posted = new HashMap<>();
+        for (int i = 0; i < transfers; i++) {
+            int from = 1 + i % 10;
+            post(transfer(i + 1, from, 0.01, i % 2 == 0 ? "USD" : "EUR"));
+            posted.merge(from, new BigDecimal("-0.01"), BigDecimal::add);
+            posted.merge(HOLD, new BigDecimal("0.01"), BigDecimal::add);
+        }
+
+        ReconciliationReport report = verify(posted);
+        assertThat(report.isReconciled()).isTrue();
+        assertThat(report.getEntries()).isEqualTo(2 * transfers);
+        assertThat(report.getMismatches()).isEmpty();
+    }
+
+    @Test
+    public void balanceMismatch() {
+        post(transfer(1, 1, 10, "USD"));
+        Map<Integer, BigDecimal> posted = new HashMap<>();
+        posted.put(1, new BigDecimal("-9"));
+        posted.put(HOLD, new BigDecimal("10"));
+
+        ReconciliationReport report = verify(posted);
+        assertThat(report.isReconciled()).isFalse();
+        assertThat(report.getMismatches()).hasSize(1);
+        assertThat(report.getMismatches().get(0)).startsWith("balance of account 1 moved by -9");
+        assertThat(report.getUnbalancedCurrencies()).isEmpty();
+    }
+
+    @Test
+    public void runningTotalMismatch() {
+        post(transfer(1, 1, 10, "USD"));
+        // Entry counted in the running totals but never stored.
+        reconciler.add(LedgerEntry.debit(transfer(2, 2, 5, "USD"), 0));
+
+        ReconciliationReport report = verify(new HashMap<>());
+        assertThat(report.isReconciled()).isFalse();
+        assertThat(report.getMismatches()).hasSize(2);
+        assertThat(report.getMismatches()).anyMatch(m -> m.startsWith("running total of USD "));
+        assertThat(report.getMismatches())
+                .anyMatch(m -> m.startsWith("running total of account 2 "));
+    }
+
+    @Test
+    public void unbalancedLedger() {
+        post(transfer(1, 1, 10, "USD"));
+        LedgerEntry debit = LedgerEntry.debit(transfer(2, 1, 5, "EUR"), 0);
+        storage.append(debit);
+        reconciler.add(debit);
+
+        ReconciliationReport report = verify(new HashMap<>());
+        assertThat(report.isReconciled()).isFalse();
+        assertThat(report.getUnbalancedCurrencies()).containsOnlyKeys("EUR");
+        assertThat(report.getUnbalancedCurrencies().get("EUR")).isEqualByComparingTo("-5");
+    }
+
+    private void post(AccountTransfer transfer) {
+        LedgerEntry debit = LedgerEntry.debit(transfer, 0);
+        LedgerEntry credit = LedgerEntry.credit(transfer, 0);
+        storage.append(debit);
+        storage.append(credit);
+        reconciler.add(debit);
+        reconciler.add(credit);
+    }
+
+    private ReconciliationReport verify(Map<Integer, BigDecimal> posted) {
+        return LedgerReconciler.verify(
+                storage,
+                storage.size(),
+                reconciler.snapshot(),
+                posted,
+                ordinal -> "account " + ordinal);
+    }
+
+    private static AccountTransfer transfer(
+            long transferId,
+            int from,
+            double amount,
+            String currency) {
+        return AccountTransfer.builder()
+                .transferId(transferId)
+                .from(account(from), from)
+                .to(account(HOLD), HOLD)
+                .withAmount(amount, currency)
+                .build();
+    }
+
+    private static BankAccount account(int ordinal) {
+        return BankAccount.newBuilder()
+                .setSwift(BankAccount.Swift.newBuilder()
+                        .setBic("RUBYUSCA000")
+                        .setAccount(String.format("%07d", ordinal)))
+                .build();
+    }
+}
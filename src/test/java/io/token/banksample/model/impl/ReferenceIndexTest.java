@@ -0,0 +1,64 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.token.banksample.model.AccountTransaction;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+
+import org.junit.Test;
+
+/**
+ * Checks that all the transactions sharing a reference id are indexed, e.g.
+ * the legs of a split transfer.
+ */
+public class ReferenceIndexTest {
+    private static final BankAccount BANK_ACCOUNT = BankAccount.newBuilder()
+            .setSwift(BankAccount.Swift.newBuilder()
+                    .setBic("RUBYUSCA000")
+                    .setAccount("0000001"))
+            .build();
+
+    private final ReferenceIndex index = new ReferenceIndex();
+    private final Account account = new Account(0, BANK_ACCOUNT, "USD", 100, 100);
+
+    @Test
+    public void legsShareReference() {
+        AccountTransaction first = leg("transfer:debit:0");
+        AccountTransaction second = leg("transfer:debit:1");
+        index.add("transfer", account, first);
+        index.add("transfer", account, second);
+
+        assertThat(index.lookup("transfer")).containsExactly(first, second);
+        assertThat(index.lookup("other")).isEmpty();
+    }
+
+    @Test
+    public void removeKeepsOtherLegs() {
+        AccountTransaction first = leg("transfer:debit:0");
+        AccountTransaction second = leg("transfer:debit:1");
+        index.add("transfer", account, first);
+        index.add("transfer", account, second);
+
+        // Same id, but not the indexed transaction.
+        index.remove("transfer", account, leg("transfer:debit:0"));
+        assertThat(index.lookup("transfer")).containsExactly(first, second);
+
+        index.remove("transfer", account, first);
+        assertThat(index.lookup("transfer")).containsExactly(second);
+        index.remove("transfer", account, second);
+        assertThat(index.lookup("transfer")).isEmpty();
+    }
+
+    private static AccountTransaction leg(String id) {
+        return AccountTransaction.builder(DEBIT)
+                .id(id)
+                .referenceId("transfer")
+                .from(BANK_ACCOUNT)
+                .to(BANK_ACCOUNT)
+                .amount(1, "USD")
+                .transferAmount(1, "USD")
+                .description("Split")
+                .build();
+    }
+}
@@ -0,0 +1,88 @@
+package io.token.banksample.model.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that timers fall due exactly on their tick, including the ones
+ * cascaded down from the higher levels of the wheel.
+ */
+public class TimerWheelTest {
+    // Not aligned to any level, so that the cascades happen mid-way.
+    private static final long START = 1_000_003;
+
+    private final TimerWheel<Long> wheel = new TimerWheel<>(1, START);
+
+    @Test
+    public void cascades() {
+        long[] deltas = {
+            1, 255, 256, 257, 511, 512,
+            65_535, 65_536, 65_537, 70_000,
+            (1 << 24) - 1, 1 << 24, (1 << 24) + 5, (1 << 25) + 3,
+        };
+        for (long delta : deltas) {
+            wheel.add(START + delta, START + delta);
+        }
+        assertThat(wheel.size()).isEqualTo(deltas.length);
+
+        for (long delta : deltas) {
+            long dueAt = START + delta;
+            assertThat(wheel.advance(dueAt - 1)).isEmpty();
+            assertThat(wheel.advance(dueAt)).containsExactly(dueAt);
+        }
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    public void overdue() {
+        wheel.add(START - 10, 1L);
+        wheel.add(START, 2L);
+        assertThat(wheel.advance(START)).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    public void tickRoundsUp() {
+        TimerWheel<Long> seconds = new TimerWheel<>(1_000, 10_000);
+        seconds.add(10_001, 1L);
+        assertThat(seconds.advance(10_999)).isEmpty();
+        assertThat(seconds.advance(11_000)).containsExactly(1L);
+    }
+
+    @Test
+    public void tooFar() {
+        assertThatThrownBy(() -> wheel.add(START + (1L << 32), 1L))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void matchesSortedTimers() {
+        Random random = new Random(42);
+        List<Long> pending = new ArrayList<>();
+        long now = START;
+        for (int round = 0; round < 2_000; round++) {
+            for (int i = random.nextInt(5); i > 0; i--) {
+                long dueAt = now + random.nextInt(1 << 17) - 16;
+                wheel.add(dueAt, dueAt);
+                pending.add(dueAt);
+            }
+            now += random.nextInt(512);
+
+            List<Long> expected = new ArrayList<>();
+            for (Long dueAt : pending) {
+                if (dueAt <= now) {
+                    expected.add(dueAt);
+                }
+            }
+            pending.removeAll(expected);
+            assertThat(wheel.advance(now)).containsExactlyInAnyOrderElementsOf(expected);
+            assertThat(wheel.size()).isEqualTo(pending.size());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.bankapi.Bankapi.StatusCode.PROCESSING;
+import static io.token.proto.bankapi.Bankapi.StatusCode.SUCCESS;
+import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.base.Strings;
+import io.token.banksample.config.SyntheticAccounts;
+import io.token.banksample.model.AccountTransaction;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that archived transactions are read back from the segment they
+ * were written to, across segment rollovers, and that their status is
+ * updated in place.
+ */
+public class TransactionArchiveTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final SyntheticAccounts synthetic =
+            new SyntheticAccounts(42, 2, 0, singletonList("USD"), "RUBYUSCA000");
+    private final TransactionCodec codec = new TransactionCodec(new CodecDictionary(
+            new AccountsImpl(
+                    synthetic.holdAccounts(),
+                    synthetic.fxAccounts(),
+                    synthetic.customerAccounts())));
+    private final BankAccount customer = synthetic.customerAccounts().get(0).toBankAccount();
+
+    @Test
+    public void readBack() throws Exception {
+        TransactionArchive archive = new TransactionArchive(folder.newFolder().toPath(), codec);
+        long first = archive.append(transaction("t0", ""));
+        long second = archive.append(transaction("t1", "Payment"));
+
+        assertThat(archive.read(first).getId()).isEqualTo("t0");
+        assertThat(archive.read(second).getDescription()).isEqualTo("Payment");
+        assertThat(archive.readId(second)).isEqualTo("t1");
+
+        archive.updateStatus(first, SUCCESS);
+        assertThat(archive.read(first).getStatus()).isEqualTo(SUCCESS);
+        assertThat(archive.read(second).getStatus()).isEqualTo(PROCESSING);
+        assertThat(archive.readId(first)).isEqualTo("t0");
+    }
+
+    @Test
+    public void exactFill() throws Exception {
+        int recordBytes = Integer.BYTES + codec.encode(transaction("t0", "")).length;
+        TransactionArchive archive = new TransactionArchive(
+                folder.newFolder().toPath(),
+                codec,
+                2 * recordBytes);
+
+        // The second record ends exactly at the end of the first segment.
+        assertThat(archive.append(transaction("t0", ""))).isEqualTo(0);
+        assertThat(archive.append(transaction("t1", ""))).isEqualTo(recordBytes);
+        assertThat(archive.sizeBytes()).isEqualTo(2 * recordBytes);
+        long third = archive.append(transaction("t2", ""));
+        assertThat(third).isEqualTo(1L << 32);
+        assertThat(archive.sizeBytes()).isEqualTo(3 * recordBytes);
+
+        archive.updateStatus(third, SUCCESS);
+        assertThat(archive.read(recordBytes).getId()).isEqualTo("t1");
+        assertThat(archive.read(third).getId()).isEqualTo("t2");
+        assertThat(archive.read(third).getStatus()).isEqualTo(SUCCESS);
+    }
+
+    @Test
+    public void rollover() throws Exception {
+        TransactionArchive archive = new TransactionArchive(folder.newFolder().toPath(), codec);
+        // 8MB records, the eighth one doesn't fit in the first 64MB segment.
+        String description = Strings.repeat("x", 8 * 1024 * 1024);
+        List<Long> addresses = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            addresses.add(archive.append(transaction("t" + i, description)));
+        }
+
+        assertThat(addresses.get(6) >>> 32).isEqualTo(0);
+        assertThat(addresses.get(7)).isEqualTo(1L << 32);
+        assertThat(archive.sizeBytes()).isGreaterThan(TransactionArchive.SEGMENT_BYTES);
+        for (int i = 0; i < 8; i++) {
+            assertThat(archive.readId(addresses.get(i))).isEqualTo("t" + i);
+        }
+        assertThat(archive.read(addresses.get(7)).getDescription()).isEqualTo(description);
+    }
+
+    @Test
+    public void tooLarge() throws Exception {
+        TransactionArchive archive = new TransactionArchive(folder.newFolder().toPath(), codec, 64);
+        assertThatThrownBy(() -> archive.append(transaction("t0", Strings.repeat("x", 64))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private AccountTransaction transaction(String id, String description) {
+        return AccountTransaction.builder(DEBIT)
+                .id(id)
+                .referenceId(id)
+                .from(customer)
+                .to(customer)
+                .amount(1, "USD")
+                .transferAmount(1, "USD")
+                .description(description)
+                .build();
+    }
+}
@@ -0,0 +1,95 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.bankapi.Bankapi.StatusCode.FAILURE_GENERIC;
+import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.token.banksample.config.SyntheticAccounts;
+import io.token.banksample.model.AccountTransaction;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+
+import org.junit.Test;
+
+/**
+ * Checks that transactions and ledger entries survive an encode / decode
+ * round trip, for the book accounts and for the external ones.
+ */
+public class TransactionCodecTest {
+    private static final BankAccount EXTERNAL = BankAccount.newBuilder()
+            .setSwift(BankAccount.Swift.newBuilder()
+                    .setBic("OTHRGB2L000")
+                    .setAccount("12345678"))
+            .build();
+
+    private final SyntheticAccounts synthetic =
+            new SyntheticAccounts(42, 2, 0, singletonList("USD"), "RUBYUSCA000");
+    private final AccountsImpl accounts = new AccountsImpl(
+            synthetic.holdAccounts(),
+            synthetic.fxAccounts(),
+            synthetic.customerAccounts());
+    private final TransactionCodec codec = new TransactionCodec(new CodecDictionary(accounts));
+    private final BankAccount customer = synthetic.customerAccounts().get(0).toBankAccount();
+
+    @Test
+    public void transaction() {
+        AccountTransaction transaction = AccountTransaction.builder(DEBIT)
+                .id("transfer:debit")
+                .referenceId("transfer")
+                .from(customer)
+                .to(EXTERNAL)
+                .amount(12.34, "USD")
+                .transferAmount(1234, "JPY")
+                .description("Payment")
+                .build();
+        transaction.setStatus(FAILURE_GENERIC);
+        byte[] record = codec.encode(transaction);
+
+        AccountTransaction decoded = codec.decodeTransaction(record);
+        assertThat(decoded.getId()).isEqualTo("transfer:debit");
+        assertThat(decoded.getReferenceId()).isEqualTo("transfer");
+        assertThat(decoded.getFrom()).isEqualTo(customer);
+        assertThat(decoded.getTo()).isEqualTo(EXTERNAL);
+        assertThat(decoded.getAmount()).isEqualTo(12.34);
+        assertThat(decoded.getCurrency()).isEqualTo("USD");
+        assertThat(decoded.getTransferAmount()).isEqualTo(1234.0);
+        assertThat(decoded.getTransferCurrency()).isEqualTo("JPY");
+        assertThat(decoded.getDescription()).isEqualTo("Payment");
+        assertThat(decoded.getStatus()).isEqualTo(FAILURE_GENERIC);
+        assertThat(codec.decodeId(record)).isEqualTo("transfer:debit");
+    }
+
+    @Test
+    public void rawAmounts() {
+        // Not whole in minor units, kept as doubles.
+        AccountTransaction transaction = AccountTransaction.builder(DEBIT)
+                .id("raw")
+                .referenceId("raw")
+                .from(EXTERNAL)
+                .to(customer)
+                .amount(0.001, "USD")
+                .transferAmount(0.5, "JPY")
+                .build();
+
+        AccountTransaction decoded = codec.decodeTransaction(codec.encode(transaction));
+        assertThat(decoded.getAmount()).isEqualTo(0.001);
+        assertThat(decoded.getTransferAmount()).isEqualTo(0.5);
+        assertThat(decoded.getDescription()).isEmpty();
+    }
+
+    @Test
+    public void ledgerEntry() {
+        int ordinal = accounts.lookupOrdinal(customer);
+        LedgerEntry entry = LedgerEntry.create(
+                7,
+                customer,
+                ordinal,
+                EXTERNAL,
+                -1,
+                -99.99,
+                "USD",
+                1_500_000_000_000L);
+
+        assertThat(codec.decodeEntry(codec.encode(entry))).isEqualTo(entry);
+    }
+}
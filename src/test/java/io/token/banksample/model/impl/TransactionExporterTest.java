@@ -0,0 +1,93 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.bankapi.Bankapi.StatusCode.SUCCESS;
+import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.token.banksample.model.AccountTransaction;
+import io.token.banksample.model.ExportFormat;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+import io.token.proto.common.transaction.TransactionProtos.Transaction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+/**
+ * Checks the quoting and escaping of the export formats.
+ */
+public class TransactionExporterTest {
+    private final AccountTransaction plain = transaction("t1", "Rent");
+    private final AccountTransaction quoted = transaction("t2", "Say \"hi\",\nthen\tgo");
+
+    @Test
+    public void csv() throws Exception {
+        String[] lines = export(ExportFormat.CSV).split("\n", -1);
+
+        assertThat(lines[0]).startsWith("id,referenceId,type,from,to,");
+        assertThat(lines[1]).isEqualTo("t1,transfer,DEBIT,RUBYUSCA000/0000001,"
+                + "RUBYUSCA000/0000002,12.5,USD,12.5,USD,Rent,SUCCESS");
+        // The quoted description spans two lines.
+        assertThat(lines[2]).endsWith(",\"Say \"\"hi\"\",");
+        assertThat(lines[3]).isEqualTo("then\tgo\",SUCCESS");
+        assertThat(lines[4]).isEmpty();
+    }
+
+    @Test
+    public void jsonLines() throws Exception {
+        String[] lines = export(ExportFormat.JSON_LINES).split("\n");
+
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).isEqualTo("{\"id\":\"t1\",\"referenceId\":\"transfer\","
+                + "\"type\":\"DEBIT\",\"from\":\"RUBYUSCA000/0000001\","
+                + "\"to\":\"RUBYUSCA000/0000002\",\"amount\":12.5,\"currency\":\"USD\","
+                + "\"transferAmount\":12.5,\"transferCurrency\":\"USD\","
+                + "\"description\":\"Rent\",\"status\":\"SUCCESS\"}");
+        assertThat(lines[1]).contains("\"description\":\"Say \\\"hi\\\",\\nthen\\tgo\"");
+    }
+
+    @Test
+    public void proto() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new TransactionExporter(ExportFormat.PROTO, out).write(asList(plain, quoted));
+
+        InputStream in = new ByteArrayInputStream(out.toByteArray());
+        assertThat(Transaction.parseDelimitedFrom(in)).isEqualTo(plain.toTransaction());
+        assertThat(Transaction.parseDelimitedFrom(in)).isEqualTo(quoted.toTransaction());
+        assertThat(Transaction.parseDelimitedFrom(in)).isNull();
+    }
+
+    private String export(ExportFormat format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TransactionExporter exporter = new TransactionExporter(format, out);
+        exporter.write(asList(plain));
+        exporter.write(asList(quoted));
+        return new String(out.toByteArray(), UTF_8);
+    }
+
+    private static AccountTransaction transaction(String id, String description) {
+        AccountTransaction transaction = AccountTransaction.builder(DEBIT)
+                .id(id)
+                .referenceId("transfer")
+                .from(account("0000001"))
+                .to(account("0000002"))
+                .amount(12.5, "USD")
+                .transferAmount(12.5, "USD")
+                .description(description)
+                .build();
+        transaction.setStatus(SUCCESS);
+        return transaction;
+    }
+
+    private static BankAccount account(String number) {
+        return BankAccount.newBuilder()
+                .setSwift(BankAccount.Swift.newBuilder()
+                        .setBic("RUBYUSCA000")
+                        .setAccount(number))
+                .build();
+    }
+}
@@ -0,0 +1,66 @@
+package io.token.banksample.model.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Checks that transfer ids stay unique and ordered under heavy concurrency.
+ */
+public class TransferIdGeneratorTest {
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 100_000;
+
+    @Test
+    public void uniqueUnderConcurrency() throws Exception {
+        TransferIdGenerator generator = new TransferIdGenerator(7);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                long[] ids = new long[IDS_PER_THREAD];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = generator.next();
+                }
+                return ids;
+            }));
+        }
+        start.countDown();
+
+        Set<Long> unique = new HashSet<>();
+        for (Future<long[]> result : results) {
+            long[] ids = result.get();
+            for (int i = 0; i < ids.length; i++) {
+                // Monotonic within a thread.
+                assertThat(i == 0 || ids[i] > ids[i - 1]).isTrue();
+                assertThat(ids[i] >>> TransferIdGenerator.SEQUENCE_BITS
+                        & TransferIdGenerator.MAX_NODE).isEqualTo(7L);
+                unique.add(ids[i]);
+            }
+        }
+        executor.shutdown();
+        assertThat(unique).hasSize(THREADS * IDS_PER_THREAD);
+    }
+
+    @Test
+    public void formattedIdsSortLikeIds() {
+        TransferIdGenerator generator = new TransferIdGenerator(0);
+        long first = generator.next();
+        long second = generator.next();
+        assertThat(TransferIdGenerator.format(first)).hasSize(16);
+        assertThat(TransferIdGenerator.format(first)
+                .compareTo(TransferIdGenerator.format(second)) < 0).isTrue();
+        assertThat(TransferIdGenerator.format(15)).isEqualTo("000000000000000f");
+    }
+}
@@ -0,0 +1,110 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.token.banksample.config.AccountConfig;
+import io.token.banksample.config.SyntheticAccounts;
+import io.token.banksample.model.AccountTransaction;
+import io.token.proto.common.account.AccountProtos.BankAccount;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that scheduled debits survive a restart, run in the order they
+ * were scheduled and are not run again once executed or cancelled.
+ */
+public class TransferSchedulerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final SyntheticAccounts synthetic =
+            new SyntheticAccounts(42, 3, 1, singletonList("USD"), "RUBYUSCA000");
+    private final List<AccountConfig> customers = synthetic.customerAccounts();
+    private final AccountingImpl accounting = AccountingImpl.builder(new AccountsImpl(
+                    synthetic.holdAccounts(),
+                    synthetic.fxAccounts(),
+                    customers))
+            .build();
+    private final Instant dueAt = Instant.now().plus(Duration.ofDays(1));
+
+    @Test
+    public void scheduled() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        TransferScheduler scheduler = scheduler(directory);
+        for (int d = 0; d < 3; d++) {
+            for (int c = 1; c < customers.size(); c++) {
+                scheduler.schedule(debit(c, "standing:" + c + ":" + d), dueAt);
+            }
+        }
+        // Scheduling a pending id again does nothing.
+        scheduler.schedule(debit(1, "standing:1:0"), dueAt);
+        assertThat(scheduler.pendingCount()).isEqualTo(6);
+
+        scheduler = scheduler(directory);
+        assertThat(scheduler.pendingCount()).isEqualTo(6);
+        assertThat(scheduler.cancel("standing:2:1")).isTrue();
+        assertThat(scheduler.cancel("standing:2:1")).isFalse();
+
+        assertThat(scheduler.tick(dueAt.toEpochMilli() - 1000)).isZero();
+        assertThat(scheduler.tick(dueAt.toEpochMilli() + 1000)).isEqualTo(5);
+        assertThat(scheduler.pendingCount()).isZero();
+
+        // Newest first.
+        assertThat(accounting.lookupTransactions(account(1), 0, 10))
+                .extracting(AccountTransaction::getId)
+                .containsExactly("standing:1:2", "standing:1:1", "standing:1:0");
+        assertThat(accounting.lookupTransactions(account(2), 0, 10))
+                .extracting(AccountTransaction::getId)
+                .containsExactly("standing:2:2", "standing:2:0");
+
+        assertThat(scheduler(directory).pendingCount()).isZero();
+    }
+
+    @Test
+    public void failedDebitDropped() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        TransferScheduler scheduler = scheduler(directory);
+        AccountTransaction tooLarge = AccountTransaction.builder(DEBIT)
+                .id("standing:large")
+                .referenceId("standing:large")
+                .from(account(1))
+                .to(account(0))
+                .amount(1e12, "USD")
+                .transferAmount(1e12, "USD")
+                .build();
+        scheduler.schedule(tooLarge, dueAt);
+
+        assertThat(scheduler.tick(dueAt.toEpochMilli() + 1000)).isEqualTo(1);
+        assertThat(accounting.lookupTransactions(account(1), 0, 10)).isEmpty();
+        assertThat(scheduler(directory).pendingCount()).isZero();
+    }
+
+    private TransferScheduler scheduler(Path directory) {
+        return new TransferScheduler(accounting, directory, Duration.ofSeconds(1), 2);
+    }
+
+    private AccountTransaction debit(int customer, String id) {
+        return AccountTransaction.builder(DEBIT)
+                .id(id)
+                .referenceId(id)
+                .from(account(customer))
+                .to(account(0))
+                .amount(1, "USD")
+                .transferAmount(1, "USD")
+                .description("Standing order")
+                .build();
+    }
+
+    private BankAccount account(int customer) {
+        return customers.get(customer).toBankAccount();
+    }
+}
@@ -0,0 +1,91 @@
+package io.token.banksample.model.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.token.banksample.config.VelocityLimit;
+import io.token.sdk.api.TransferException;
+
+import org.junit.Test;
+
+/**
+ * Checks that the debits slide out of the hourly and the daily windows and
+ * that the limits are enforced on what is left in them.
+ */
+public class VelocityCounterTest {
+    private static final long MINUTE = 60_000;
+    private static final long HOUR = 60 * MINUTE;
+    // Aligned to an hour, so that the windows slide at round times.
+    private static final long START_MS = 416_667 * HOUR;
+
+    @Test
+    public void windowsSlide() {
+        VelocityCounter counter = new VelocityCounter("account 0000001", VelocityLimit.NONE);
+        counter.record(START_MS, 1);
+        counter.record(START_MS + 30 * MINUTE, 1);
+
+        assertThat(counter.hourlyCount(START_MS + HOUR - 1)).isEqualTo(2);
+        assertThat(counter.hourlyCount(START_MS + HOUR)).isEqualTo(1);
+        assertThat(counter.hourlyCount(START_MS + HOUR + 30 * MINUTE)).isZero();
+
+        assertThat(counter.dailyCount(START_MS + HOUR + 30 * MINUTE)).isEqualTo(2);
+        assertThat(counter.dailyCount(START_MS + 24 * HOUR - 1)).isEqualTo(2);
+        assertThat(counter.dailyCount(START_MS + 24 * HOUR)).isZero();
+    }
+
+    @Test
+    public void reusedBuckets() {
+        VelocityCounter counter = new VelocityCounter("account 0000001", VelocityLimit.NONE);
+        counter.record(START_MS, 1);
+        // Lands in the same minute slot of the ring, an hour later.
+        counter.record(START_MS + HOUR, 1);
+
+        assertThat(counter.hourlyCount(START_MS + HOUR)).isEqualTo(1);
+        assertThat(counter.dailyCount(START_MS + HOUR)).isEqualTo(2);
+    }
+
+    @Test
+    public void hourlyCount() {
+        VelocityCounter counter = new VelocityCounter(
+                "account 0000001",
+                VelocityLimit.create(2, 0, 0, 0));
+        counter.check(START_MS, 1);
+        counter.record(START_MS, 1);
+        counter.record(START_MS, 1);
+
+        assertThatThrownBy(() -> counter.check(START_MS + HOUR - 1, 1))
+                .isInstanceOf(TransferException.class)
+                .hasMessageContaining("hourly count of account 0000001");
+        counter.check(START_MS + HOUR, 1);
+    }
+
+    @Test
+    public void dailyAmount() {
+        VelocityCounter counter = new VelocityCounter(
+                "member m",
+                VelocityLimit.create(0, 0, 0, 10));
+        counter.record(START_MS, 6);
+        counter.record(START_MS + 12 * HOUR, 3);
+
+        counter.check(START_MS + 12 * HOUR, 1);
+        assertThatThrownBy(() -> counter.check(START_MS + 12 * HOUR, 1.5))
+                .isInstanceOf(TransferException.class)
+                .hasMessageContaining("daily amount of member m");
+        counter.check(START_MS + 24 * HOUR, 7);
+    }
+
+    @Test
+    public void withLimitKeepsCounts() {
+        VelocityCounter counter = new VelocityCounter(
+                "account 0000001",
+                VelocityLimit.create(1, 0, 0, 0));
+        counter.record(START_MS, 1);
+
+        VelocityCounter raised = counter.withLimit(VelocityLimit.create(2, 0, 0, 0));
+        raised.check(START_MS, 1);
+        raised.record(START_MS, 1);
+        assertThat(raised.hourlyCount(START_MS)).isEqualTo(2);
+        assertThatThrownBy(() -> raised.check(START_MS, 1))
+                .isInstanceOf(TransferException.class);
+    }
+}
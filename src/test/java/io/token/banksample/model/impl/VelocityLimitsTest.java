@@ -0,0 +1,186 @@
+package io.token.banksample.model.impl;
+
+import static io.token.proto.common.transaction.TransactionProtos.TransactionType.DEBIT;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.token.banksample.config.AccountConfig;
+import io.token.banksample.config.SyntheticAccounts;
+import io.token.banksample.config.VelocityLimit;
+import io.token.banksample.model.AccessTokenAuthorization;
+import io.token.banksample.model.AccountTransaction;
+import io.token.sdk.NamedAccount;
+import io.token.sdk.api.TransferException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Checks that the velocity limits tell apart the accounts of the same number
+ * at different banks and that reloaded limits keep the counted debits.
+ */
+public class VelocityLimitsTest {
+    private static final VelocityLimit TWO_PER_HOUR = VelocityLimit.create(2, 0, 0, 0);
+
+    private final SyntheticAccounts bankA = synthetic("BANKAUSCA00");
+    private final SyntheticAccounts bankB = synthetic("BANKBUSCA00");
+    // Same account number at both banks.
+    private final AccountConfig accountA = bankA.customerAccounts().get(0);
+    private final AccountConfig accountB = bankB.customerAccounts().get(0);
+
+    @Test
+    public void accountLimitByBic() {
+        AccountingImpl accounting = accounting(new VelocityLimits(
+                VelocityLimit.NONE,
+                singletonMap("BANKAUSCA00/" + accountA.getNumber(), TWO_PER_HOUR),
+                VelocityLimit.NONE,
+                emptyMap(),
+                emptyList()));
+        for (int i = 0; i < 3; i++) {
+            debit(accounting, accountB, "b:" + i);
+        }
+        debit(accounting, accountA, "a:1");
+        debit(accounting, accountA, "a:2");
+        assertThatThrownBy(() -> debit(accounting, accountA, "a:3"))
+                .isInstanceOf(TransferException.class)
+                .hasMessageContaining("hourly count");
+        // The rejected debit is not posted.
+        assertThat(accounting.lookupTransaction(accountA.toBankAccount(), "a:3")).isEmpty();
+    }
+
+    @Test
+    public void accountLimitByNumber() {
+        AccountingImpl accounting = accounting(new VelocityLimits(
+                VelocityLimit.NONE,
+                singletonMap(accountA.getNumber(), TWO_PER_HOUR),
+                VelocityLimit.NONE,
+                emptyMap(),
+                emptyList()));
+        // Counted separately, each account is limited on its own.
+        debit(accounting, accountA, "a:1");
+        debit(accounting, accountA, "a:2");
+        debit(accounting, accountB, "b:1");
+        debit(accounting, accountB, "b:2");
+        assertThatThrownBy(() -> debit(accounting, accountB, "b:3"))
+                .isInstanceOf(TransferException.class);
+    }
+
+    @Test
+    public void memberLinksByBic() {
+        AccountingImpl accounting = accounting(new VelocityLimits(
+                VelocityLimit.NONE,
+                emptyMap(),
+                TWO_PER_HOUR,
+                emptyMap(),
+                singletonList(member(accountA))));
+        for (int i = 0; i < 3; i++) {
+            debit(accounting, accountB, "b:" + i);
+        }
+        debit(accounting, accountA, "a:1");
+        debit(accounting, accountA, "a:2");
+        assertThatThrownBy(() -> debit(accounting, accountA, "a:3"))
+                .isInstanceOf(TransferException.class)
+                .hasMessageContaining("hourly count of member member");
+    }
+
+    @Test
+    public void memberAmountSharedByAccounts() {
+        AccountConfig second = bankA.customerAccounts().get(1);
+        AccountingImpl accounting = accounting(new VelocityLimits(
+                VelocityLimit.NONE,
+                emptyMap(),
+                VelocityLimit.create(0, 0, 0, 3),
+                emptyMap(),
+                singletonList(member(accountA, second))));
+        debit(accounting, accountA, "a:1");
+        debit(accounting, accountA, "a:2");
+        debit(accounting, second, "s:1");
+        assertThatThrownBy(() -> debit(accounting, second, "s:2"))
+                .isInstanceOf(TransferException.class)
+                .hasMessageContaining("daily amount of member member");
+    }
+
+    @Test
+    public void reloadKeepsCounts() {
+        AccountingImpl accounting = accounting(new VelocityLimits(
+                TWO_PER_HOUR,
+                emptyMap(),
+                VelocityLimit.NONE,
+                emptyMap(),
+                emptyList()));
+        debit(accounting, accountA, "a:1");
+        debit(accounting, accountA, "a:2");
+
+        accounting.updateVelocityLimits(new VelocityLimits(
+                VelocityLimit.create(3, 0, 0, 0),
+                emptyMap(),
+                VelocityLimit.NONE,
+                emptyMap(),
+                emptyList()));
+        debit(accounting, accountA, "a:3");
+        assertThatThrownBy(() -> debit(accounting, accountA, "a:4"))
+                .isInstanceOf(TransferException.class);
+    }
+
+    @Test
+    public void reloadAddsLimits() {
+        AccountingImpl accounting = accounting(null);
+        debit(accounting, accountA, "a:1");
+
+        accounting.updateVelocityLimits(new VelocityLimits(
+                VelocityLimit.NONE,
+                emptyMap(),
+                TWO_PER_HOUR,
+                emptyMap(),
+                singletonList(member(accountA))));
+        debit(accounting, accountA, "a:2");
+        debit(accounting, accountA, "a:3");
+        assertThatThrownBy(() -> debit(accounting, accountA, "a:4"))
+                .isInstanceOf(TransferException.class);
+    }
+
+    private AccountingImpl accounting(VelocityLimits limits) {
+        List<AccountConfig> customers = new ArrayList<>(bankA.customerAccounts());
+        customers.addAll(bankB.customerAccounts());
+        return AccountingImpl.builder(new AccountsImpl(
+                        bankA.holdAccounts(),
+                        bankA.fxAccounts(),
+                        customers))
+                .velocityLimits(limits)
+                .build();
+    }
+
+    private static SyntheticAccounts synthetic(String bic) {
+        // One pre-populated transaction worth of balance covers the debits.
+        return new SyntheticAccounts(42, 2, 1, singletonList("USD"), bic);
+    }
+
+    private static void debit(AccountingImpl accounting, AccountConfig from, String id) {
+        accounting.createDebitTransaction(AccountTransaction.builder(DEBIT)
+                .id(id)
+                .referenceId(id)
+                .from(from.toBankAccount())
+                .to(from.toBankAccount())
+                .amount(1, "USD")
+                .transferAmount(1, "USD")
+                .description("Debit")
+                .build());
+    }
+
+    private static AccessTokenAuthorization member(AccountConfig... accounts) {
+        return AccessTokenAuthorization.create(
+                "token-member",
+                "member",
+                Arrays.stream(accounts)
+                        .map(a -> new NamedAccount(a.toBankAccount(), a.getName()))
+                        .collect(toList()));
+    }
+}
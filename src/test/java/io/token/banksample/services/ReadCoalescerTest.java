@@ -0,0 +1,81 @@
+package io.token.banksample.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Checks when the coalescer serves a read from the cache, shares a read in
+ * flight, or computes it.
+ */
+public class ReadCoalescerTest {
+    private final ReadCoalescer<Integer, String> coalescer = new ReadCoalescer<>("test", 100);
+
+    @Test
+    public void cachedPerVersion() {
+        assertThat(coalescer.get(1, 1, () -> "a")).isEqualTo("a");
+        assertThat(coalescer.get(1, 1, () -> "stale")).isEqualTo("a");
+        assertThat(coalescer.get(2, 1, () -> "other")).isEqualTo("other");
+        assertThat(coalescer.get(1, 2, () -> "b")).isEqualTo("b");
+        assertThat(coalescer.getCached()).isEqualTo(1);
+        assertThat(coalescer.getExecuted()).isEqualTo(3);
+
+        // An older version is computed, but never replaces a newer result.
+        assertThat(coalescer.get(1, 1, () -> "old")).isEqualTo("old");
+        assertThat(coalescer.get(1, 2, () -> "stale")).isEqualTo("b");
+    }
+
+    @Test
+    public void unknownVersionNotCached() {
+        assertThat(coalescer.get(1, -1, () -> "a")).isEqualTo("a");
+        assertThat(coalescer.get(1, -1, () -> "b")).isEqualTo("b");
+        assertThat(coalescer.getCached()).isZero();
+    }
+
+    @Test
+    public void failureNotCached() {
+        assertThatThrownBy(() -> coalescer.get(1, 1, () -> {
+            throw new IllegalStateException("failed");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(coalescer.get(1, 1, () -> "a")).isEqualTo("a");
+    }
+
+    @Test
+    public void coalesced() throws Exception {
+        CountDownLatch computing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() ->
+                coalescer.get(1, 1, () -> {
+                    computing.countDown();
+                    await(release);
+                    return "a";
+                }));
+        computing.await();
+
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() ->
+                coalescer.get(1, 1, () -> "b"));
+        // Give the second read time to join the first one.
+        while (coalescer.getCoalesced() == 0 && !second.isDone()) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo("a");
+        assertThat(second.get(10, TimeUnit.SECONDS)).isEqualTo("a");
+        assertThat(coalescer.getCoalesced()).isEqualTo(1);
+        assertThat(coalescer.getExecuted()).isEqualTo(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package io.token.banksample.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.token.sdk.api.TransferException;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+/**
+ * Checks how a transfer amount is split across several destinations.
+ */
+public class TransferServiceImplTest {
+    @Test
+    public void split() {
+        assertThat(TransferServiceImpl.split(new BigDecimal("100.00"), "USD", 3)).containsExactly(
+                new BigDecimal("33.34"),
+                new BigDecimal("33.33"),
+                new BigDecimal("33.33"));
+        assertThat(TransferServiceImpl.split(new BigDecimal("0.02"), "USD", 2)).containsExactly(
+                new BigDecimal("0.01"),
+                new BigDecimal("0.01"));
+    }
+
+    @Test
+    public void splitInMinorUnits() {
+        // Split in cents, not in the scale the amount happens to have.
+        assertThat(TransferServiceImpl.split(new BigDecimal("10"), "USD", 3)).containsExactly(
+                new BigDecimal("3.34"),
+                new BigDecimal("3.33"),
+                new BigDecimal("3.33"));
+        assertThat(TransferServiceImpl.split(new BigDecimal("1.000"), "USD", 3)).containsExactly(
+                new BigDecimal("0.34"),
+                new BigDecimal("0.33"),
+                new BigDecimal("0.33"));
+        assertThat(TransferServiceImpl.split(new BigDecimal("100"), "JPY", 3)).containsExactly(
+                new BigDecimal("34"),
+                new BigDecimal("33"),
+                new BigDecimal("33"));
+    }
+
+    @Test
+    public void splitRejectsEmptyLegs() {
+        assertThatThrownBy(() -> TransferServiceImpl.split(new BigDecimal("0.01"), "USD", 2))
+                .isInstanceOf(TransferException.class)
+                .hasMessageContaining("too small");
+        assertThatThrownBy(() -> TransferServiceImpl.split(new BigDecimal("2"), "JPY", 3))
+                .isInstanceOf(TransferException.class);
+    }
+
+    @Test
+    public void splitRejectsFractionsOfMinorUnits() {
+        assertThatThrownBy(() -> TransferServiceImpl.split(new BigDecimal("1.005"), "USD", 2))
+                .isInstanceOf(TransferException.class)
+                .hasMessageContaining("minor units");
+    }
+
+    @Test
+    public void splitRejectsUnknownCurrency() {
+        assertThatThrownBy(() -> TransferServiceImpl.split(new BigDecimal("1"), "ABC", 2))
+                .isInstanceOf(TransferException.class)
+                .hasMessageContaining("Unknown currency");
+    }
+}